@@ -0,0 +1,61 @@
+package bench;
+
+import java.io.File;
+import java.util.List;
+
+import agents.actions.ActionsBFS;
+import game.Sokoban;
+import game.actions.EDirection;
+import game.actions.compact.CPush;
+import game.actions.compact.CWalkPush;
+import game.board.compact.BoardCompact;
+import game.board.oop.Board;
+
+/**
+ * Real levels for benchmarks; every level is prepared so that the player stands next to a box it can push.
+ * 
+ * Levels are given as "file:levelNumber", e.g., "easy.sok:1"; files are looked up via {@link Sokoban#findFile(String)}.
+ * 
+ * @author Jimmy
+ */
+public class BenchLevels {
+
+	/**
+	 * Levels from small to large; same as @Param of benchmarks (override via -p level=...).
+	 */
+	public static final String[] LEVELS = { "easy.sok:3", "Sasquatch_IX.sok:30", "Sasquatch_IX.sok:40", "Sasquatch_IX.sok:50" };
+	
+	public final BoardCompact board;
+	
+	public final EDirection pushDirection;
+	
+	private BenchLevels(BoardCompact board, EDirection pushDirection) {
+		this.board = board;
+		this.pushDirection = pushDirection;
+	}
+	
+	public static BenchLevels load(String level) {
+		int colon = level.lastIndexOf(':');
+		if (colon < 0) throw new RuntimeException("Level must be given as file:levelNumber, got: " + level);
+		File file = Sokoban.findFile(level.substring(0, colon));
+		int levelNumber = Integer.parseInt(level.substring(colon + 1));
+		
+		BoardCompact board = Board.fromFileSok(file, levelNumber).makeBoardCompact();
+		
+		// WALK THE PLAYER TO THE FIRST PUSH
+		List<CWalkPush> pushes = new ActionsBFS().findPushes(board);
+		if (pushes.size() == 0) throw new RuntimeException("No push possible in " + level);
+		CWalkPush push = pushes.get(0);
+		if (board.playerX != push.getWalk().getX() || board.playerY != push.getWalk().getY()) {
+			board.movePlayer(board.playerX, board.playerY, push.getWalk().getX(), push.getWalk().getY());
+		}
+		
+		EDirection dir = push.getPush().getDirection();
+		if (!CPush.isPushPossible(board, board.playerX, board.playerY, dir)) {
+			throw new RuntimeException("Failed to prepare the push in " + level);
+		}
+		
+		return new BenchLevels(board, dir);
+	}
+	
+}
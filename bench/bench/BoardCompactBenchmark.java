@@ -0,0 +1,104 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.actions.compact.CPush;
+import game.board.compact.BoardCompact;
+
+/**
+ * Throughput of {@link BoardCompact} operations and {@link CPush} on real levels, see {@link BenchLevels}.
+ * 
+ * @author Jimmy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardCompactBenchmark {
+
+	@Param({ "easy.sok:3", "Sasquatch_IX.sok:30", "Sasquatch_IX.sok:40", "Sasquatch_IX.sok:50" })
+	public String level;
+	
+	private BoardCompact board;
+	
+	private BoardCompact other;
+	
+	private CPush push;
+	
+	private int boxX, boxY, targetX, targetY;
+	
+	@Setup
+	public void setup() {
+		BenchLevels bench = BenchLevels.load(level);
+		board = bench.board;
+		other = board.clone();
+		push = CPush.getAction(bench.pushDirection);
+		boxX = board.playerX + bench.pushDirection.dX;
+		boxY = board.playerY + bench.pushDirection.dY;
+		targetX = boxX + bench.pushDirection.dX;
+		targetY = boxY + bench.pushDirection.dY;
+	}
+	
+	@Benchmark
+	public BoardCompact cloneBoard() {
+		return board.clone();
+	}
+	
+	@Benchmark
+	public int hashCodeCached() {
+		return board.hashCode();
+	}
+	
+	@Benchmark
+	public int hashCodeComputed() {
+		board.invalidateHash();
+		return board.hashCode();
+	}
+	
+	@Benchmark
+	public boolean equalsBoard() {
+		return board.equals(other);
+	}
+	
+	@Benchmark
+	public int moveBox() {
+		board.moveBox(boxX, boxY, targetX, targetY);
+		board.moveBox(targetX, targetY, boxX, boxY);
+		return board.boxInPlaceCount;
+	}
+	
+	@Benchmark
+	public int movePlayer() {
+		int playerX = board.playerX, playerY = board.playerY;
+		board.movePlayer(playerX, playerY, targetX, targetY);
+		board.movePlayer(targetX, targetY, playerX, playerY);
+		return board.playerX;
+	}
+	
+	@Benchmark
+	public boolean pushIsPossible() {
+		return push.isPossible(board);
+	}
+	
+	@Benchmark
+	public int pushPerformReverse() {
+		push.perform(board);
+		push.reverse(board);
+		return board.playerX;
+	}
+	
+}
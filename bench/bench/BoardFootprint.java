@@ -0,0 +1,32 @@
+package bench;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import game.board.compact.BoardCompact;
+
+/**
+ * Prints retained bytes per board instance (object graph incl. tile arrays) of every board representation via JOL.
+ * 
+ * Usage: <code>BoardFootprint [file:levelNumber]*</code>, defaults to {@link BenchLevels#LEVELS}.
+ * 
+ * @author Jimmy
+ */
+public class BoardFootprint {
+
+	public static void main(String[] args) {
+		String[] levels = args.length > 0 ? args : BenchLevels.LEVELS;
+		
+		System.out.printf("%-32s %8s %10s %10s %10s %10s\n", "level", "size", "compact", "flat", "slim", "compressed");
+		for (String level : levels) {
+			BoardCompact board = BenchLevels.load(level).board;
+			System.out.printf("%-32s %8s %10d %10d %10d %10d\n",
+				level, board.width() + "x" + board.height(),
+				GraphLayout.parseInstance(board).totalSize(),
+				GraphLayout.parseInstance(board.makeBoardCompactFlat()).totalSize(),
+				GraphLayout.parseInstance(board.makeBoardSlim()).totalSize(),
+				GraphLayout.parseInstance(board.makeBoardCompressed()).totalSize()
+			);
+		}
+	}
+	
+}
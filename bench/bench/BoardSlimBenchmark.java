@@ -0,0 +1,104 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.actions.slim.SPush;
+import game.board.slim.BoardSlim;
+
+/**
+ * Throughput of {@link BoardSlim} operations and {@link SPush} on real levels, see {@link BenchLevels}.
+ * 
+ * @author Jimmy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardSlimBenchmark {
+
+	@Param({ "easy.sok:3", "Sasquatch_IX.sok:30", "Sasquatch_IX.sok:40", "Sasquatch_IX.sok:50" })
+	public String level;
+	
+	private BoardSlim board;
+	
+	private BoardSlim other;
+	
+	private SPush push;
+	
+	private byte boxX, boxY, targetX, targetY;
+	
+	@Setup
+	public void setup() {
+		BenchLevels bench = BenchLevels.load(level);
+		board = bench.board.makeBoardSlim();
+		other = board.clone();
+		push = SPush.getAction(bench.pushDirection);
+		boxX = (byte)(board.playerX + bench.pushDirection.dX);
+		boxY = (byte)(board.playerY + bench.pushDirection.dY);
+		targetX = (byte)(boxX + bench.pushDirection.dX);
+		targetY = (byte)(boxY + bench.pushDirection.dY);
+	}
+	
+	@Benchmark
+	public BoardSlim cloneBoard() {
+		return board.clone();
+	}
+	
+	@Benchmark
+	public int hashCodeCached() {
+		return board.hashCode();
+	}
+	
+	@Benchmark
+	public int hashCodeComputed() {
+		board.invalidateHash();
+		return board.hashCode();
+	}
+	
+	@Benchmark
+	public boolean equalsBoard() {
+		return board.equals(other);
+	}
+	
+	@Benchmark
+	public int moveBox() {
+		board.moveBox(boxX, boxY, targetX, targetY);
+		board.moveBox(targetX, targetY, boxX, boxY);
+		return board.boxInPlaceCount;
+	}
+	
+	@Benchmark
+	public int movePlayer() {
+		byte playerX = board.playerX, playerY = board.playerY;
+		board.movePlayer(playerX, playerY, targetX, targetY);
+		board.movePlayer(targetX, targetY, playerX, playerY);
+		return board.playerX;
+	}
+	
+	@Benchmark
+	public boolean pushIsPossible() {
+		return push.isPossible(board);
+	}
+	
+	@Benchmark
+	public int pushPerformReverse() {
+		push.perform(board);
+		push.reverse(board);
+		return board.playerX;
+	}
+	
+}
@@ -1,6 +1,10 @@
 import java.util.*;
 
 import agents.ArtificialAgent;
+import agents.analysis.LevelAnalysis;
+import agents.heuristics.HungarianHeuristic;
+import agents.metrics.ECounter;
+import agents.metrics.SearchMetrics;
 import game.actions.EDirection;
 import game.board.compact.BoardCompact;
 import game.board.oop.*;
@@ -47,65 +51,15 @@ class Position {
     }
 }
 
-class DeadSquareDetector {
-    public static boolean[][] detect(BoardCompact board) {
-        int width = board.width();
-        int height = board.height();
-
-        boolean[][] deadTiles = new boolean[width][height];
-
-        for (boolean[] array : deadTiles)
-            Arrays.fill(array, true);
-
-        HashSet<Position> explored = new HashSet<>();
-        Queue<Position> frontier = new LinkedList<>();
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (Utils.IsGoal(board, x, y))
-                    frontier.add(new Position(x, y));
-            }
-        }
-
-        while (!frontier.isEmpty()) {
-            Position tile = frontier.poll();
-
-            if (explored.contains(tile))
-                continue;
-
-            deadTiles[tile.x][tile.y] = false;
-
-            for (int dx = -1; dx <= 1; dx++) {
-                for (int dy = -1; dy <= 1; dy++) {
-
-                    if (dx != 0 && dy != 0)
-                        continue;
-
-                    if (Utils.IsWall(board, tile.x + dx, tile.y + dy) || Utils.IsWall(board, tile.x + dx * 2, tile.y + dy * 2)) {
-                        continue;
-                    }
-
-                    frontier.add(new Position(tile.x + dx, tile.y + dy));
-                }
-            }
-
-            explored.add(tile);
-        }
-
-        return deadTiles;
-    }
-}
-
 public class MyAgent extends ArtificialAgent {
 
     @Override
     protected List<EDirection> think(BoardCompact board) {
 //        BoardState st = new BoardState(board);
-//        DeadSquareDetector.FindReachableBoxes(board, st, board.playerX, board.playerY, DeadSquareDetector.detect(board));
+//        Utils.FindReachableBoxes(board, st, board.playerX, board.playerY, getLevelAnalysis());
 //        if ( 1 == 1) return null;
-        SokobanProblem problem = new SokobanProblem(board);
+        SokobanProblem problem = new SokobanProblem(board, getLevelAnalysis(), metrics);
         Solution<BoardState, BoxPushAction> solution = AStar.search(problem);
-        System.out.println("BFS took " + (problem.bfstime / 1000000) + "ms");
         return SokobanProblem.Walk(solution, problem);
     }
 }
@@ -114,45 +68,68 @@ class SokobanProblem implements HeuristicProblem<BoardState, BoxPushAction> {
 
     BoardCompact board;
     Position[] goals;
-    boolean[][] deadSquares;
+    LevelAnalysis analysis;
+    HungarianHeuristic matching;
+    // matching of the expanded state and of its child, used to prune deadlocked pushes
+    HungarianHeuristic parentMatching;
+    HungarianHeuristic childMatching;
+    int[] boxCells;
+    SearchMetrics metrics;
 
-    SokobanProblem(BoardCompact initial) {
+    static final String PHASE_BFS = "bfs";
+
+    SokobanProblem(BoardCompact initial, LevelAnalysis analysis, SearchMetrics metrics) {
         this.board = initial;
-        this.deadSquares = DeadSquareDetector.detect(initial);
-        this.goals = new Position[board.boxCount];
+        this.analysis = analysis;
+        this.metrics = metrics;
+        this.matching = new HungarianHeuristic(analysis, initial.boxCount);
+        this.parentMatching = new HungarianHeuristic(analysis, initial.boxCount);
+        this.childMatching = new HungarianHeuristic(analysis, initial.boxCount);
+        this.boxCells = new int[initial.boxCount];
+        this.goals = new Position[analysis.goalCells.length];
         FindGoals();
     }
 
     void FindGoals(){
-        int i = 0;
-        for(int x = 0; x < board.width(); x++){
-            for(int y = 0; y < board.height(); y++){
-
-                if (! Utils.IsGoal(board, x, y))
-                    continue;
+        for(int i = 0; i < goals.length; i++){
+            int cell = analysis.goalCells[i];
+            this.goals[i] = new Position(cell % analysis.width, cell / analysis.width);
+        }
+    }
 
-                this.goals[i++] = new Position(x, y);
-            }
+    void FillBoxCells(BoardState b) {
+        for (int i = 0; i < b.boxCount; i++) {
+            boxCells[i] = analysis.cell(b.boxes[i][0], b.boxes[i][1]);
         }
     }
 
     @Override
     public double estimate(BoardState b) {
-        double total = 0;
+        FillBoxCells(b);
 
-        for(int[] i : b.boxes){
-            Position box_position = new Position(i[0], i[1]);
+        int pushes = matching.init(boxCells);
+        if (pushes == HungarianHeuristic.DEADLOCK) {
+            // only the initial state can get here, deadlocked children are pruned by actions()
+            return Double.POSITIVE_INFINITY;
+        }
 
-            double shortest = Double.POSITIVE_INFINITY;
+        return pushes;
+    }
 
-            for(Position g : goals){
-                shortest = Math.min(box_position.ManhattanDistance(g), shortest);
-            }
+    // Whether the push leaves boxes that cannot be matched to goals; the matching of 'b' (in parentMatching) is updated by the single moved box only
+    boolean IsDeadlock(BoardState b, BoxPushAction push) {
+        int bx = push.player.x + push.direction.dX;
+        int by = push.player.y + push.direction.dY;
 
-            total += shortest;
+        for (int i = 0; i < b.boxCount; i++) {
+            if (b.boxes[i][0] != bx || b.boxes[i][1] != by)
+                continue;
+
+            childMatching.copyFrom(parentMatching);
+            return childMatching.moveBox(i, analysis.cell(bx + push.direction.dX, by + push.direction.dY)) == HungarianHeuristic.DEADLOCK;
         }
 
-        return total;
+        return false;
     }
 
     @Override
@@ -160,15 +137,24 @@ class SokobanProblem implements HeuristicProblem<BoardState, BoxPushAction> {
         return new BoardState(board);
     }
 
-    long bfstime = 0;
-
     @Override
     public List<BoxPushAction> actions(BoardState b) {
-        long startTime = System.nanoTime();
-        List<BoxPushAction> l = Utils.FindReachableBoxes(board, b, b.playerX, b.playerY, deadSquares);
-        long endTime = System.nanoTime();
+        long startTime = metrics.startPhase();
+        List<BoxPushAction> l = Utils.FindReachableBoxes(board, b, b.playerX, b.playerY, analysis);
+        metrics.endPhase(PHASE_BFS, startTime);
+
+        metrics.inc(ECounter.EXPANDED);
+        metrics.add(ECounter.GENERATED, l.size());
+
+        FillBoxCells(b);
+        parentMatching.init(boxCells);
+        for (Iterator<BoxPushAction> it = l.iterator(); it.hasNext(); ) {
+            if (IsDeadlock(b, it.next())) {
+                it.remove();
+                metrics.inc(ECounter.DEADLOCK_PRUNED);
+            }
+        }
 
-        bfstime += (endTime - startTime);
         return l;
     }
 
@@ -315,6 +301,7 @@ class BoardState {
         for(int[] b : boxes){
             board.tiles[b[0]][b[1]] = boxFlag;
         }
+        board.invalidateHash();
 
         return board;
     }
@@ -407,7 +394,7 @@ class Utils {
     }
 
     // Find all boxes that can be pushed from a given area on a map
-    static ArrayList<BoxPushAction> FindReachableBoxes(BoardCompact template, BoardState s, int x, int y, boolean[][] deadSquares) {
+    static ArrayList<BoxPushAction> FindReachableBoxes(BoardCompact template, BoardState s, int x, int y, LevelAnalysis analysis) {
 
 //        System.out.println("\nSearching on: ");
 //        s.DebugPrint(template);
@@ -443,7 +430,7 @@ class Utils {
                     // If there is a space behind said box
                     if (    !IsWall(template, far_x, far_y) &&
                             !HasBox(s, far_x, far_y) &&
-                            !deadSquares[far_x][far_y]) {
+                            !analysis.isDead(far_x, far_y)) {
 
                         // Add to pushable boxes
                         boxes.add(new BoxPushAction(new Position(tile.x, tile.y, tile.value + 1), dir));
@@ -465,7 +452,7 @@ class Utils {
 //            System.out.println(" and push dir: " + box.direction);
 //        }
 
-//        if (!Validator.AreValidReachableBoxes(template, s, x, y, deadSquares, boxes)){
+//        if (!Validator.AreValidReachableBoxes(template, s, x, y, null, boxes)){
 //            throw new RuntimeException("Reachable Boxes validation failed!");
 //        }
 
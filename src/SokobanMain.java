@@ -6,70 +6,50 @@ import game.*;
 import tournament.*;
 
 public class SokobanMain {
-    static String describe(SokobanResultType type) {
-        switch (type) {
-            case VICTORY: return "solved";
-            case TIMEOUT: return "TIMEOUT";
-            default: return "FAILED";
-        }
-    }
-
     public static SokobanResultType runLevel(
         IAgent agent, String agentName, String levelset, int level,
         String resultFile, int timeout, boolean verbose, boolean optimal) {
-
-        agent.init(optimal, verbose);
-
-        if (verbose)
-            System.out.println("====================");
-        System.out.printf("solving level %d... ", level);
-        if (verbose)
-            System.out.println();
-
-        SokobanResult result =
-            Sokoban.simAgentLevel(null, levelset, level, timeout, agent, verbose, optimal);
-
-        SokobanResultType resultType = result.getResult();
-        System.out.printf("%s in %.1f ms",
-            describe(resultType), (double) result.getSimDurationMillis());
-
-        if (resultType == SokobanResultType.VICTORY)
-            System.out.printf(" (%d steps)", result.getSteps());
-        if (result.message != null)
-            System.out.printf(" (%s)", result.message);
-
-        System.out.println();
-
-        if (resultFile != null)
-            result.outputResult(new File(resultFile), levelset, level, agentName);
-
-        return resultType;
+        return InProcessLevelRunner.playLevel(
+            agent, agentName, levelset, level, resultFile, timeout, verbose, optimal).getResult();
     }
 
     static void runLevelSet(String agentName, String levelset, int maxFail, String resultFile,
-                            int timeout, boolean verbose, boolean optimal) {
+                            SokobanConfig config, ELevelIsolation isolation,
+                            int threads, String historyFile) {
         SokobanLevels levels = SokobanLevels.fromString(levelset + ";all");
         System.out.printf("Running %s on levels in %s\n", agentName, levelset);
 
-        SokobanConfig config = new SokobanConfig();
-        config.requireOptimal = optimal;
-        config.timeoutMillis = timeout;
-        config.verbose = verbose;
+        if (threads != 1) {
+            // previous results in the result file are the best guess of level durations
+            if (historyFile == null)
+                historyFile = resultFile;
+            RunSokobanLevelsParallel run = new RunSokobanLevelsParallel(
+                config, agentName, levels,
+                resultFile == null ? null : new File(resultFile), maxFail, threads,
+                historyFile == null ? null : new File(historyFile), isolation);
+            run.run();
+            return;
+        }
 
         RunSokobanLevels run = new RunSokobanLevels(
             config, agentName, levels,
-            resultFile == null ? null : new File(resultFile), maxFail);
+            resultFile == null ? null : new File(resultFile), maxFail, isolation);
         run.run();
     }
 
     static void usage() {
         out.println("usage: sokoban [<agent-classname>] [<option>...]");
         out.println("options:");
+        out.println("  -history <filename> : results of a previous run to schedule longest levels first (default: result file)");
+        out.println("  -isolation in-process|worker|process : where to run levels of a level set: this JVM, recycled worker JVMs or a fresh JVM per level (default: in-process)");
+        out.println("  -cputimeout <num> : maximum CPU time of the agent in milliseconds");
         out.println("  -level <num> : level number to play");
         out.println("  -levelset <name> : set of levels to play");
+        out.println("  -maxalloc <num> : maximum bytes the agent may allocate");
         out.println("  -maxfail <num> : maximum level failures allowed");
         out.println("  -optimal : require move-optimal solutions");
         out.println("  -resultfile <filename> : file to append results to");
+        out.println("  -threads <num> : number of levels to play in parallel, 0 for all cores (default: 1)");
         out.println("  -timeout <num> : maximum thinking time in milliseconds");
         out.println("  -v : verbose output");
         System.exit(1);
@@ -83,11 +63,27 @@ public class SokobanMain {
         boolean optimal = false;
         String resultFile = null;
         int timeout = 0;
+        long cpuTimeout = 0;
+        long maxAlloc = 0;
         boolean verbose = false;
+        ELevelIsolation isolation = ELevelIsolation.IN_PROCESS;
+        int threads = 1;
+        String historyFile = null;
 
         for (int i = 0 ; i < args.length ; ++i) {
             String s = args[i];
             switch (s) {
+                case "-cputimeout":
+                    cpuTimeout = Long.parseLong(args[++i]);
+                    break;
+                case "-history":
+                    historyFile = args[++i];
+                    break;
+                case "-isolation":
+                    isolation = ELevelIsolation.getForName(args[++i]);
+                    if (isolation == null)
+                        usage();
+                    break;
                 case "-level":
                     level = Integer.parseInt(args[++i]);
                     break;
@@ -96,6 +92,9 @@ public class SokobanMain {
                     if (levelset.indexOf('.') == -1)
                         levelset += ".sok";
                     break;
+                case "-maxalloc":
+                    maxAlloc = Long.parseLong(args[++i]);
+                    break;
                 case "-maxfail":
                     maxFail = Integer.parseInt(args[++i]);
                     break;
@@ -105,6 +104,9 @@ public class SokobanMain {
                 case "-resultfile":
                     resultFile = args[++i];
                     break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
                 case "-timeout":
                     timeout = Integer.parseInt(args[++i]);
                     break;
@@ -118,6 +120,13 @@ public class SokobanMain {
             }
         }
 
+        SokobanConfig config = new SokobanConfig();
+        config.requireOptimal = optimal;
+        config.timeoutMillis = timeout;
+        config.cpuTimeoutMillis = cpuTimeout;
+        config.maxAllocatedBytes = maxAlloc;
+        config.verbose = verbose;
+
         if (agentName == null)
             if (level > 0)
                 Sokoban.playHumanLevel(levelset, level);
@@ -126,11 +135,15 @@ public class SokobanMain {
         else
             if (level > 0) {
                 IAgent agent = (IAgent) Class.forName(agentName).getConstructor().newInstance();
-                SokobanResultType resultType = runLevel(
-                    agent, agentName, levelset, level, resultFile, timeout, verbose, optimal);
+                SokobanResultType resultType = InProcessLevelRunner.playLevel(
+                    agent, agentName, levelset, level, resultFile, config).getResult();
                 System.exit(resultType.getExitValue());	    	    
             }
-            else
-                runLevelSet(agentName, levelset, maxFail, resultFile, timeout, verbose, optimal);
+            else {
+                runLevelSet(agentName, levelset, maxFail, resultFile, config, isolation,
+                            threads, historyFile);
+                // do not wait for threads of agents abandoned by the watchdog
+                System.exit(0);
+            }
     }
 }
@@ -1,24 +1,56 @@
 package agents;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import agents.analysis.LevelAnalysis;
+import agents.metrics.ECounter;
+import agents.metrics.MetricsSampler;
+import agents.metrics.MetricsSnapshot;
+import agents.metrics.SearchMetrics;
 import game.IAgent;
 import game.actions.EDirection;
 import game.board.compact.BoardCompact;
 
+/**
+ * Agent that computes its plan via {@link #think(BoardCompact)} in a separate {@link ThinkThread} and then executes it move by move.
+ * 
+ * The simulator hands the board over to the thread and blocks in {@link #act(long)} / {@link #actPlan(long)} until the plan is completed
+ * (see {@link CompletableFuture}), so there is no polling on either side.
+ * 
+ * Searches should report their progress into {@link #metrics}, which is reset every level, sampled by {@link MetricsSampler} while thinking
+ * (and printed if verbose) and reported in {@link game.SokobanResult#getMetrics()}.
+ */
 public abstract class ArtificialAgent implements IAgent {
 
 	private List<EDirection> actions;
 	
 	private BoardCompact board;
+	
+	private LevelAnalysis analysis;
 		
 	private ThinkThread thread;
 	
+	/**
+	 * Plan being computed by {@link #thread}; null if we are not thinking.
+	 */
+	private CompletableFuture<List<EDirection>> plan;
+	
 	private Object mutex = new Object();
 	
-    private RuntimeException agentException;
-    
     protected boolean optimal, verbose;
+    
+	/**
+	 * Instrumentation of the search, see {@link ArtificialAgent}.
+	 */
+	protected final SearchMetrics metrics = new SearchMetrics();
+	
+	private volatile MetricsSampler sampler;
 
     @Override
     public void init(boolean optimal, boolean verbose) {
@@ -28,9 +60,13 @@ public abstract class ArtificialAgent implements IAgent {
 
 	@Override
 	public void newLevel() {
-		actions = null;
-		board = null;
-		agentException = null;
+		synchronized(mutex) {
+			actions = null;
+			board = null;
+			analysis = null;
+			plan = null;
+		}
+		metrics.reset();
 	}
 
 	@Override
@@ -40,30 +76,114 @@ public abstract class ArtificialAgent implements IAgent {
 
 	@Override
 	public EDirection act() {
-		// HAVE ACTION?
-		if (actions != null && actions.size() != 0) {
-			// => EXECUTE
-			return actions.remove(0);
+		return act(0);
+	}
+	
+	@Override
+	public EDirection act(long maxWaitMillis) {
+		if (!awaitActions(maxWaitMillis)) return null;
+		synchronized(mutex) {
+			return actions == null || actions.size() == 0 ? null : actions.remove(0);
 		}
+	}
+	
+	@Override
+	public List<EDirection> actPlan(long maxWaitMillis) {
+		if (!awaitActions(maxWaitMillis)) return null;
+		synchronized(mutex) {
+			List<EDirection> result = actions;
+			actions = null;
+			return result;
+		}
+	}
+	
+	/**
+	 * Makes sure there are {@link #actions} to execute, waiting up to 'maxWaitMillis' for {@link #thread} to think them up if needed.
+	 * @param maxWaitMillis non-positive == do not wait
+	 * @return whether there are {@link #actions}
+	 */
+	private boolean awaitActions(long maxWaitMillis) {
+		CompletableFuture<List<EDirection>> waitFor;
 		
-		// OTHERWISE THINK!
 		synchronized(mutex) {
-			if (agentException != null) {
-				throw agentException;
+			// HAVE ACTION?
+			if (actions != null && actions.size() != 0) return true;
+			
+			// OTHERWISE THINK!
+			if (plan == null) {
+				ensureThinkThread();
+				plan = new CompletableFuture<List<EDirection>>();
+				thread.requests.add(new ThinkRequest(board, plan));
 			}
-			ensureThinkThread();
-			if (actions == null || actions.size() == 0) {
-				thread.think = true;
+			waitFor = plan;
+		}
+		
+		List<EDirection> thinkActions;
+		try {
+			if (maxWaitMillis > 0) {
+				thinkActions = waitFor.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+			} else {
+				if (!waitFor.isDone()) return false;
+				thinkActions = waitFor.get();
 			}
-			if (actions != null && actions.size() != 0) {
-				// => EXECUTE
-				return actions.remove(0);
+		} catch (TimeoutException e) {
+			return false;
+		} catch (InterruptedException e) {
+			// let the caller notice
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			throw new RuntimeException("ThinkThread failed.", e.getCause());
+		}
+		
+		synchronized(mutex) {
+			if (plan != waitFor) {
+				// stopped / new level meanwhile
+				return false;
+			}
+			plan = null;
+			if (thinkActions != null) {
+				actions = new ArrayList<EDirection>(thinkActions);
+			} else {
+				actions = new ArrayList<EDirection>();
+				actions.add(EDirection.NONE);
 			}
+			return actions.size() != 0;
 		}
-		return null;
 	}
 	
 	protected abstract List<EDirection> think(final BoardCompact board);
+	
+	@Override
+	public long getSearchedNodes() {
+		return metrics.get(ECounter.EXPANDED);
+	}
+	
+	@Override
+	public MetricsSnapshot getMetrics() {
+		return metrics.snapshot();
+	}
+	
+	/**
+	 * Samples of {@link #metrics} taken during the last {@link #think(BoardCompact)}.
+	 * @return
+	 */
+	public List<MetricsSnapshot> getMetricsSamples() {
+		MetricsSampler sampler = this.sampler;
+		return sampler == null ? Collections.<MetricsSnapshot>emptyList() : sampler.getSamples();
+	}
+	
+	/**
+	 * Static analysis of the current level (dead squares, goals, push distances, ...); computed once per level and shared
+	 * between agents / runs of the same level, see {@link LevelAnalysis#get(BoardCompact)}.
+	 * @return null if no board has been observed yet
+	 */
+	protected LevelAnalysis getLevelAnalysis() {
+		if (analysis == null && board != null) {
+			analysis = LevelAnalysis.get(board);
+		}
+		return analysis;
+	}
 
 	@Override
 	public void victory() {
@@ -90,49 +210,63 @@ public abstract class ArtificialAgent implements IAgent {
 				thread.interrupt();
 				thread = null;
 			}
+			plan = null;
+		}
+	}
+	
+	protected static class ThinkRequest {
+		
+		public final BoardCompact board;
+		
+		public final CompletableFuture<List<EDirection>> plan;
+		
+		public ThinkRequest(BoardCompact board, CompletableFuture<List<EDirection>> plan) {
+			this.board = board;
+			this.plan = plan;
 		}
+		
 	}
 	
 	protected class ThinkThread extends Thread {
 		
-		public boolean running = true;
+		public volatile boolean running = true;
 		
-		public boolean shouldRun = true;
+		public volatile boolean shouldRun = true;
 		
-		public boolean think = false;
+		public final BlockingQueue<ThinkRequest> requests = new LinkedBlockingQueue<ThinkRequest>();
 		
 		public ThinkThread() {
 			super("ThinkThread");
+			// a thread that ignores stop() must not keep the JVM alive
+			setDaemon(true);
 		}
 		
 		@Override
 		public void run() {
 			try {
-				while (shouldRun && !interrupted()) {
-					while (!think) {
-						try {
-							Thread.sleep(50);
-						} catch (Exception e) {
-							throw new RuntimeException("Interrupted on sleep");
-						}
+				while (shouldRun) {
+					ThinkRequest request;
+					try {
+						request = requests.take();
+					} catch (InterruptedException e) {
+						return;
 					}
-					List<EDirection> thinkActions = think(board);
-					synchronized(mutex) {
-						if (ArtificialAgent.this.thread == this) {
-                            if (thinkActions != null)
-                                actions = thinkActions;
-                            else {
-                                actions = new ArrayList<EDirection>();
-                                actions.add(EDirection.NONE);
-                            }
-						}
-						think = false;
+					MetricsSampler sampler = new MetricsSampler(metrics, MetricsSampler.DEFAULT_PERIOD_MILLIS, verbose ? System.out : null);
+					ArtificialAgent.this.sampler = sampler;
+					sampler.start();
+					long thinkStart = metrics.startPhase();
+					metrics.beginThread();
+					try {
+						request.plan.complete(think(request.board));
+					} catch (Throwable e) {
+						// errors (e.g. OutOfMemoryError) too, otherwise the plan would never complete and the sim would wait for the timeout
+						request.plan.completeExceptionally(e);
+					} finally {
+						metrics.endThread();
+						metrics.endPhase("think", thinkStart);
+						sampler.stopSampling();
 					}
 				}
-			} catch (Exception e) {
-				synchronized(mutex) {
-					agentException = new RuntimeException("ThinkThread failed.", e);
-				}
 			} finally {
 				running = false;
 			}
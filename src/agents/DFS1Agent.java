@@ -3,10 +3,11 @@ package agents;
 import java.util.ArrayList;
 import java.util.List;
 
+import agents.metrics.ECounter;
+import agents.metrics.EGauge;
 import game.actions.EDirection;
 import game.actions.compact.CAction;
-import game.actions.compact.CMove;
-import game.actions.compact.CPush;
+import game.actions.compact.CActions;
 import game.board.compact.BoardCompact;
 
 /**
@@ -21,30 +22,34 @@ public class DFS1Agent extends ArtificialAgent {
 	
 	protected boolean solutionFound;
 	
-	protected int searchedNodes;
-	
 	protected long searchStartMillis;
 	
+	/**
+	 * Action codes generated at every depth, see {@link CActions}; depth 'level' uses [level * MAX_ACTIONS, (level+1) * MAX_ACTIONS).
+	 */
+	protected int[] actionBuffer;
+	
 	@Override
 	protected List<EDirection> think(BoardCompact board) {
 		// INIT SEARCH
 		this.board = board;
 		this.result = new ArrayList<EDirection>();
 		this.solutionFound = false;
-		this.searchedNodes = 0;		
+		
+		int searchLevel = 13; // the number marks how deep we will search (the longest plan we will consider)
+		this.actionBuffer = new int[(searchLevel+1) * CActions.MAX_ACTIONS];
 		
 		// FIRE THE SEARCH
 		
 		searchStartMillis = System.currentTimeMillis();
 		
-		dfs(13); // the number marks how deep we will search (the longest plan we will consider)
+		dfs(searchLevel);
 
 		long searchTime = System.currentTimeMillis() - searchStartMillis;
         
         if (verbose) {
             System.out.println("SEARCH TOOK:   " + searchTime + " ms");
-            System.out.println("NODES VISITED: " + searchedNodes);
-            System.out.println("PERFORMANCE:   " + ((double)searchedNodes / (double)searchTime * 1000) + " nodes/sec");
+            System.out.println("METRICS:       " + metrics.snapshot());
             System.out.println("SOLUTION:      " + (result.size() == 0 ? "NOT FOUND" : "FOUND in " + result.size() + " steps"));
             if (result.size() > 0) {
                 System.out.print("STEPS:         ");
@@ -66,25 +71,20 @@ public class DFS1Agent extends ArtificialAgent {
 	private boolean dfs(int level) {
 		if (level <= 0) return false; // DEPTH-LIMITED
 		
-		++searchedNodes;
+		metrics.inc(ECounter.EXPANDED);
+		metrics.set(EGauge.DEPTH, result.size());
 		
 		// COLLECT POSSIBLE ACTIONS
 		
-		List<CAction> actions = new ArrayList<CAction>(4);
+		int first = level * CActions.MAX_ACTIONS;
+		int end = CActions.generate(board, actionBuffer, first);
 		
-		for (CMove move : CMove.getActions()) {
-			if (move.isPossible(board)) {
-				actions.add(move);
-			}
-		}
-		for (CPush push : CPush.getActions()) {
-			if (push.isPossible(board)) {
-				actions.add(push);
-			}
-		}
+		metrics.add(ECounter.GENERATED, end - first);
 		
 		// TRY ACTIONS
-		for (CAction action : actions) {
+		for (int i = first; i < end; ++i) {
+			CAction action = CActions.action(actionBuffer[i]);
+			
 			// PERFORM THE ACTION
 			result.add(action.getDirection());
 			action.perform(board);
@@ -4,12 +4,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import agents.metrics.ECounter;
 import game.actions.EDirection;
 import game.actions.compact.CAction;
-import game.actions.compact.CMove;
-import game.actions.compact.CPush;
+import game.actions.compact.CActions;
 import game.actions.oop.EActionType;
 import game.board.compact.BoardCompact;
 
@@ -28,17 +27,11 @@ public class MTDFS2Agent extends ArtificialAgent {
 	 */
 	protected boolean solutionFound = false;
 
-	/**
-	 * Profiling ... how many nodes we have managed to search.
-	 */
-	protected AtomicInteger searchedNodes = new AtomicInteger();
-	
 	@Override
 	protected List<EDirection> think(BoardCompact board) {
 		// INIT SEARCH
 		this.board = board;
 		this.solutionFound = false;
-		this.searchedNodes.set(0);
 		
 		// SEARCH CONFIGURATION
 		int spareThreads = 8;
@@ -64,8 +57,7 @@ public class MTDFS2Agent extends ArtificialAgent {
         
         if (verbose) {
             System.out.println("SEARCH TOOK:   " + searchTime + " ms");
-            System.out.println("NODES VISITED: " + searchedNodes);
-            System.out.println("PERFORMANCE:   " + ((double)searchedNodes.get() / (double)searchTime * 1000) + " nodes/sec");
+            System.out.println("METRICS:       " + metrics.snapshot());
             System.out.println("SOLUTION:      " + (result.size() == 0 ? "NOT FOUND" : "FOUND in " + result.size() + " steps"));
             if (result.size() > 0) {
                 System.out.print("STEPS:         ");
@@ -97,6 +89,11 @@ public class MTDFS2Agent extends ArtificialAgent {
 		private int level;
 
 		private int spareThreads;
+		
+		/**
+		 * Action codes generated at every depth, see {@link CActions}; depth 'level' uses [level * MAX_ACTIONS, (level+1) * MAX_ACTIONS).
+		 */
+		private int[] actionBuffer;
 
 		private EDirection previousMove;
 		
@@ -105,11 +102,21 @@ public class MTDFS2Agent extends ArtificialAgent {
 			this.board = board;
 			this.level = level;
 			this.spareThreads = spareThreads;
+			this.actionBuffer = new int[(level+1) * CActions.MAX_ACTIONS];
 			this.previousMove = previousAction;
 		}
 		
 		@Override
 		public void run() {
+			metrics.beginThread();
+			try {
+				search();
+			} finally {
+				metrics.endThread();
+			}
+		}
+		
+		private void search() {
 			if (level <= 0) return; // DEPTH-LIMITED
 			if (MTDFS2Agent.this.solutionFound) return; // SOLUTION ALREADY FOUND IN DIFFERENT THREAD
 			
@@ -119,29 +126,23 @@ public class MTDFS2Agent extends ArtificialAgent {
 				return;
 			}
 			
-			List<CAction> actions = new ArrayList<CAction>(4);
+			int first;
+			int end;
 			
 			// cutoff "single action option"
 			while (true) {
 			
-				for (CPush push : CPush.getActions()) {
-					if (push.isPossible(board)) {
-						actions.add(push);
-					}
-				}
-				for (CMove move : CMove.getActions()) {
-					if (move.getDirection() == previousMove.opposite()) {
-						// DO NOT CONSIDER THE ACTION THE MOVES BACK
-						continue;
-					}
-					if (move.isPossible(board)) {
-						actions.add(move);
-					}
-				}
+				first = level * CActions.MAX_ACTIONS;
+				end = CActions.generatePushes(board, actionBuffer, first);
+				// DO NOT CONSIDER THE ACTION THE MOVES BACK
+				end = CActions.generateMoves(board, actionBuffer, end, previousMove.opposite());
 			
-				if (actions.size() == 1) {
-					this.preActions.add(actions.get(0).getDirection());
-					actions.get(0).perform(board);
+				if (end - first == 1 && level > 1) {
+					CAction action = CActions.action(actionBuffer[first]);
+					this.preActions.add(action.getDirection());
+					action.perform(board);
+					previousMove = CActions.isPush(actionBuffer[first]) ? EDirection.NONE : action.getDirection();
+					--level;
 				} else {
 					break;
 				}
@@ -153,14 +154,15 @@ public class MTDFS2Agent extends ArtificialAgent {
 			Map<DFS2Thread, EDirection> threads = new HashMap<DFS2Thread, EDirection>();
 			
 			// LAUNCH SPARE THREADS, leave some action to be investigated by this thread
-			while (spareThreads > 0 && actions.size() > 1) {
-				EDirection dir = actions.get(0).getDirection();
+			while (spareThreads > 0 && end - first > 1) {
+				CAction action = CActions.action(actionBuffer[first]);
+				EDirection dir = action.getDirection();
 				BoardCompact threadBoard = board.clone();
-				actions.get(0).perform(threadBoard);
+				action.perform(threadBoard);
 				
 				int nextSpareThreads;
 				// DECIDE ON NUMBER OF THREADS GIVEN TO THE NEXT DFSThread TO USE
-				if      (actions.size() == 2) nextSpareThreads = spareThreads-1;
+				if      (end - first == 2) nextSpareThreads = spareThreads-1;
 				else if (spareThreads > 2)    nextSpareThreads = 1;
 				else                          nextSpareThreads = 0;
 				
@@ -171,11 +173,11 @@ public class MTDFS2Agent extends ArtificialAgent {
 				
 				// PREPARE NEXT ITERATION
 				spareThreads = spareThreads - 1 - nextSpareThreads;
-				actions.remove(0);
+				++first;
 			}
 			
 			// DFS THE REST OF ACTIONS
-			dfs(actions, level);
+			dfs(first, end, level);
 			
 			if (solutionFound) {
 				// SOLUTION FOUND HERE...
@@ -215,33 +217,27 @@ public class MTDFS2Agent extends ArtificialAgent {
 				return false; // SOLUTION ALREADY FOUND IN DIFFERENT THREAD
 			}
 			
-			List<CAction> actions = new ArrayList<CAction>(4);
+			int first = level * CActions.MAX_ACTIONS;
+			int end = CActions.generatePushes(board, actionBuffer, first);
+			// DO NOT CONSIDER THE ACTION THE MOVES BACK
+			end = CActions.generateMoves(board, actionBuffer, end, previousMove.opposite());
 			
-			for (CPush push : CPush.getActions()) {
-				if (push.isPossible(board)) {
-					actions.add(push);
-				}
-			}
-			for (CMove move : CMove.getActions()) {
-				if (move.getDirection() == previousMove.opposite()) {
-					// DO NOT CONSIDER THE ACTION THE MOVES BACK
-					continue;
-				}
-				if (move.isPossible(board)) {
-					actions.add(move);
-				}
-			}
-						
-			return dfs(actions, level);
+			return dfs(first, end, level);
 		}
 		
-		private boolean dfs(List<CAction> actions, int level) {
+		/**
+		 * Tries actions with codes actionBuffer[first, end), see {@link CActions}.
+		 */
+		private boolean dfs(int first, int end, int level) {
 			if (level <= 0) return false; // DEPTH-LIMITED
 			
-			MTDFS2Agent.this.searchedNodes.incrementAndGet();
+			metrics.inc(ECounter.EXPANDED);
+			metrics.add(ECounter.GENERATED, end - first);
 			
 			// TRY ACTIONS
-			for (CAction action : actions) {
+			for (int i = first; i < end; ++i) {
+				CAction action = CActions.action(actionBuffer[i]);
+				
 				if (MTDFS2Agent.this.solutionFound) {
 					return false; // SOLUTION ALREADY FOUND IN DIFFERENT THREAD
 				}
@@ -0,0 +1,43 @@
+package agents;
+
+import java.util.List;
+
+import agents.search.PushAStar;
+import game.actions.EDirection;
+import game.board.compact.BoardCompact;
+
+/**
+ * Push-optimal A* agent, see {@link PushAStar}.
+ *
+ * @author Jimmy
+ */
+public class PushAStarAgent extends ArtificialAgent {
+
+	/**
+	 * Portion of the max heap the closed set of the search may grow to.
+	 */
+	protected double memoryPortion = 0.4;
+
+	@Override
+	protected List<EDirection> think(BoardCompact board) {
+		long searchStartMillis = System.currentTimeMillis();
+
+		long budget = (long)(Runtime.getRuntime().maxMemory() * memoryPortion);
+		PushAStar search = new PushAStar(board, getLevelAnalysis(), budget);
+		search.setMetrics(metrics);
+
+		List<EDirection> result = search.search();
+
+		long searchTime = System.currentTimeMillis() - searchStartMillis;
+
+		if (verbose) {
+			System.out.println("SEARCH TOOK:   " + searchTime + " ms");
+			System.out.println("METRICS:       " + metrics.snapshot());
+			System.out.println("SOLUTION:      " + (result == null ? "NOT FOUND" + (search.isOutOfMemory() ? " (OUT OF MEMORY)" : "") : "FOUND in " + result.size() + " steps"));
+			System.out.println("=================");
+		}
+
+		return result;
+	}
+
+}
@@ -1,9 +1,8 @@
 package agents.actions;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import game.actions.EDirection;
 import game.actions.compact.CPush;
@@ -17,6 +16,11 @@ import game.board.compact.CTile;
  * 
  * It produces a list of {@link CWalkPush} via {@link #findActions(BoardCompact)} that are possible to perform.
  * 
+ * REACHABILITY MODE: {@link #findReachable(BoardCompact)} floods the player area without allocating anything
+ * (visited tiles are marked in reusable int[] "stamp" array using generation counter, queue is int[]) and reports
+ * the normalized (top-left) player position; {@link #findPushes(BoardCompact)} then produces {@link CWalkPush} actions
+ * WITHOUT walk paths, reconstruct them lazily via {@link #findPath(BoardCompact, int, int)} only for the pushes you actually use.
+ * 
  * @author Jimmy
  */
 public class ActionsBFS {
@@ -69,7 +73,35 @@ public class ActionsBFS {
 	
 	private CircularArrayQueue<Node> queue;
 	
-	private Set<Node> touched;
+	/**
+	 * stamp[y * width + x] == generation  &lt;=&gt; tile [x;y] was touched by the current BFS.
+	 */
+	private int[] stamp;
+	
+	private int generation = 0;
+	
+	/**
+	 * Width of the board {@link #stamp} is indexed for.
+	 */
+	private int stampWidth;
+	
+	/**
+	 * Reachability queue; once {@link #findReachable(BoardCompact)} finishes, the first {@link #reachableCount} entries hold the reachable area.
+	 */
+	private int[] queueX;
+	
+	private int[] queueY;
+	
+	private int reachableCount;
+	
+	private int normalizedX;
+	
+	private int normalizedY;
+	
+	/**
+	 * {@link EDirection#index} of the move that led into the tile during {@link #findPath(BoardCompact, int, int)}. 
+	 */
+	private byte[] moveInto;
 	
 	public boolean depthLimitHit = false;
 	
@@ -91,20 +123,16 @@ public class ActionsBFS {
 			queue.ensureCapacity(board.width() * board.height());
 		}
 		
-		if (touched == null) {
-			touched = new HashSet<Node>();
-		} else {
-			touched.clear();
-		}
+		nextGeneration(board);
 				
 		Node first = new Node(board.playerX, board.playerY, 0, null);
 		
 		// Variant A) include the first node into the result => generate "pushes" from the current player location as well
 		queue.enqueue(first);
-		touched.add(first);
+		touch(first.x, first.y);
 		
 		// Variant B) do not include the first node into the result
-		//touched.add(first);
+		//touch(first.x, first.y);
 		//expand(board, first);
 		
 		while (!queue.isEmpty()) {
@@ -131,15 +159,13 @@ public class ActionsBFS {
 //					System.out.println("???");
 //					CTile.isWalkable(board.tile(node.x+dir.dX, node.y+dir.dY));
 //				}
-				Node next = new Node(node.x+dir.dX, node.y+dir.dY, node, dir);
-				if (touched.contains(next)) {
+				if (!touch(node.x+dir.dX, node.y+dir.dY)) {
 					// already probed
 					continue;
 				}
 				
 				// ADD NODE TO QUEUE
-				touched.add(next);
-				queue.enqueue(next);
+				queue.enqueue(new Node(node.x+dir.dX, node.y+dir.dY, node, dir));
 			}
 		}
 	}
@@ -171,6 +197,248 @@ public class ActionsBFS {
 		}
 	}
 
+	// =================
+	// REACHABILITY MODE
+	// =================
+	
+	/**
+	 * Floods the area reachable by the player; allocation-free (once the internal arrays are big enough for the board).
+	 * 
+	 * Afterwards, query the area via {@link #isReachable(int, int)}, {@link #getReachableCount()}, {@link #getReachableX(int)}, {@link #getReachableY(int)}.
+	 * 
+	 * @param board
+	 * @return normalized player position == index (y * width + x) of the top-left-most reachable tile; the same for all player positions within the area
+	 */
+	public int findReachable(BoardCompact board) {
+		nextGeneration(board);
+		
+		int[] qx = queueX;
+		int[] qy = queueY;
+		int head = 0;
+		int tail = 0;
+		int width = board.width();
+		int height = board.height();
+		
+		qx[tail] = board.playerX;
+		qy[tail] = board.playerY;
+		++tail;
+		touch(board.playerX, board.playerY);
+		
+		int minIndex = board.playerY * stampWidth + board.playerX;
+		
+		while (head < tail) {
+			int x = qx[head];
+			int y = qy[head];
+			++head;
+			
+			int index = y * stampWidth + x;
+			if (index < minIndex) minIndex = index;
+			
+			// UP, RIGHT, DOWN, LEFT unrolled
+			if (y > 0        && CTile.isWalkable(board.tile(x, y-1)) && touch(x, y-1)) { qx[tail] = x;   qy[tail] = y-1; ++tail; }
+			if (x < width-1  && CTile.isWalkable(board.tile(x+1, y)) && touch(x+1, y)) { qx[tail] = x+1; qy[tail] = y;   ++tail; }
+			if (y < height-1 && CTile.isWalkable(board.tile(x, y+1)) && touch(x, y+1)) { qx[tail] = x;   qy[tail] = y+1; ++tail; }
+			if (x > 0        && CTile.isWalkable(board.tile(x-1, y)) && touch(x-1, y)) { qx[tail] = x-1; qy[tail] = y;   ++tail; }
+		}
+		
+		reachableCount = tail;
+		normalizedX = minIndex % stampWidth;
+		normalizedY = minIndex / stampWidth;
+		
+		return minIndex;
+	}
+	
+	/**
+	 * Whether [x;y] has been reached during the last {@link #findReachable(BoardCompact)}.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isReachable(int x, int y) {
+		return stamp[y * stampWidth + x] == generation;
+	}
+	
+	/**
+	 * Number of tiles reachable during the last {@link #findReachable(BoardCompact)}.
+	 * @return
+	 */
+	public int getReachableCount() {
+		return reachableCount;
+	}
+	
+	/**
+	 * X of the 'i'-th reachable tile (0 &lt;= i &lt; {@link #getReachableCount()}), BFS order.
+	 * @param i
+	 * @return
+	 */
+	public int getReachableX(int i) {
+		return queueX[i];
+	}
+	
+	/**
+	 * Y of the 'i'-th reachable tile (0 &lt;= i &lt; {@link #getReachableCount()}), BFS order.
+	 * @param i
+	 * @return
+	 */
+	public int getReachableY(int i) {
+		return queueY[i];
+	}
+	
+	/**
+	 * X of the top-left-most tile found by the last {@link #findReachable(BoardCompact)}.
+	 * @return
+	 */
+	public int getNormalizedX() {
+		return normalizedX;
+	}
+	
+	/**
+	 * Y of the top-left-most tile found by the last {@link #findReachable(BoardCompact)}.
+	 * @return
+	 */
+	public int getNormalizedY() {
+		return normalizedY;
+	}
+	
+	/**
+	 * Produces all "walk-to-the-box-and-push" actions like {@link #findActions(BoardCompact)} but WITHOUT paths,
+	 * i.e., {@link CWalk} parts are teleports ({@link CWalk#getDirections()} is null); use {@link #findPath(BoardCompact, int, int)}
+	 * to get the path for the pushes you actually use.
+	 * 
+	 * Calls {@link #findReachable(BoardCompact)} first, so reachability queries are valid afterwards.
+	 *  
+	 * @param board
+	 * @return
+	 */
+	public List<CWalkPush> findPushes(BoardCompact board) {
+		findReachable(board);
+		
+		List<CWalkPush> result = new ArrayList<CWalkPush>();
+		
+		for (int i = 0; i < reachableCount; ++i) {
+			int x = queueX[i];
+			int y = queueY[i];
+			CWalk walk = null;
+			for (EDirection dir : EDirection.arrows()) {
+				if (CPush.isPushPossibleIgnorePlayer(board, x, y, dir)) {
+					if (walk == null) walk = new CWalk(x, y);
+					result.add(new CWalkPush(walk, CPush.getAction(dir)));
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Finds the shortest walk (no pushes) of the player from [board.playerX;board.playerY] to [targetX;targetY].
+	 * 
+	 * NOTE: invalidates results of the last {@link #findReachable(BoardCompact)}.
+	 * 
+	 * @param board
+	 * @param targetX
+	 * @param targetY
+	 * @return moves to perform (empty if the player is already there) or null if [targetX;targetY] is not reachable
+	 */
+	public EDirection[] findPath(BoardCompact board, int targetX, int targetY) {
+		if (board.playerX == targetX && board.playerY == targetY) return new EDirection[0];
+		
+		nextGeneration(board);
+		
+		int[] qx = queueX;
+		int[] qy = queueY;
+		int head = 0;
+		int tail = 0;
+		
+		qx[tail] = board.playerX;
+		qy[tail] = board.playerY;
+		++tail;
+		touch(board.playerX, board.playerY);
+		
+		EDirection[] arrows = EDirection.arrows();
+		
+		while (head < tail) {
+			int x = qx[head];
+			int y = qy[head];
+			++head;
+			
+			for (EDirection dir : arrows) {
+				int nx = x + dir.dX;
+				int ny = y + dir.dY;
+				if (nx < 0 || ny < 0 || nx >= board.width() || ny >= board.height()) continue;
+				if (!CTile.isWalkable(board.tile(nx, ny)) || !touch(nx, ny)) continue;
+				moveInto[ny * stampWidth + nx] = (byte)dir.index;
+				if (nx == targetX && ny == targetY) {
+					reachableCount = 0;
+					return backtrack(board, targetX, targetY);
+				}
+				qx[tail] = nx;
+				qy[tail] = ny;
+				++tail;
+			}
+		}
+		
+		reachableCount = 0;
+		return null;
+	}
+	
+	private EDirection[] backtrack(BoardCompact board, int targetX, int targetY) {
+		int length = 0;
+		int x = targetX;
+		int y = targetY;
+		while (x != board.playerX || y != board.playerY) {
+			EDirection dir = EDirection.forIndex(moveInto[y * stampWidth + x]);
+			x -= dir.dX;
+			y -= dir.dY;
+			++length;
+		}
+		
+		EDirection[] result = new EDirection[length];
+		x = targetX;
+		y = targetY;
+		while (length > 0) {
+			EDirection dir = EDirection.forIndex(moveInto[y * stampWidth + x]);
+			result[--length] = dir;
+			x -= dir.dX;
+			y -= dir.dY;
+		}
+		return result;
+	}
+	
+	/**
+	 * Starts new BFS: moves to the next {@link #generation} so all tiles become untouched, (re)allocating arrays if the board does not fit.
+	 * @param board
+	 */
+	private void nextGeneration(BoardCompact board) {
+		int tiles = board.width() * board.height();
+		if (stamp == null || stamp.length < tiles || stampWidth != board.width()) {
+			stamp = new int[tiles];
+			queueX = new int[tiles];
+			queueY = new int[tiles];
+			moveInto = new byte[tiles];
+			stampWidth = board.width();
+			generation = 0;
+		}
+		++generation;
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(stamp, 0);
+			generation = 1;
+		}
+	}
+	
+	/**
+	 * Marks [x;y] as touched by the current BFS.
+	 * @param x
+	 * @param y
+	 * @return true if the tile has not been touched before, false otherwise
+	 */
+	private boolean touch(int x, int y) {
+		int index = y * stampWidth + x;
+		if (stamp[index] == generation) return false;
+		stamp[index] = generation;
+		return true;
+	}
+	
 	private static boolean isTarget(BoardCompact board, Node node) {
 		// moveable box around
 		return    isMovableBoxAt(board, node.x-1, node.y, EDirection.LEFT) 
@@ -0,0 +1,375 @@
+package agents.analysis;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import game.actions.EDirection;
+import game.board.compact.BoardCompact;
+import game.board.compact.CTile;
+import game.board.oop.EEntity;
+
+/**
+ * Facts derived from the STATIC part of the level (walls and box places) only, i.e., the same for every state of the level:
+ * <ul>
+ * <li>{@link #goalCells} - box places;</li>
+ * <li>{@link #isDead(int)} - dead squares, i.e., tiles from which the box cannot be pushed to any goal (computed by "pulling" boxes from goals backwards);</li>
+ * <li>{@link #isTunnel(int)} - non-wall tiles with walls on both sides (either left+right or up+down);</li>
+ * <li>{@link #getGoalRoom(int)} - goal rooms, i.e., groups of goals that neighbour each other;</li>
+ * <li>{@link #getPushDistance(int, int)} - minimal number of pushes to get a box from the tile to the given goal (other boxes ignored).</li>
+ * </ul>
+ *
+ * Tiles are addressed by cell index <code>y * width + x</code>, see {@link #cell(int, int)}.
+ *
+ * Analysis is memoized by the static layout of the level, use {@link #get(BoardCompact)} (or {@link agents.ArtificialAgent#getLevelAnalysis()})
+ * so the same level replayed many times is analysed only once per JVM. Instances are immutable and can be shared between threads.
+ *
+ * @author Jimmy
+ */
+public class LevelAnalysis {
+
+	/**
+	 * Distance for tiles from which the goal cannot be reached.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * Once the cache holds this many levels, it is flushed.
+	 */
+	private static final int MAX_CACHED_LEVELS = 1024;
+
+	private static final Map<StaticLayout, LevelAnalysis> CACHE = new ConcurrentHashMap<StaticLayout, LevelAnalysis>();
+
+	public final int width;
+
+	public final int height;
+
+	/**
+	 * Cell indices of box places, ascending.
+	 */
+	public final int[] goalCells;
+
+	private final boolean[] wall;
+
+	private final boolean[] dead;
+
+	private final boolean[] tunnel;
+
+	/**
+	 * Index into {@link #goalCells} per cell, -1 if the cell is not a goal.
+	 */
+	private final int[] goalIndex;
+
+	/**
+	 * Goal room id per cell, -1 if the cell is not a goal.
+	 */
+	private final int[] goalRoom;
+
+	private final int[] goalRoomSizes;
+
+	/**
+	 * [goal index][cell] -> pushes.
+	 */
+	private final int[][] pushDistance;
+
+	/**
+	 * [cell] -> pushes to the nearest goal.
+	 */
+	private final int[] minPushDistance;
+
+	// =====
+	// CACHE
+	// =====
+
+	/**
+	 * Returns (memoized) analysis of the level 'board' is in; entities (player, boxes) are ignored.
+	 * @param board
+	 * @return
+	 */
+	public static LevelAnalysis get(BoardCompact board) {
+		StaticLayout layout = new StaticLayout(board);
+		LevelAnalysis result = CACHE.get(layout);
+		if (result != null) return result;
+		result = new LevelAnalysis(board);
+		if (CACHE.size() >= MAX_CACHED_LEVELS) CACHE.clear();
+		LevelAnalysis previous = CACHE.putIfAbsent(layout, result);
+		return previous != null ? previous : result;
+	}
+
+	/**
+	 * Drops all memoized analyses.
+	 */
+	public static void clearCache() {
+		CACHE.clear();
+	}
+
+	/**
+	 * Static flags of all tiles (entities stripped, see {@link BoardCompact#unsetState(game.board.minimal.StateMinimal)}); key of the {@link #CACHE}.
+	 */
+	private static class StaticLayout {
+
+		private final int width;
+
+		private final int[] flags;
+
+		private final int hash;
+
+		public StaticLayout(BoardCompact board) {
+			width = board.width();
+			flags = new int[board.width() * board.height()];
+			for (int y = 0; y < board.height(); ++y) {
+				for (int x = 0; x < width; ++x) {
+					flags[y * width + x] = board.tile(x, y) & EEntity.NULLIFY_ENTITY_FLAG;
+				}
+			}
+			hash = 31 * width + Arrays.hashCode(flags);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof StaticLayout)) return false;
+			StaticLayout other = (StaticLayout) obj;
+			return hash == other.hash && width == other.width && Arrays.equals(flags, other.flags);
+		}
+
+	}
+
+	// ========
+	// ANALYSIS
+	// ========
+
+	/**
+	 * Analyses 'board' right away, bypassing the cache; prefer {@link #get(BoardCompact)}.
+	 * @param board
+	 */
+	public LevelAnalysis(BoardCompact board) {
+		width = board.width();
+		height = board.height();
+		int cells = width * height;
+
+		wall = new boolean[cells];
+		goalIndex = new int[cells];
+		Arrays.fill(goalIndex, -1);
+
+		int goals = 0;
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				int tile = board.tile(x, y);
+				wall[y * width + x] = CTile.isWall(tile);
+				if (CTile.forSomeBox(tile)) ++goals;
+			}
+		}
+		goalCells = new int[goals];
+		goals = 0;
+		for (int cell = 0; cell < cells; ++cell) {
+			if (CTile.forSomeBox(board.tile(cell % width, cell / width))) {
+				goalIndex[cell] = goals;
+				goalCells[goals++] = cell;
+			}
+		}
+
+		// PUSH DISTANCES + DEAD SQUARES
+		pushDistance = new int[goalCells.length][];
+		minPushDistance = new int[cells];
+		Arrays.fill(minPushDistance, UNREACHABLE);
+		int[] queue = new int[cells];
+		for (int g = 0; g < goalCells.length; ++g) {
+			pushDistance[g] = computePullDistances(goalCells[g], queue);
+			for (int cell = 0; cell < cells; ++cell) {
+				if (pushDistance[g][cell] < minPushDistance[cell]) minPushDistance[cell] = pushDistance[g][cell];
+			}
+		}
+		dead = new boolean[cells];
+		for (int cell = 0; cell < cells; ++cell) {
+			dead[cell] = !wall[cell] && minPushDistance[cell] == UNREACHABLE;
+		}
+
+		// TUNNELS
+		tunnel = new boolean[cells];
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				if (isWall(x, y)) continue;
+				boolean horizontal = isWall(x, y-1) && isWall(x, y+1);
+				boolean vertical = isWall(x-1, y) && isWall(x+1, y);
+				tunnel[y * width + x] = horizontal || vertical;
+			}
+		}
+
+		// GOAL ROOMS
+		goalRoom = new int[cells];
+		Arrays.fill(goalRoom, -1);
+		int rooms = 0;
+		int[] sizes = new int[goalCells.length];
+		for (int goal : goalCells) {
+			if (goalRoom[goal] >= 0) continue;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = goal;
+			goalRoom[goal] = rooms;
+			while (head < tail) {
+				int cell = queue[head++];
+				++sizes[rooms];
+				for (EDirection dir : EDirection.arrows()) {
+					int next = neighbour(cell, dir);
+					if (next < 0 || goalIndex[next] < 0 || goalRoom[next] >= 0) continue;
+					goalRoom[next] = rooms;
+					queue[tail++] = next;
+				}
+			}
+			++rooms;
+		}
+		goalRoomSizes = Arrays.copyOf(sizes, rooms);
+	}
+
+	/**
+	 * BFS "pulling" the box away from 'goal': box can get from 'cell' to 'cell + dir' by a pull
+	 * iff both 'cell + dir' and 'cell + 2*dir' (where the player stands) are not walls.
+	 */
+	private int[] computePullDistances(int goal, int[] queue) {
+		int[] result = new int[width * height];
+		Arrays.fill(result, UNREACHABLE);
+
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = goal;
+		result[goal] = 0;
+
+		while (head < tail) {
+			int cell = queue[head++];
+			for (EDirection dir : EDirection.arrows()) {
+				int next = neighbour(cell, dir);
+				if (next < 0 || wall[next] || result[next] != UNREACHABLE) continue;
+				int player = neighbour(next, dir);
+				if (player < 0 || wall[player]) continue;
+				result[next] = result[cell] + 1;
+				queue[tail++] = next;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Cell next to 'cell' in 'dir' or -1 if outside the board.
+	 */
+	private int neighbour(int cell, EDirection dir) {
+		int x = cell % width + dir.dX;
+		int y = cell / width + dir.dY;
+		if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+		return y * width + x;
+	}
+
+	// =====
+	// QUERY
+	// =====
+
+	/**
+	 * Cell index of [x;y].
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int cell(int x, int y) {
+		return y * width + x;
+	}
+
+	/**
+	 * Outside of the board counts as wall.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isWall(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) return true;
+		return wall[y * width + x];
+	}
+
+	public boolean isGoal(int cell) {
+		return goalIndex[cell] >= 0;
+	}
+
+	/**
+	 * Index of the goal into {@link #goalCells} or -1 if 'cell' is not a goal.
+	 * @param cell
+	 * @return
+	 */
+	public int getGoalIndex(int cell) {
+		return goalIndex[cell];
+	}
+
+	/**
+	 * Box pushed to 'cell' can never reach any goal.
+	 * @param cell
+	 * @return
+	 */
+	public boolean isDead(int cell) {
+		return dead[cell];
+	}
+
+	public boolean isDead(int x, int y) {
+		return dead[y * width + x];
+	}
+
+	/**
+	 * Non-wall 'cell' with walls on both sides.
+	 * @param cell
+	 * @return
+	 */
+	public boolean isTunnel(int cell) {
+		return tunnel[cell];
+	}
+
+	/**
+	 * Id of the goal room 'cell' belongs to or -1 if it is not a goal.
+	 * @param cell
+	 * @return
+	 */
+	public int getGoalRoom(int cell) {
+		return goalRoom[cell];
+	}
+
+	public int getGoalRoomCount() {
+		return goalRoomSizes.length;
+	}
+
+	/**
+	 * Number of goals within the goal room 'room'.
+	 * @param room
+	 * @return
+	 */
+	public int getGoalRoomSize(int room) {
+		return goalRoomSizes[room];
+	}
+
+	/**
+	 * Minimal number of pushes to get the box from 'cell' to 'goal'-th goal (see {@link #goalCells}), ignoring other boxes;
+	 * {@link #UNREACHABLE} if impossible.
+	 * @param goal
+	 * @param cell
+	 * @return
+	 */
+	public int getPushDistance(int goal, int cell) {
+		return pushDistance[goal][cell];
+	}
+
+	/**
+	 * {@link #getPushDistance(int, int)} to the nearest goal.
+	 * @param cell
+	 * @return
+	 */
+	public int getMinPushDistance(int cell) {
+		return minPushDistance[cell];
+	}
+
+	@Override
+	public String toString() {
+		return "LevelAnalysis[" + width + "x" + height + ", goals " + goalCells.length + ", goal rooms " + goalRoomSizes.length + "]";
+	}
+
+}
@@ -0,0 +1,238 @@
+package agents.heuristics;
+
+import java.util.Arrays;
+
+import agents.analysis.LevelAnalysis;
+
+/**
+ * Lower bound on the number of pushes needed to solve the level: minimum-cost perfect matching of boxes to goals,
+ * where the cost is the true push distance ({@link LevelAnalysis#getPushDistance(int, int)}, other boxes ignored).
+ *
+ * Unlike "sum of distances to the nearest goal", no two boxes can claim the same goal, so the bound is tighter; if boxes cannot be matched
+ * to goals at all, {@link #DEADLOCK} is reported.
+ *
+ * Matching is computed by Hungarian algorithm (potentials + augmenting paths, O(n^2 m)) over box x goal matrix that is padded
+ * by zero-cost dummy rows to be square. {@link #moveBox(int, int)} updates the matching after a single box moved in O(n m)
+ * by re-augmenting just that row. Use {@link #copyFrom(HungarianHeuristic)} to carry the matching from the parent to the child state
+ * without allocations.
+ *
+ * Not thread-safe.
+ *
+ * @author Jimmy
+ */
+public class HungarianHeuristic {
+
+	/**
+	 * Returned if there is no matching of boxes to goals, i.e., the state is a deadlock.
+	 */
+	public static final int DEADLOCK = Integer.MAX_VALUE;
+
+	/**
+	 * Cost of the box-goal pair the box cannot be pushed to; bigger than any sum of real push distances.
+	 */
+	private static final long INF_COST = 1L << 40;
+
+	private static final long INF = Long.MAX_VALUE / 4;
+
+	private final LevelAnalysis analysis;
+
+	/**
+	 * Number of real rows (boxes).
+	 */
+	private int boxes;
+
+	/**
+	 * Matrix size (number of goals); rows boxes+1..size are dummy.
+	 */
+	private final int size;
+
+	/**
+	 * Cell of the box per row, 1-based (0 unused).
+	 */
+	private int[] boxCells;
+
+	// 1-based as in the textbook formulation, index 0 is the virtual row / column
+
+	private final long[] u;
+
+	private final long[] v;
+
+	/**
+	 * Row assigned to the column.
+	 */
+	private final int[] p;
+
+	private final int[] way;
+
+	private final long[] minv;
+
+	private final boolean[] used;
+
+	private int estimate;
+
+	public HungarianHeuristic(LevelAnalysis analysis, int boxes) {
+		this.analysis = analysis;
+		this.boxes = boxes;
+		this.size = analysis.goalCells.length;
+		if (boxes > size) throw new RuntimeException("More boxes (" + boxes + ") than goals (" + size + "), cannot match.");
+
+		boxCells = new int[size + 1];
+		u = new long[size + 1];
+		v = new long[size + 1];
+		p = new int[size + 1];
+		way = new int[size + 1];
+		minv = new long[size + 1];
+		used = new boolean[size + 1];
+	}
+
+	/**
+	 * Computes the matching from scratch.
+	 * @param cells cells of all boxes (see {@link LevelAnalysis#cell(int, int)}), exactly 'boxes' of them
+	 * @return {@link #getEstimate()}
+	 */
+	public int init(int[] cells) {
+		if (cells.length != boxes) throw new RuntimeException("Expected " + boxes + " box cells, got " + cells.length + ".");
+
+		System.arraycopy(cells, 0, boxCells, 1, boxes);
+		Arrays.fill(u, 0);
+		Arrays.fill(v, 0);
+		Arrays.fill(p, 0);
+
+		for (int row = 1; row <= size; ++row) {
+			augment(row);
+		}
+
+		return estimate = computeEstimate();
+	}
+
+	/**
+	 * Updates the matching after the 'box'-th box (0-based, same order as passed to {@link #init(int[])}) moved to 'cell'.
+	 * @param box
+	 * @param cell
+	 * @return {@link #getEstimate()}
+	 */
+	public int moveBox(int box, int cell) {
+		int row = box + 1;
+		boxCells[row] = cell;
+
+		// unassign the row
+		for (int col = 1; col <= size; ++col) {
+			if (p[col] == row) {
+				p[col] = 0;
+				break;
+			}
+		}
+
+		// make the row dual-feasible again (other rows are untouched, so the rest of the matching stays optimal)
+		long min = INF;
+		for (int col = 1; col <= size; ++col) {
+			long reduced = cost(row, col) - v[col];
+			if (reduced < min) min = reduced;
+		}
+		u[row] = min;
+
+		augment(row);
+
+		return estimate = computeEstimate();
+	}
+
+	/**
+	 * Copies the whole matching state of 'other' (must be built for the same level and box count).
+	 * @param other
+	 */
+	public void copyFrom(HungarianHeuristic other) {
+		if (other.size != size || other.boxes != boxes) throw new RuntimeException("Cannot copy matching of different dimensions.");
+		System.arraycopy(other.boxCells, 0, boxCells, 0, boxCells.length);
+		System.arraycopy(other.u, 0, u, 0, u.length);
+		System.arraycopy(other.v, 0, v, 0, v.length);
+		System.arraycopy(other.p, 0, p, 0, p.length);
+		estimate = other.estimate;
+	}
+
+	/**
+	 * Minimal number of pushes to finish the level (lower bound) or {@link #DEADLOCK}.
+	 * @return
+	 */
+	public int getEstimate() {
+		return estimate;
+	}
+
+	public boolean isDeadlock() {
+		return estimate == DEADLOCK;
+	}
+
+	/**
+	 * Goal index (into {@link LevelAnalysis#goalCells}) the 'box'-th box is matched to.
+	 * @param box
+	 * @return
+	 */
+	public int getMatchedGoal(int box) {
+		int row = box + 1;
+		for (int col = 1; col <= size; ++col) {
+			if (p[col] == row) return col - 1;
+		}
+		return -1;
+	}
+
+	// =========
+	// INTERNALS
+	// =========
+
+	private long cost(int row, int col) {
+		if (row > boxes) return 0;
+		int distance = analysis.getPushDistance(col - 1, boxCells[row]);
+		return distance == LevelAnalysis.UNREACHABLE ? INF_COST : distance;
+	}
+
+	/**
+	 * Finds the shortest augmenting path from the free 'row' and flips it, adjusting potentials so all assigned pairs stay tight.
+	 */
+	private void augment(int row) {
+		p[0] = row;
+		int col0 = 0;
+		Arrays.fill(minv, INF);
+		Arrays.fill(used, false);
+		do {
+			used[col0] = true;
+			int row0 = p[col0];
+			long delta = INF;
+			int col1 = 0;
+			for (int col = 1; col <= size; ++col) {
+				if (used[col]) continue;
+				long cur = cost(row0, col) - u[row0] - v[col];
+				if (cur < minv[col]) {
+					minv[col] = cur;
+					way[col] = col0;
+				}
+				if (minv[col] < delta) {
+					delta = minv[col];
+					col1 = col;
+				}
+			}
+			for (int col = 0; col <= size; ++col) {
+				if (used[col]) {
+					u[p[col]] += delta;
+					v[col] -= delta;
+				} else {
+					minv[col] -= delta;
+				}
+			}
+			col0 = col1;
+		} while (p[col0] != 0);
+		do {
+			int col1 = way[col0];
+			p[col0] = p[col1];
+			col0 = col1;
+		} while (col0 != 0);
+	}
+
+	private int computeEstimate() {
+		long total = 0;
+		for (int col = 1; col <= size; ++col) {
+			if (p[col] > boxes) continue;
+			total += cost(p[col], col);
+		}
+		return total >= INF_COST ? DEADLOCK : (int)total;
+	}
+
+}
@@ -0,0 +1,36 @@
+package agents.metrics;
+
+/**
+ * Monotonic counters of {@link SearchMetrics}.
+ * 
+ * @author Jimmy
+ */
+public enum ECounter {
+	
+	/**
+	 * Search nodes whose successors were generated.
+	 */
+	EXPANDED("expanded"),
+	
+	/**
+	 * Successors generated by expansions.
+	 */
+	GENERATED("generated"),
+	
+	/**
+	 * Generated successors dropped as already seen (closed set / transposition table hits).
+	 */
+	DUPLICATES("duplicates"),
+	
+	/**
+	 * Generated successors dropped as deadlocked (dead squares, frozen boxes, infinite heuristic, ...).
+	 */
+	DEADLOCK_PRUNED("deadlockPruned");
+	
+	public final String name;
+	
+	private ECounter(String name) {
+		this.name = name;
+	}
+	
+}
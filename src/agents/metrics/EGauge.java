@@ -0,0 +1,31 @@
+package agents.metrics;
+
+/**
+ * Current-value figures of {@link SearchMetrics}; the maximum ever set is kept as well.
+ * 
+ * @author Jimmy
+ */
+public enum EGauge {
+	
+	/**
+	 * Nodes waiting for the expansion (open list / frontier).
+	 */
+	OPEN_SIZE("open"),
+	
+	/**
+	 * Nodes stored as seen (closed set / transposition table).
+	 */
+	CLOSED_SIZE("closed"),
+	
+	/**
+	 * Length of the current search path (DFS); not comparable to {@link #OPEN_SIZE}.
+	 */
+	DEPTH("depth");
+	
+	public final String name;
+	
+	private EGauge(String name) {
+		this.name = name;
+	}
+	
+}
@@ -0,0 +1,91 @@
+package agents.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Daemon thread taking {@link SearchMetrics#snapshot()} every 'periodMillis' so the progress of the search can be followed over time
+ * (e.g., nodes/sec or allocation rate dropping as the closed set grows); optionally prints rates of every period.
+ * 
+ * @author Jimmy
+ */
+public class MetricsSampler extends Thread {
+
+	public static final long DEFAULT_PERIOD_MILLIS = 1000;
+	
+	private final SearchMetrics metrics;
+	
+	private final long periodMillis;
+	
+	/**
+	 * Where to print samples; null == do not print.
+	 */
+	private final PrintStream out;
+	
+	private final List<MetricsSnapshot> samples = new ArrayList<MetricsSnapshot>();
+	
+	private volatile boolean shouldRun = true;
+	
+	public MetricsSampler(SearchMetrics metrics, long periodMillis, PrintStream out) {
+		super("MetricsSampler");
+		setDaemon(true);
+		this.metrics = metrics;
+		this.periodMillis = periodMillis;
+		this.out = out;
+	}
+	
+	@Override
+	public void run() {
+		while (shouldRun) {
+			try {
+				Thread.sleep(periodMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (!shouldRun) return;
+			sample();
+		}
+	}
+	
+	private void sample() {
+		MetricsSnapshot snapshot = metrics.snapshot();
+		MetricsSnapshot previous;
+		synchronized(samples) {
+			previous = samples.size() == 0 ? null : samples.get(samples.size() - 1);
+			samples.add(snapshot);
+		}
+		if (out != null) {
+			out.printf("[%6d ms] expanded %d (%d nodes/s), open %d, closed %d, allocating %d MB/s\n",
+				snapshot.getElapsedMillis(), snapshot.get(ECounter.EXPANDED),
+				previous == null ? snapshot.getNodesPerSecond() : snapshot.getNodesPerSecondSince(previous),
+				snapshot.get(EGauge.OPEN_SIZE), snapshot.get(EGauge.CLOSED_SIZE),
+				(previous == null ? snapshot.getAllocationBytesPerSecond() : snapshot.getAllocationBytesPerSecondSince(previous)) >> 20);
+		}
+	}
+	
+	/**
+	 * Stops sampling and takes the last sample.
+	 * @return the last sample
+	 */
+	public MetricsSnapshot stopSampling() {
+		shouldRun = false;
+		interrupt();
+		MetricsSnapshot last = metrics.snapshot();
+		synchronized(samples) {
+			samples.add(last);
+		}
+		return last;
+	}
+	
+	/**
+	 * Samples taken so far, the oldest first.
+	 * @return
+	 */
+	public List<MetricsSnapshot> getSamples() {
+		synchronized(samples) {
+			return new ArrayList<MetricsSnapshot>(samples);
+		}
+	}
+	
+}
@@ -0,0 +1,120 @@
+package agents.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Figures of {@link SearchMetrics} at one moment, see {@link SearchMetrics#snapshot()}.
+ * 
+ * @author Jimmy
+ */
+public class MetricsSnapshot {
+
+	/**
+	 * Time since {@link SearchMetrics#reset()}.
+	 */
+	public final long elapsedNanos;
+	
+	private final long[] counters;
+	
+	private final long[] gauges;
+	
+	private final long[] gaugeMax;
+	
+	/**
+	 * Phase name -> nanos spent in it.
+	 */
+	public final Map<String, Long> phaseNanos;
+	
+	/**
+	 * See {@link SearchMetrics#getAllocatedBytes()}.
+	 */
+	public final long allocatedBytes;
+	
+	public MetricsSnapshot(long elapsedNanos, long[] counters, long[] gauges, long[] gaugeMax, Map<String, Long> phaseNanos, long allocatedBytes) {
+		this.elapsedNanos = elapsedNanos;
+		this.counters = counters;
+		this.gauges = gauges;
+		this.gaugeMax = gaugeMax;
+		this.phaseNanos = Collections.unmodifiableMap(phaseNanos);
+		this.allocatedBytes = allocatedBytes;
+	}
+	
+	public long get(ECounter counter) {
+		return counters[counter.ordinal()];
+	}
+	
+	public long get(EGauge gauge) {
+		return gauges[gauge.ordinal()];
+	}
+	
+	public long getMax(EGauge gauge) {
+		return gaugeMax[gauge.ordinal()];
+	}
+	
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+	
+	public long getPhaseMillis(String phase) {
+		Long nanos = phaseNanos.get(phase);
+		return nanos == null ? 0 : nanos / 1000000;
+	}
+	
+	/**
+	 * {@link ECounter#EXPANDED} per second of {@link #elapsedNanos}.
+	 * @return
+	 */
+	public long getNodesPerSecond() {
+		return perSecond(get(ECounter.EXPANDED), elapsedNanos);
+	}
+	
+	/**
+	 * {@link #allocatedBytes} per second of {@link #elapsedNanos}.
+	 * @return
+	 */
+	public long getAllocationBytesPerSecond() {
+		return perSecond(allocatedBytes, elapsedNanos);
+	}
+	
+	private static long perSecond(long amount, long nanos) {
+		return nanos <= 0 ? 0 : (long)(amount * 1000000000.0 / nanos);
+	}
+	
+	/**
+	 * {@link ECounter#EXPANDED} per second between the 'previous' snapshot of the same {@link SearchMetrics} and this one.
+	 * @param previous
+	 * @return
+	 */
+	public long getNodesPerSecondSince(MetricsSnapshot previous) {
+		return perSecond(get(ECounter.EXPANDED) - previous.get(ECounter.EXPANDED), elapsedNanos - previous.elapsedNanos);
+	}
+	
+	/**
+	 * {@link #allocatedBytes} per second between the 'previous' snapshot of the same {@link SearchMetrics} and this one.
+	 * @param previous
+	 * @return
+	 */
+	public long getAllocationBytesPerSecondSince(MetricsSnapshot previous) {
+		return perSecond(Math.max(0, allocatedBytes - previous.allocatedBytes), elapsedNanos - previous.elapsedNanos);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(getElapsedMillis()).append(" ms");
+		for (ECounter counter : ECounter.values()) {
+			sb.append(", ").append(counter.name).append("=").append(get(counter));
+		}
+		sb.append(", nodes/s=").append(getNodesPerSecond());
+		for (EGauge gauge : EGauge.values()) {
+			sb.append(", ").append(gauge.name).append("=").append(get(gauge)).append(" (max ").append(getMax(gauge)).append(")");
+		}
+		for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+			sb.append(", ").append(phase.getKey()).append("=").append(phase.getValue() / 1000000).append(" ms");
+		}
+		sb.append(", allocated=").append(allocatedBytes >> 20).append(" MB (").append(getAllocationBytesPerSecond() >> 20).append(" MB/s)");
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,208 @@
+package agents.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Search instrumentation shared by all threads of an agent: {@link ECounter} counters, {@link EGauge} gauges and time spent in named phases.
+ * 
+ * Counters are {@link LongAdder}s, i.e., cheap to update from many threads; reading them ({@link #snapshot()}) is the expensive part,
+ * which is what {@link MetricsSampler} does periodically.
+ * 
+ * Allocation is measured for threads of the search that call {@link #beginThread()} / {@link #endThread()}
+ * (e.g., {@link agents.ArtificialAgent} does it for its think thread), if the JVM supports it.
+ * 
+ * @author Jimmy
+ */
+public class SearchMetrics {
+
+	private static final ECounter[] COUNTERS = ECounter.values();
+	
+	private static final EGauge[] GAUGES = EGauge.values();
+	
+	private final LongAdder[] counters = new LongAdder[COUNTERS.length];
+	
+	private final AtomicLong[] gauges = new AtomicLong[GAUGES.length];
+	
+	private final LongAccumulator[] gaugeMax = new LongAccumulator[GAUGES.length];
+	
+	private final Map<String, LongAdder> phaseNanos = new ConcurrentHashMap<String, LongAdder>();
+	
+	private volatile long startNanos;
+	
+	/**
+	 * Bytes allocated by threads that already called {@link #endThread()}.
+	 */
+	private final LongAdder allocatedBytes = new LongAdder();
+	
+	/**
+	 * Thread id -> allocated bytes at {@link #beginThread()}.
+	 */
+	private final Map<Long, Long> threads = new ConcurrentHashMap<Long, Long>();
+	
+	public SearchMetrics() {
+		for (int i = 0; i < counters.length; ++i) counters[i] = new LongAdder();
+		for (int i = 0; i < gauges.length; ++i) {
+			gauges[i] = new AtomicLong();
+			gaugeMax[i] = new LongAccumulator(Long::max, 0);
+		}
+		reset();
+	}
+	
+	/**
+	 * Zeroes all figures and restarts the clock; not atomic with respect to concurrent updates.
+	 */
+	public void reset() {
+		for (LongAdder counter : counters) counter.reset();
+		for (int i = 0; i < gauges.length; ++i) {
+			gauges[i].set(0);
+			gaugeMax[i].reset();
+		}
+		phaseNanos.clear();
+		allocatedBytes.reset();
+		for (Map.Entry<Long, Long> entry : threads.entrySet()) {
+			long bytes = getAllocatedBytes(entry.getKey());
+			if (bytes >= 0) entry.setValue(bytes);
+		}
+		startNanos = System.nanoTime();
+	}
+	
+	// ========
+	// COUNTERS
+	// ========
+	
+	public void inc(ECounter counter) {
+		counters[counter.ordinal()].increment();
+	}
+	
+	public void add(ECounter counter, long amount) {
+		counters[counter.ordinal()].add(amount);
+	}
+	
+	public long get(ECounter counter) {
+		return counters[counter.ordinal()].sum();
+	}
+	
+	// ======
+	// GAUGES
+	// ======
+	
+	public void set(EGauge gauge, long value) {
+		// no fence, readers (snapshots) are periodic
+		gauges[gauge.ordinal()].lazySet(value);
+		gaugeMax[gauge.ordinal()].accumulate(value);
+	}
+	
+	public long get(EGauge gauge) {
+		return gauges[gauge.ordinal()].get();
+	}
+	
+	public long getMax(EGauge gauge) {
+		return gaugeMax[gauge.ordinal()].get();
+	}
+	
+	// ======
+	// PHASES
+	// ======
+	
+	/**
+	 * Start of the phase to be passed to {@link #endPhase(String, long)}.
+	 * @return
+	 */
+	public long startPhase() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Adds time since 'startNanos' (see {@link #startPhase()}) to the 'phase'; phases may overlap and be timed by several threads at once.
+	 * @param phase
+	 * @param startNanos
+	 */
+	public void endPhase(String phase, long startNanos) {
+		long nanos = System.nanoTime() - startNanos;
+		LongAdder adder = phaseNanos.get(phase);
+		if (adder == null) adder = phaseNanos.computeIfAbsent(phase, p -> new LongAdder());
+		adder.add(nanos);
+	}
+	
+	public long getPhaseNanos(String phase) {
+		LongAdder adder = phaseNanos.get(phase);
+		return adder == null ? 0 : adder.sum();
+	}
+	
+	// ========
+	// SNAPSHOT
+	// ========
+	
+	public MetricsSnapshot snapshot() {
+		long[] counterValues = new long[counters.length];
+		for (int i = 0; i < counters.length; ++i) counterValues[i] = counters[i].sum();
+		long[] gaugeValues = new long[gauges.length];
+		long[] gaugeMaxValues = new long[gauges.length];
+		for (int i = 0; i < gauges.length; ++i) {
+			gaugeValues[i] = gauges[i].get();
+			gaugeMaxValues[i] = gaugeMax[i].get();
+		}
+		Map<String, Long> phases = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> entry : phaseNanos.entrySet()) {
+			phases.put(entry.getKey(), entry.getValue().sum());
+		}
+		long elapsedNanos = System.nanoTime() - startNanos;
+		long allocated = getAllocatedBytes();
+		return new MetricsSnapshot(elapsedNanos, counterValues, gaugeValues, gaugeMaxValues, phases, allocated);
+	}
+	
+	// ==========
+	// ALLOCATION
+	// ==========
+	
+	/**
+	 * Starts measuring allocations of the current thread.
+	 */
+	public void beginThread() {
+		long bytes = getAllocatedBytes(Thread.currentThread().getId());
+		if (bytes >= 0) threads.put(Thread.currentThread().getId(), bytes);
+	}
+	
+	/**
+	 * Stops measuring allocations of the current thread, keeping what it has allocated so far.
+	 */
+	public void endThread() {
+		Long start = threads.remove(Thread.currentThread().getId());
+		if (start == null) return;
+		long bytes = getAllocatedBytes(Thread.currentThread().getId());
+		if (bytes > start) allocatedBytes.add(bytes - start);
+	}
+	
+	/**
+	 * Bytes allocated by measured threads since {@link #reset()}.
+	 * @return
+	 */
+	public long getAllocatedBytes() {
+		long result = allocatedBytes.sum();
+		for (Map.Entry<Long, Long> entry : threads.entrySet()) {
+			long bytes = getAllocatedBytes(entry.getKey());
+			if (bytes > entry.getValue()) result += bytes - entry.getValue();
+		}
+		return result;
+	}
+	
+	/**
+	 * @param threadId
+	 * @return -1 if the JVM cannot tell
+	 */
+	private static long getAllocatedBytes(long threadId) {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean)threads;
+		if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled()) return -1;
+		return allocations.getThreadAllocatedBytes(threadId);
+	}
+	
+}
@@ -0,0 +1,198 @@
+package agents.search;
+
+/**
+ * Open list for A* with small integer costs: entries (e.g. {@link TranspositionTable} entry numbers) are kept in buckets
+ * indexed by [f][h], {@link #poll()} returns the entry with the lowest f, ties broken by the lowest h (i.e., the deepest node).
+ * Entries within the same [f][h] bucket are LIFO.
+ *
+ * {@link #add(int, int, int)} is O(1), {@link #poll()} is amortized O(1) as long as f does not decrease much (true for consistent heuristic);
+ * no objects are allocated per entry, buckets are growable int[] stacks.
+ *
+ * Not thread-safe.
+ *
+ * @author Jimmy
+ */
+public class BucketQueue {
+
+	private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+	/**
+	 * [f][h] -> stack of entries; grown on demand.
+	 */
+	private int[][][] stacks = new int[64][][];
+
+	/**
+	 * [f][h] -> size of the stack.
+	 */
+	private int[][] sizes = new int[64][];
+
+	/**
+	 * [f] -> number of entries with that f.
+	 */
+	private int[] fCounts = new int[64];
+
+	/**
+	 * [f] -> lower bound of h among entries with that f.
+	 */
+	private int[] minH = new int[64];
+
+	private int minF = Integer.MAX_VALUE;
+
+	private int size = 0;
+
+	private int polledF = -1;
+
+	private int polledH = -1;
+
+	/**
+	 * Adds 'entry' with cost 'f' and tie-break 'h' (both &gt;= 0).
+	 * @param entry
+	 * @param f
+	 * @param h
+	 */
+	public void add(int entry, int f, int h) {
+		if (f < 0 || h < 0) throw new RuntimeException("Negative key: f=" + f + ", h=" + h);
+
+		ensureF(f);
+		ensureH(f, h);
+
+		int[] stack = stacks[f][h];
+		int stackSize = sizes[f][h];
+		if (stack == null) {
+			stack = stacks[f][h] = new int[INITIAL_BUCKET_CAPACITY];
+		} else if (stackSize == stack.length) {
+			int[] bigger = new int[stack.length * 2];
+			System.arraycopy(stack, 0, bigger, 0, stackSize);
+			stack = stacks[f][h] = bigger;
+		}
+		stack[stackSize] = entry;
+		sizes[f][h] = stackSize + 1;
+
+		if (fCounts[f] == 0 || h < minH[f]) minH[f] = h;
+		++fCounts[f];
+		if (f < minF) minF = f;
+		++size;
+	}
+
+	/**
+	 * Removes and returns the entry with the lowest f (then lowest h); its keys can be read via {@link #getPolledF()} and {@link #getPolledH()}.
+	 * @return entry or -1 if the queue is empty
+	 */
+	public int poll() {
+		if (size == 0) return -1;
+
+		while (fCounts[minF] == 0) ++minF;
+
+		int f = minF;
+		int h = minH[f];
+		while (sizes[f][h] == 0) ++h;
+		minH[f] = h;
+
+		int entry = stacks[f][h][--sizes[f][h]];
+		--fCounts[f];
+		--size;
+
+		polledF = f;
+		polledH = h;
+
+		return entry;
+	}
+
+	/**
+	 * f of the entry returned by the last {@link #poll()}.
+	 * @return
+	 */
+	public int getPolledF() {
+		return polledF;
+	}
+
+	/**
+	 * h of the entry returned by the last {@link #poll()}.
+	 * @return
+	 */
+	public int getPolledH() {
+		return polledH;
+	}
+
+	/**
+	 * Lowest f within the queue or -1 if empty.
+	 * @return
+	 */
+	public int peekF() {
+		if (size == 0) return -1;
+		while (fCounts[minF] == 0) ++minF;
+		return minF;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all entries; keeps allocated buckets.
+	 */
+	public void clear() {
+		for (int f = 0; f < fCounts.length; ++f) {
+			if (fCounts[f] == 0) continue;
+			fCounts[f] = 0;
+			int[] fSizes = sizes[f];
+			for (int h = 0; h < fSizes.length; ++h) {
+				fSizes[h] = 0;
+			}
+		}
+		size = 0;
+		minF = Integer.MAX_VALUE;
+	}
+
+	// =========
+	// INTERNALS
+	// =========
+
+	private void ensureF(int f) {
+		if (f < fCounts.length) return;
+		int length = fCounts.length;
+		while (length <= f) length *= 2;
+
+		int[][][] newStacks = new int[length][][];
+		System.arraycopy(stacks, 0, newStacks, 0, stacks.length);
+		stacks = newStacks;
+
+		int[][] newSizes = new int[length][];
+		System.arraycopy(sizes, 0, newSizes, 0, sizes.length);
+		sizes = newSizes;
+
+		int[] newCounts = new int[length];
+		System.arraycopy(fCounts, 0, newCounts, 0, fCounts.length);
+		fCounts = newCounts;
+
+		int[] newMinH = new int[length];
+		System.arraycopy(minH, 0, newMinH, 0, minH.length);
+		minH = newMinH;
+	}
+
+	private void ensureH(int f, int h) {
+		if (sizes[f] == null) {
+			int length = 16;
+			while (length <= h) length *= 2;
+			sizes[f] = new int[length];
+			stacks[f] = new int[length][];
+			return;
+		}
+		if (h < sizes[f].length) return;
+		int length = sizes[f].length;
+		while (length <= h) length *= 2;
+
+		int[] newSizes = new int[length];
+		System.arraycopy(sizes[f], 0, newSizes, 0, sizes[f].length);
+		sizes[f] = newSizes;
+
+		int[][] newStacks = new int[length][];
+		System.arraycopy(stacks[f], 0, newStacks, 0, stacks[f].length);
+		stacks[f] = newStacks;
+	}
+
+}
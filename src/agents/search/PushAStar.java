@@ -0,0 +1,427 @@
+package agents.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import agents.actions.ActionsBFS;
+import agents.analysis.LevelAnalysis;
+import agents.heuristics.HungarianHeuristic;
+import agents.metrics.ECounter;
+import agents.metrics.EGauge;
+import agents.metrics.SearchMetrics;
+import game.actions.EDirection;
+import game.actions.compact.CMove;
+import game.actions.compact.CPush;
+import game.board.compact.BoardCompact;
+import game.board.compact.CTile;
+import game.board.minimal.StateNormalized;
+import game.board.oop.EEntity;
+
+/**
+ * Push-optimal A* over normalized push states ({@link StateNormalized}: sorted boxes + top-left reachable player cell).
+ *
+ * Puts together:
+ * <ul>
+ * <li>{@link ActionsBFS#findReachable(BoardCompact)} - allocation-free player reachability / normalization;</li>
+ * <li>{@link TranspositionTable} - closed + open set, stores g-cost and parent per state, growing up to the memory budget;</li>
+ * <li>{@link BucketQueue} - open list keyed by int f = g + h with tie-breaking on h;</li>
+ * <li>{@link HungarianHeuristic} - h = minimal box-goal matching by push distance, updated incrementally per push, detects deadlocks;</li>
+ * <li>{@link LevelAnalysis} - dead squares (pushes onto them are never generated).</li>
+ * </ul>
+ * Walks between pushes are reconstructed only for the final solution via {@link ActionsBFS#findPath(BoardCompact, int, int)}.
+ *
+ * Costs are pushes; the heuristic is consistent, so the first time the goal state is polled its push count is optimal.
+ *
+ * Single-colored boxes only (box colors are ignored).
+ *
+ * Progress is reported into {@link SearchMetrics} (if set) in batches of {@link #INTERRUPT_CHECK_PERIOD} expansions.
+ *
+ * @author Jimmy
+ */
+public class PushAStar {
+
+	/**
+	 * How often (in expanded nodes) do we check for {@link Thread#interrupted()}.
+	 */
+	private static final int INTERRUPT_CHECK_PERIOD = 1024;
+
+	private final BoardCompact initial;
+
+	private final LevelAnalysis analysis;
+
+	private final int width;
+
+	private final int boxes;
+
+	private final TranspositionTable table;
+
+	private final BucketQueue open = new BucketQueue();
+
+	private final BitSet closed = new BitSet();
+
+	/**
+	 * Board with walls / places only; boxes of the currently expanded state are put on it, player is NOT marked (only {@link BoardCompact#playerX} / {@link BoardCompact#playerY} are set).
+	 */
+	private final BoardCompact work;
+
+	private final ActionsBFS expandBFS = new ActionsBFS();
+
+	private final ActionsBFS childBFS = new ActionsBFS();
+
+	private final HungarianHeuristic matching;
+
+	private final HungarianHeuristic childMatching;
+
+	private final long[] key;
+
+	private final int[] cells;
+
+	private final int[] childCells;
+
+	private int expandedNodes = 0;
+
+	private int generatedNodes = 0;
+
+	private int duplicateNodes = 0;
+
+	private int deadlockedNodes = 0;
+
+	private SearchMetrics metrics;
+
+	/**
+	 * Counters already added into {@link #metrics}: expanded, generated, duplicates, deadlocked.
+	 */
+	private final int[] reported = new int[4];
+
+	private boolean outOfMemory = false;
+
+	/**
+	 * @param board level to solve
+	 * @param analysis analysis of the level, see {@link LevelAnalysis#get(BoardCompact)}
+	 * @param memoryBudgetBytes how much memory can the {@link TranspositionTable} take
+	 */
+	public PushAStar(BoardCompact board, LevelAnalysis analysis, long memoryBudgetBytes) {
+		this.initial = board;
+		this.analysis = analysis;
+		this.width = board.width();
+		this.boxes = board.boxCount;
+		this.table = new TranspositionTable(StateNormalized.getKeyLongs(boxes), memoryBudgetBytes);
+		this.matching = new HungarianHeuristic(analysis, boxes);
+		this.childMatching = new HungarianHeuristic(analysis, boxes);
+		this.key = new long[table.getKeyLongs()];
+		this.cells = new int[boxes];
+		this.childCells = new int[boxes];
+
+		// STRIP ENTITIES FROM THE WORKING BOARD
+		this.work = board.clone();
+		for (int x = 0; x < work.width(); ++x) {
+			for (int y = 0; y < work.height(); ++y) {
+				int tile = work.tile(x, y);
+				if (CTile.isSomeBox(tile) || CTile.isPlayer(tile)) {
+					work.setTile(x, y, (tile & EEntity.NULLIFY_ENTITY_FLAG) | EEntity.NONE.getFlag());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Where to report the progress of the search; may be null.
+	 * @param metrics
+	 */
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Runs the search.
+	 * @return moves solving the level, or null if there is no solution, the memory budget has been exhausted (see {@link #isOutOfMemory()}) or the thread has been interrupted
+	 */
+	public List<EDirection> search() {
+		try {
+			return runSearch();
+		} finally {
+			reportMetrics();
+		}
+	}
+
+	private List<EDirection> runSearch() {
+		// ROOT
+		int count = 0;
+		for (int y = 0; y < initial.height(); ++y) {
+			for (int x = 0; x < width; ++x) {
+				if (CTile.isSomeBox(initial.tile(x, y))) cells[count++] = y * width + x;
+			}
+		}
+		placeBoxes(cells);
+		work.playerX = initial.playerX;
+		work.playerY = initial.playerY;
+		int rootPlayer = childBFS.findReachable(work);
+		removeBoxes(cells);
+
+		int rootH = matching.init(cells);
+		if (rootH == HungarianHeuristic.DEADLOCK) return null;
+
+		int root = table.add(StateNormalized.pack(rootPlayer, cells, key), 0, TranspositionTable.NO_PARENT);
+		open.add(root, rootH, rootH);
+
+		// SEARCH
+		while (!open.isEmpty()) {
+			int entry = open.poll();
+			if (closed.get(entry)) continue;
+			closed.set(entry);
+
+			if (++expandedNodes % INTERRUPT_CHECK_PERIOD == 0) {
+				if (Thread.currentThread().isInterrupted()) return null;
+				reportMetrics();
+			}
+
+			decode(entry);
+
+			if (isSolved(cells)) {
+				return reconstruct(entry);
+			}
+
+			if (!expand(entry)) {
+				outOfMemory = true;
+				return null;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Generates all push successors of 'entry' (decoded in {@link #cells} / {@link #key}).
+	 * @return false if the table got full
+	 */
+	private boolean expand(int entry) {
+		int g = table.getG(entry) + 1;
+
+		matching.init(cells);
+
+		placeBoxes(cells);
+		work.playerX = StateNormalized.unpack(key, 0) % width;
+		work.playerY = StateNormalized.unpack(key, 0) / width;
+
+		expandBFS.findReachable(work);
+
+		try {
+			for (int r = 0; r < expandBFS.getReachableCount(); ++r) {
+				int x = expandBFS.getReachableX(r);
+				int y = expandBFS.getReachableY(r);
+				for (EDirection dir : EDirection.arrows()) {
+					if (!CPush.isPushPossibleIgnorePlayer(work, x, y, dir)) continue;
+
+					int boxX = x + dir.dX;
+					int boxY = y + dir.dY;
+					int targetX = boxX + dir.dX;
+					int targetY = boxY + dir.dY;
+					int target = targetY * width + targetX;
+					if (analysis.isDead(target)) {
+						++deadlockedNodes;
+						continue;
+					}
+
+					int box = Arrays.binarySearch(cells, boxY * width + boxX);
+
+					childMatching.copyFrom(matching);
+					int h = childMatching.moveBox(box, target);
+					if (h == HungarianHeuristic.DEADLOCK) {
+						++deadlockedNodes;
+						continue;
+					}
+
+					// CHILD STATE
+					work.moveBox(boxX, boxY, targetX, targetY);
+					work.playerX = boxX;
+					work.playerY = boxY;
+					int childPlayer = childBFS.findReachable(work);
+					work.moveBox(targetX, targetY, boxX, boxY);
+
+					moveSorted(cells, box, target, childCells);
+					StateNormalized.pack(childPlayer, childCells, key);
+
+					++generatedNodes;
+
+					if (table.isFull() && table.find(key) == TranspositionTable.NOT_FOUND) return false;
+
+					int child = table.add(key, g, entry);
+					if (child >= 0) {
+						open.add(child, g + h, h);
+					} else {
+						child = -(child + 1);
+						++duplicateNodes;
+						if (!closed.get(child) && g < table.getG(child)) {
+							table.setG(child, g);
+							table.setParent(child, entry);
+							open.add(child, g + h, h);
+						}
+					}
+				}
+			}
+		} finally {
+			removeBoxes(cells);
+			// restore the key of the expanded entry (it was overwritten by children)
+			table.getKey(entry, key);
+		}
+
+		return true;
+	}
+
+	// ==============
+	// RECONSTRUCTION
+	// ==============
+
+	private List<EDirection> reconstruct(int goal) {
+		List<Integer> chain = new ArrayList<Integer>();
+		for (int entry = goal; entry != TranspositionTable.NO_PARENT; entry = table.getParent(entry)) {
+			chain.add(entry);
+		}
+
+		List<EDirection> result = new ArrayList<EDirection>();
+		BoardCompact board = initial.clone();
+		ActionsBFS bfs = new ActionsBFS();
+		long[] parentKey = new long[key.length];
+		long[] childKey = new long[key.length];
+
+		for (int i = chain.size() - 1; i > 0; --i) {
+			table.getKey(chain.get(i), parentKey);
+			table.getKey(chain.get(i - 1), childKey);
+
+			// the box that moved: in parent, not in child => from; in child, not in parent => to
+			int from = -1;
+			int to = -1;
+			for (int b = 1; b <= boxes; ++b) {
+				int parentCell = StateNormalized.unpack(parentKey, b);
+				int childCell = StateNormalized.unpack(childKey, b);
+				if (from < 0 && !containsBox(childKey, parentCell)) from = parentCell;
+				if (to < 0 && !containsBox(parentKey, childCell)) to = childCell;
+			}
+
+			EDirection dir = directionOf(to - from);
+			int playerX = from % width - dir.dX;
+			int playerY = from / width - dir.dY;
+
+			EDirection[] walk = bfs.findPath(board, playerX, playerY);
+			if (walk == null) throw new RuntimeException("Failed to reconstruct the walk to [" + playerX + "," + playerY + "].");
+			for (EDirection step : walk) {
+				CMove.getAction(step).perform(board);
+				result.add(step);
+			}
+			CPush.getAction(dir).perform(board);
+			result.add(dir);
+		}
+
+		return result;
+	}
+
+	private boolean containsBox(long[] state, int cell) {
+		for (int b = 1; b <= boxes; ++b) {
+			if (StateNormalized.unpack(state, b) == cell) return true;
+		}
+		return false;
+	}
+
+	private EDirection directionOf(int delta) {
+		for (EDirection dir : EDirection.arrows()) {
+			if (dir.dY * width + dir.dX == delta) return dir;
+		}
+		throw new RuntimeException("Not a single push: " + delta);
+	}
+
+	// =========
+	// INTERNALS
+	// =========
+
+	private void decode(int entry) {
+		table.getKey(entry, key);
+		for (int i = 0; i < boxes; ++i) {
+			cells[i] = StateNormalized.unpack(key, i + 1);
+		}
+	}
+
+	private boolean isSolved(int[] cells) {
+		for (int cell : cells) {
+			if (!analysis.isGoal(cell)) return false;
+		}
+		return true;
+	}
+
+	private void placeBoxes(int[] cells) {
+		for (int cell : cells) {
+			int x = cell % width;
+			int y = cell / width;
+			work.setTile(x, y, (work.tile(x, y) & EEntity.NULLIFY_ENTITY_FLAG) | EEntity.BOX_1.getFlag());
+		}
+	}
+
+	private void removeBoxes(int[] cells) {
+		for (int cell : cells) {
+			int x = cell % width;
+			int y = cell / width;
+			work.setTile(x, y, (work.tile(x, y) & EEntity.NULLIFY_ENTITY_FLAG) | EEntity.NONE.getFlag());
+		}
+	}
+
+	/**
+	 * Copies sorted 'cells' into 'result' replacing 'index'-th cell with 'cell' while keeping 'result' sorted.
+	 */
+	private static void moveSorted(int[] cells, int index, int cell, int[] result) {
+		System.arraycopy(cells, 0, result, 0, cells.length);
+		int i = index;
+		while (i > 0 && result[i - 1] > cell) {
+			result[i] = result[i - 1];
+			--i;
+		}
+		while (i < result.length - 1 && result[i + 1] < cell) {
+			result[i] = result[i + 1];
+			++i;
+		}
+		result[i] = cell;
+	}
+
+	// =====
+	// STATS
+	// =====
+
+	private void reportMetrics() {
+		if (metrics == null) return;
+		metrics.add(ECounter.EXPANDED, expandedNodes - reported[0]);
+		metrics.add(ECounter.GENERATED, generatedNodes - reported[1]);
+		metrics.add(ECounter.DUPLICATES, duplicateNodes - reported[2]);
+		metrics.add(ECounter.DEADLOCK_PRUNED, deadlockedNodes - reported[3]);
+		reported[0] = expandedNodes;
+		reported[1] = generatedNodes;
+		reported[2] = duplicateNodes;
+		reported[3] = deadlockedNodes;
+		metrics.set(EGauge.OPEN_SIZE, open.size());
+		metrics.set(EGauge.CLOSED_SIZE, table.size());
+	}
+
+	public int getExpandedNodes() {
+		return expandedNodes;
+	}
+
+	public int getGeneratedNodes() {
+		return generatedNodes;
+	}
+
+	/**
+	 * Number of distinct states stored.
+	 * @return
+	 */
+	public int getStoredNodes() {
+		return table.size();
+	}
+
+	/**
+	 * Whether the last {@link #search()} failed because the {@link TranspositionTable} got full.
+	 * @return
+	 */
+	public boolean isOutOfMemory() {
+		return outOfMemory;
+	}
+
+}
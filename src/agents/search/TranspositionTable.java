@@ -0,0 +1,367 @@
+package agents.search;
+
+import java.util.Arrays;
+
+import game.board.minimal.StateMinimal;
+
+/**
+ * Closed-set / transposition table for search states packed into fixed-length <code>long[]</code> keys.
+ *
+ * Everything lives in primitive arrays, there are no per-entry objects:
+ * <ul>
+ * <li>entries are numbered 0, 1, 2, ... in insertion order; entry number stays stable, so it can be used as a "parent pointer";</li>
+ * <li>keys of all entries are stored one after another in single <code>long[]</code>;</li>
+ * <li>g-cost and parent entry of each entry are stored inline in <code>int[]</code>s;</li>
+ * <li>lookup goes through open-addressing hash table of entry numbers with linear probing (load factor 3/4).</li>
+ * </ul>
+ *
+ * The arrays start small ({@link #INITIAL_SLOTS}) and double (rehashing the slots) whenever the load factor is reached,
+ * up to the largest size that fits the memory budget; the budget is therefore only a cap, small searches take little memory.
+ * While growing, old and new arrays exist at the same time.
+ *
+ * Use {@link #keyLongsFor(int)} + int[] methods for int-packed states (e.g. {@link StateMinimal#positions}).
+ *
+ * Not thread-safe.
+ *
+ * @author Jimmy
+ */
+public class TranspositionTable {
+
+	/**
+	 * Returned by {@link #find(long[])} if the key is not present.
+	 */
+	public static final int NOT_FOUND = -1;
+
+	/**
+	 * Marks "no parent" for {@link #getParent(int)}.
+	 */
+	public static final int NO_PARENT = -1;
+
+	/**
+	 * Slot count the table starts with (unless the memory budget is even smaller).
+	 */
+	public static final int INITIAL_SLOTS = 1 << 12;
+
+	/**
+	 * How many longs form one key.
+	 */
+	private final int keyLongs;
+
+	/**
+	 * Maximum slot count given by the memory budget.
+	 */
+	private final int maxSlots;
+
+	/**
+	 * Maximum number of entries given by the memory budget.
+	 */
+	private final int maxCapacity;
+
+	/**
+	 * Number of entries that fit the current arrays.
+	 */
+	private int capacity;
+
+	private long[] keys;
+
+	private int[] g;
+
+	private int[] parent;
+
+	/**
+	 * Open-addressing table; contains (entry number + 1), 0 == empty slot. Length is the power of two.
+	 */
+	private int[] slots;
+
+	private int slotMask;
+
+	private int size = 0;
+
+	/**
+	 * Scratch key for int[] API.
+	 */
+	private final long[] packed;
+
+	/**
+	 * Creates the table for keys of 'keyLongs' longs that will not grow over 'memoryBudgetBytes' of heap (payload arrays only).
+	 * @param keyLongs
+	 * @param memoryBudgetBytes
+	 */
+	public TranspositionTable(int keyLongs, long memoryBudgetBytes) {
+		if (keyLongs <= 0) throw new RuntimeException("keyLongs must be positive: " + keyLongs);
+
+		this.keyLongs = keyLongs;
+
+		this.maxSlots = slotsFor(keyLongs, memoryBudgetBytes);
+		if (maxSlots < 4) throw new RuntimeException("Memory budget of " + memoryBudgetBytes + " bytes is too small for keys of " + keyLongs + " longs.");
+		this.maxCapacity = capacityFor(maxSlots);
+
+		allocate(Math.min(INITIAL_SLOTS, maxSlots));
+		this.packed = new long[keyLongs];
+	}
+
+	private void allocate(int slotCount) {
+		this.slots = new int[slotCount];
+		this.slotMask = slotCount - 1;
+		this.capacity = capacityFor(slotCount);
+		this.keys = new long[capacity * keyLongs];
+		this.g = new int[capacity];
+		this.parent = new int[capacity];
+	}
+
+	/**
+	 * Doubles the arrays and rehashes all entries; entry numbers stay the same.
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldG = g;
+		int[] oldParent = parent;
+
+		allocate(slots.length * 2);
+
+		System.arraycopy(oldKeys, 0, keys, 0, size * keyLongs);
+		System.arraycopy(oldG, 0, g, 0, size);
+		System.arraycopy(oldParent, 0, parent, 0, size);
+		for (int entry = 0; entry < size; ++entry) {
+			int slot = slotOf(keys, entry * keyLongs);
+			while (slots[slot] != 0) slot = (slot + 1) & slotMask;
+			slots[slot] = entry + 1;
+		}
+	}
+
+	/**
+	 * Largest power-of-two slot count that fits into 'memoryBudgetBytes' together with its entries.
+	 */
+	private static int slotsFor(int keyLongs, long memoryBudgetBytes) {
+		long entryBytes = 8L * keyLongs + 4 + 4;
+		int slotCount = 1 << 30;
+		while (slotCount > 1) {
+			long bytes = 4L * slotCount + entryBytes * ((long)slotCount * 3 / 4);
+			if (bytes <= memoryBudgetBytes && (long)capacityFor(slotCount) * keyLongs <= Integer.MAX_VALUE - 8) break;
+			slotCount >>= 1;
+		}
+		return slotCount;
+	}
+
+	private static int capacityFor(int slotCount) {
+		return (int)((long)slotCount * 3 / 4);
+	}
+
+	/**
+	 * How many longs do you need to store an int[] key of 'keyInts' ints.
+	 * @param keyInts
+	 * @return
+	 */
+	public static int keyLongsFor(int keyInts) {
+		return (keyInts + 1) / 2;
+	}
+
+	// =====
+	// QUERY
+	// =====
+
+	/**
+	 * Entry number of the 'key' or {@link #NOT_FOUND}.
+	 * @param key
+	 * @return
+	 */
+	public int find(long[] key) {
+		int slot = slotOf(key);
+		while (true) {
+			int entry = slots[slot] - 1;
+			if (entry < 0) return NOT_FOUND;
+			if (keyEquals(entry, key)) return entry;
+			slot = (slot + 1) & slotMask;
+		}
+	}
+
+	/**
+	 * Whether the 'key' is within the table.
+	 * @param key
+	 * @return
+	 */
+	public boolean contains(long[] key) {
+		return find(key) != NOT_FOUND;
+	}
+
+	/**
+	 * Inserts 'key' with 'g' cost and 'parent' entry if it is not present.
+	 *
+	 * Returns the number of the NEW entry (&gt;= 0), or <code>-(existingEntry + 1)</code> if the key is already present (the entry is left untouched).
+	 *
+	 * Throws {@link RuntimeException} if the table {@link #isFull()}; check it before inserting if you want to stop gracefully.
+	 *
+	 * @param key
+	 * @param g
+	 * @param parent
+	 * @return
+	 */
+	public int add(long[] key, int g, int parent) {
+		if (size >= capacity && capacity < maxCapacity) grow();
+		int slot = slotOf(key);
+		while (true) {
+			int entry = slots[slot] - 1;
+			if (entry < 0) break;
+			if (keyEquals(entry, key)) return -(entry + 1);
+			slot = (slot + 1) & slotMask;
+		}
+		if (size >= capacity) {
+			throw new RuntimeException("TranspositionTable is full, capacity " + maxCapacity + " entries.");
+		}
+		int entry = size++;
+		System.arraycopy(key, 0, keys, entry * keyLongs, keyLongs);
+		this.g[entry] = g;
+		this.parent[entry] = parent;
+		slots[slot] = entry + 1;
+		return entry;
+	}
+
+	/**
+	 * {@link #find(long[])} for int-packed keys of {@link #keyLongsFor(int)} longs; not reentrant.
+	 * @param key
+	 * @return
+	 */
+	public int find(int[] key) {
+		return find(pack(key));
+	}
+
+	/**
+	 * {@link #add(long[], int, int)} for int-packed keys of {@link #keyLongsFor(int)} longs; not reentrant.
+	 * @param key
+	 * @param g
+	 * @param parent
+	 * @return
+	 */
+	public int add(int[] key, int g, int parent) {
+		return add(pack(key), g, parent);
+	}
+
+	private long[] pack(int[] key) {
+		if (keyLongsFor(key.length) != keyLongs) {
+			throw new RuntimeException("Key of " + key.length + " ints does not fit " + keyLongs + " longs.");
+		}
+		for (int i = 0; i < keyLongs; ++i) {
+			long high = key[2*i] & 0xFFFFFFFFL;
+			long low = 2*i+1 < key.length ? key[2*i+1] & 0xFFFFFFFFL : 0;
+			packed[i] = high << 32 | low;
+		}
+		return packed;
+	}
+
+	// =======
+	// ENTRIES
+	// =======
+
+	public int getG(int entry) {
+		return g[entry];
+	}
+
+	public void setG(int entry, int g) {
+		this.g[entry] = g;
+	}
+
+	public int getParent(int entry) {
+		return parent[entry];
+	}
+
+	public void setParent(int entry, int parent) {
+		this.parent[entry] = parent;
+	}
+
+	/**
+	 * 'index'-th long of the 'entry' key.
+	 * @param entry
+	 * @param index
+	 * @return
+	 */
+	public long getKey(int entry, int index) {
+		return keys[entry * keyLongs + index];
+	}
+
+	/**
+	 * Copies the key of 'entry' into 'result' (must be at least {@link #getKeyLongs()} long).
+	 * @param entry
+	 * @param result
+	 * @return 'result'
+	 */
+	public long[] getKey(int entry, long[] result) {
+		System.arraycopy(keys, entry * keyLongs, result, 0, keyLongs);
+		return result;
+	}
+
+	// =====
+	// TABLE
+	// =====
+
+	/**
+	 * Removes all entries; keeps allocated memory (grown so far) so the table can be reused by the next search.
+	 */
+	public void clear() {
+		Arrays.fill(slots, 0);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Maximum number of entries the table can grow to within its memory budget.
+	 * @return
+	 */
+	public int getCapacity() {
+		return maxCapacity;
+	}
+
+	/**
+	 * Whether the table cannot take more entries, i.e., it cannot grow any further.
+	 * @return
+	 */
+	public boolean isFull() {
+		return size >= maxCapacity;
+	}
+
+	public int getKeyLongs() {
+		return keyLongs;
+	}
+
+	/**
+	 * How many bytes are currently allocated by the table arrays.
+	 * @return
+	 */
+	public long getMemoryBytes() {
+		return 4L * slots.length + 8L * keys.length + 4L * g.length + 4L * parent.length;
+	}
+
+	// =========
+	// INTERNALS
+	// =========
+
+	private boolean keyEquals(int entry, long[] key) {
+		int offset = entry * keyLongs;
+		for (int i = 0; i < keyLongs; ++i) {
+			if (keys[offset + i] != key[i]) return false;
+		}
+		return true;
+	}
+
+	private int slotOf(long[] key) {
+		return slotOf(key, 0);
+	}
+
+	private int slotOf(long[] key, int offset) {
+		long h = 0;
+		for (int i = 0; i < keyLongs; ++i) {
+			h = (h ^ key[offset + i]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		h ^= h >>> 32;
+		return (int)h & slotMask;
+	}
+
+	@Override
+	public String toString() {
+		return "TranspositionTable[" + size + "/" + capacity + "/" + maxCapacity + "]";
+	}
+
+}
@@ -0,0 +1,223 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches CPU time and heap allocation of the agent playing in {@link SokobanSim}, enforcing {@link SokobanConfig#cpuTimeoutMillis}
+ * and {@link SokobanConfig#maxAllocatedBytes}.
+ *
+ * Threads of the agent are all threads started after the monitor was created (simulation thread included); they are sampled every
+ * {@link #SAMPLE_MILLIS} via {@link ThreadMXBean} (allocations via {@link com.sun.management.ThreadMXBean} if the JVM supports it).
+ *
+ * Once a budget is exceeded, the simulation is cancelled cooperatively (agent is stopped, simulation thread interrupted);
+ * if the simulation thread does not end within {@link #ABANDON_GRACE_MILLIS}, the simulation is finished without it and the thread is abandoned.
+ *
+ * Used heap of the JVM is sampled as well to report its peak in {@link SokobanResult#getPeakHeapBytes()}.
+ *
+ * When the simulation ends, threads still burning CPU for more than {@link #ABANDON_GRACE_MILLIS} are abandoned as well
+ * and reported by {@link SokobanResult#getAbandonedThreads()}.
+ *
+ * @author Jimmy
+ */
+public class AgentBudgetMonitor extends Thread {
+
+	public static final long SAMPLE_MILLIS = 10;
+
+	public static final long ABANDON_GRACE_MILLIS = 1000;
+
+	private final SokobanConfig config;
+
+	private final SokobanSim sim;
+
+	private final ThreadMXBean threads;
+
+	/**
+	 * Null if allocations cannot be measured.
+	 */
+	private final com.sun.management.ThreadMXBean allocations;
+
+	private final MemoryMXBean memory;
+
+	private final Set<Long> baseline = new HashSet<Long>();
+
+	/**
+	 * Thread id -> { cpu nanos, allocated bytes } as last seen; dead threads keep their last figures.
+	 */
+	private final Map<Long, long[]> usage = new HashMap<Long, long[]>();
+
+	private long cpuNanos;
+
+	private long allocatedBytes;
+
+	private long peakHeapBytes;
+
+	private volatile boolean shouldRun = true;
+
+	private boolean cancelled = false;
+
+	public AgentBudgetMonitor(SokobanConfig config, SokobanSim sim) {
+		super("AgentBudgetMonitor");
+		setDaemon(true);
+
+		this.config = config;
+		this.sim = sim;
+
+		threads = ManagementFactory.getThreadMXBean();
+		if (threads.isThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+			threads.setThreadCpuTimeEnabled(true);
+		}
+
+		if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)threads).isThreadAllocatedMemorySupported()) {
+			allocations = (com.sun.management.ThreadMXBean)threads;
+			if (!allocations.isThreadAllocatedMemoryEnabled()) allocations.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			allocations = null;
+		}
+
+		for (long id : threads.getAllThreadIds()) {
+			baseline.add(id);
+		}
+
+		memory = ManagementFactory.getMemoryMXBean();
+		peakHeapBytes = memory.getHeapMemoryUsage().getUsed();
+	}
+
+	@Override
+	public void run() {
+		while (shouldRun) {
+			try {
+				Thread.sleep(SAMPLE_MILLIS);
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			String exceeded = null;
+			SokobanResultType resultType = null;
+
+			synchronized(this) {
+				if (!shouldRun) return;
+				sample();
+				if (cancelled) continue;
+				if (config.cpuTimeoutMillis > 0 && getCpuTimeMillis() > config.cpuTimeoutMillis) {
+					exceeded = "CPU time budget of " + config.cpuTimeoutMillis + " ms exceeded";
+					resultType = SokobanResultType.TIMEOUT;
+				} else
+				if (config.maxAllocatedBytes > 0 && allocatedBytes > config.maxAllocatedBytes) {
+					exceeded = "allocation budget of " + config.maxAllocatedBytes + " bytes exceeded";
+					resultType = SokobanResultType.AGENT_FAILED;
+				}
+				if (exceeded != null) cancelled = true;
+			}
+
+			if (exceeded != null) {
+				// COOPERATIVE CANCEL
+				Thread gameThread = sim.cancel(resultType, exceeded);
+				try {
+					if (gameThread != null) gameThread.join(ABANDON_GRACE_MILLIS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				// FORCED ABANDON
+				if (gameThread != null && gameThread.isAlive()) {
+					sim.abandon();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops the monitor, waits (shortly) for threads of the agent that are still burning CPU and fills figures into 'result'.
+	 * @param result
+	 */
+	public void finish(SokobanResult result) {
+		synchronized(this) {
+			if (!shouldRun) return;
+			shouldRun = false;
+			sample();
+			result.setCpuTimeMillis(getCpuTimeMillis());
+			result.setAllocatedBytes(allocatedBytes);
+			result.setPeakHeapBytes(peakHeapBytes);
+		}
+		if (Thread.currentThread() != this) interrupt();
+
+		// agents are stopped by now; whoever keeps computing past the grace period is abandoned
+		long deadline = System.currentTimeMillis() + ABANDON_GRACE_MILLIS;
+		int burning = 0;
+		do {
+			Map<Long, Long> before = getCpuNanosOfAgentThreads();
+			try {
+				Thread.sleep(SAMPLE_MILLIS);
+			} catch (InterruptedException e) {
+				break;
+			}
+			burning = 0;
+			for (Map.Entry<Long, Long> entry : before.entrySet()) {
+				if (threads.getThreadCpuTime(entry.getKey()) > entry.getValue()) ++burning;
+			}
+		} while (burning > 0 && System.currentTimeMillis() < deadline);
+
+		result.setAbandonedThreads(burning);
+	}
+
+	/**
+	 * CPU time of agent threads as of the last sample.
+	 * @return
+	 */
+	public synchronized long getCpuTimeMillis() {
+		return cpuNanos / 1000000;
+	}
+
+	/**
+	 * Bytes allocated by agent threads as of the last sample; 0 if not supported by the JVM.
+	 * @return
+	 */
+	public synchronized long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	private void sample() {
+		long selfId = getId();
+		for (long id : threads.getAllThreadIds()) {
+			if (id == selfId || baseline.contains(id)) continue;
+			long cpu = threads.getThreadCpuTime(id);
+			long allocated = allocations == null ? -1 : allocations.getThreadAllocatedBytes(id);
+			// the thread might have died meanwhile
+			if (cpu < 0 && allocated < 0) continue;
+			long[] figures = usage.get(id);
+			if (figures == null) {
+				figures = new long[2];
+				usage.put(id, figures);
+			}
+			if (cpu > figures[0]) figures[0] = cpu;
+			if (allocated > figures[1]) figures[1] = allocated;
+		}
+		long heap = memory.getHeapMemoryUsage().getUsed();
+		if (heap > peakHeapBytes) peakHeapBytes = heap;
+
+		cpuNanos = 0;
+		allocatedBytes = 0;
+		for (long[] figures : usage.values()) {
+			cpuNanos += figures[0];
+			allocatedBytes += figures[1];
+		}
+	}
+
+	private Map<Long, Long> getCpuNanosOfAgentThreads() {
+		Map<Long, Long> result = new HashMap<Long, Long>();
+		long callerId = Thread.currentThread().getId();
+		for (long id : threads.getAllThreadIds()) {
+			if (id == callerId || id == getId() || baseline.contains(id)) continue;
+			long cpu = threads.getThreadCpuTime(id);
+			if (cpu >= 0) result.put(id, cpu);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,109 @@
+package game;
+
+import java.io.File;
+
+import game.board.compact.BoardCompact;
+import game.board.oop.Board;
+import utils.LevelPack;
+import utils.S4JLReader;
+import utils.SokReader;
+import utils.TextLevelS4JL;
+
+/**
+ * Level as played by {@link SokobanSim}: its initial state in {@link BoardCompact} plus what the simulation needs to know about it.
+ *
+ * Levels are parsed straight into {@link BoardCompact} (no {@link game.board.oop.Tile} / {@link game.board.oop.entities.Entity} objects);
+ * OOP {@link Board} is created via {@link #makeBoard()} only if the level is to be visualized.
+ *
+ * @author Jimmy
+ */
+public class CompactLevel {
+
+	public final String name;
+
+	public final BoardCompact board;
+
+	/**
+	 * Known length of the optimal solution; 0 if not known.
+	 */
+	public final int minMoves;
+
+	public CompactLevel(String name, BoardCompact board, int minMoves) {
+		this.name = name;
+		this.board = board;
+		this.minMoves = minMoves;
+	}
+
+	/**
+	 * Creates OOP {@link Board} of the level.
+	 * @return
+	 */
+	public Board makeBoard() {
+		Board result = Board.fromBoardCompact(board);
+		result.level = name;
+		result.minMoves = minMoves;
+		return result;
+	}
+
+	/**
+	 * Validates {@link #board}, see {@link BoardCompact#validate()}.
+	 * @return this
+	 */
+	public CompactLevel validate() {
+		board.validate();
+		return this;
+	}
+
+	// =======
+	// LOADERS
+	// =======
+
+	/**
+	 * Parses the level; it is not validated.
+	 * @param level
+	 * @return
+	 */
+	public static CompactLevel fromTextLevel(TextLevelS4JL level) {
+		return new CompactLevel(level.getName(), BoardCompact.fromTextLevel(level), level.getMinMoves());
+	}
+
+	/**
+	 * Loads 'levelNumber'-th level (1-based) from 'file' of given 'format'; it is not validated.
+	 * @param file
+	 * @param format
+	 * @param levelNumber
+	 * @return
+	 */
+	public static CompactLevel fromFile(File file, ELevelFormat format, int levelNumber) {
+		if (format == null) throw new RuntimeException("Unknown level format of: " + file.getAbsolutePath());
+		try {
+			switch (format) {
+			case SOK: {
+				SokReader reader = new SokReader(file);
+				TextLevelS4JL level = reader.readLevel(levelNumber);
+				reader.close();
+				return fromTextLevel(level);
+			}
+			case S4JL: {
+				S4JLReader reader = new S4JLReader(file);
+				for (int i = 1; i < levelNumber; ++i) {
+					reader.readNext();
+				}
+				TextLevelS4JL level = reader.readNext();
+				reader.close();
+				if (level == null) throw new RuntimeException("There is no level " + levelNumber + ".");
+				return fromTextLevel(level);
+			}
+			case S4JP: {
+				LevelPack pack = new LevelPack(file);
+				return new CompactLevel(pack.getLevelName(levelNumber), pack.getBoardCompact(levelNumber), pack.getMinMoves(levelNumber));
+			}
+			default:
+				throw new RuntimeException("Unsupported level format " + format + ".");
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to load level " + levelNumber + " from '" + file.getAbsolutePath() + "'.", e);
+		}
+	}
+
+}
@@ -4,7 +4,11 @@ import java.io.File;
 
 public enum ELevelFormat {
 	S4JL(".s4jl"),
-	SOK(".sok");
+	SOK(".sok"),
+	/**
+	 * Compiled binary level pack, see {@link utils.LevelPack}.
+	 */
+	S4JP(".s4jp");
 	
 	private String extension;
 
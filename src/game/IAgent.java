@@ -1,5 +1,9 @@
 package game;
 
+import java.util.Collections;
+import java.util.List;
+
+import agents.metrics.MetricsSnapshot;
 import game.actions.EDirection;
 import game.board.compact.BoardCompact;
 
@@ -23,6 +27,48 @@ public interface IAgent {
 	 */
 	public EDirection act();
 	
+	/**
+	 * An agent is queried where to move next, it may block up to 'maxWaitMillis' until it knows.
+	 * Blocked agent should return null when the calling thread gets interrupted.
+	 * Default implementation does not block, i.e., it is {@link #act()}.
+	 * @param maxWaitMillis
+	 * @return null if the agent does not know yet
+	 */
+	public default EDirection act(long maxWaitMillis) {
+		return act();
+	}
+	
+	/**
+	 * An agent is queried for the moves it is sure about, i.e., the rest of its plan; it may block up to 'maxWaitMillis' until it knows.
+	 * The simulator executes all of them without calling {@link #observe(BoardCompact)} in between.
+	 * Blocked agent should return null when the calling thread gets interrupted.
+	 * Default implementation returns the single move of {@link #act(long)}.
+	 * @param maxWaitMillis
+	 * @return null (or empty list) if the agent does not know yet
+	 */
+	public default List<EDirection> actPlan(long maxWaitMillis) {
+		EDirection direction = act(maxWaitMillis);
+		return direction == null ? null : Collections.singletonList(direction);
+	}
+	
+	/**
+	 * How many search nodes the agent expanded in the current level so far; reported in {@link SokobanResult#getSearchedNodes()}.
+	 * Default implementation does not count them.
+	 * @return -1 if unknown
+	 */
+	public default long getSearchedNodes() {
+		return -1;
+	}
+	
+	/**
+	 * Current figures of the search of the agent (see {@link agents.metrics.SearchMetrics}); reported in {@link SokobanResult#getMetrics()}.
+	 * Default implementation does not collect them.
+	 * @return null if not collected
+	 */
+	public default MetricsSnapshot getMetrics() {
+		return null;
+	}
+	
 	/**
 	 * Agent managed to finish the level.
 	 */
@@ -22,6 +22,7 @@ public class Sokoban {
 	private SokobanConfig config;
 	
 	private SpriteAtlas sprites;	
+	private CompactLevel level;
 	private Board board;
 	private UIBoard uiBoard;
 	private SokobanView view;
@@ -51,6 +52,7 @@ public class Sokoban {
 		view = null;
 		uiBoard = null;
 		board = null;
+		level = null;
 		config = null;
 	}
 	
@@ -104,18 +106,27 @@ public class Sokoban {
 		return sprites = result;
 	}
 	
+	private CompactLevel initLevel() {
+		if (level != null) return level;
+		// PREREQ
+		validateConfig();
+		// IMPL
+		if (config.preloadedLevel != null) {
+			// already validated
+			return level = config.preloadedLevel;
+		}
+		return level = CompactLevel.fromFile(config.level, config.levelFormat, config.levelNumber).validate();
+	}
+	
+	/**
+	 * OOP board is needed for the visualization only.
+	 */
 	private Board initBoard() {
 		if (board != null) return board;
 		// PREREQ
-		validateConfig();		
+		initLevel();
 		// IMPL
-		Board result = null;
-		switch (config.levelFormat) {
-		case S4JL: result = Board.fromFileS4JL(config.level, config.levelNumber); break;
-		case SOK: result = Board.fromFileSok(config.level, config.levelNumber); break;
-		}
-		result.validate();
-		return board = result;
+		return board = level.makeBoard();
 	}
 	
 	private UIBoard initUIBoard() {
@@ -239,9 +250,9 @@ public class Sokoban {
 					// INIT CONFIG					
 					setConfig(config);					
 					config.levelNumber = levelNumber;
-					// TRY TO LOAD THE BOARD
+					// TRY TO LOAD THE LEVEL
 					try {
-						initBoard();
+						initLevel();
 					} catch (Exception e) {
 						// FAILED TO LOAD THE LEVEL => end of file hopefully
 						break;
@@ -267,12 +278,12 @@ public class Sokoban {
 	private void runSimulation() {
 		// PREREQS
 		validateConfig();
-        Board board = initBoard();
+        CompactLevel level = initLevel();
         if (config.verbose)
-            board.debugPrint();
+            level.board.debugPrint();
 		
 		// START GAME W/O VISUALIZATION
-		runGame(new SokobanSim(config, board));		
+		runGame(new SokobanSim(config, level));		
 	}
 	
 	private void runVisualization() {
@@ -378,9 +389,26 @@ public class Sokoban {
 
 		// CREATE CONFIG
 		SokobanConfig config = new SokobanConfig();
-		if (id == null) id = determineId(agent);
 		config.id = id;
 		config.agent = agent;
+        config.timeoutMillis = timeoutMillis;
+        config.verbose = verbose;
+        config.requireOptimal = optimal;
+		
+		return simAgentLevel(levelFilePath, levelNumber, config);
+	}
+	
+	/**
+	 * {@link SokobanConfig#agent} will play (headless == simulation only) 'levelNumber' (1-based) level from file on 'levelFilePath'
+	 * obeying limits (timeout, budgets) of the 'config'; level-related fields of the 'config' are filled in by this method.
+	 * 
+	 * @param levelFilePath file to load the level from
+	 * @param levelNumber 1-based; a level to be played
+	 * @param config
+	 * @return
+	 */
+	public static SokobanResult simAgentLevel(String levelFilePath, int levelNumber, SokobanConfig config) {
+		if (config.id == null) config.id = determineId(config.agent);
 		config.level = findFile(levelFilePath);
 		if (!config.level.exists() || !config.level.isFile())
             throw new RuntimeException("Not a level file at '" + config.level.getAbsolutePath() +
@@ -388,9 +416,6 @@ public class Sokoban {
         config.levelFormat = determineLevelFormat(config.level.getName());
 		config.levelNumber = levelNumber;		
 		config.visualization = false;
-        config.timeoutMillis = timeoutMillis;
-        config.verbose = verbose;
-        config.requireOptimal = optimal;
 		
 		return runAgentLevel(config);
 	}
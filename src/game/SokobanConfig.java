@@ -31,11 +31,31 @@ public class SokobanConfig {
 	 */
 	public ELevelFormat levelFormat;
 	
+	/**
+	 * Preloaded (and validated) level, e.g., from {@link tournament.LevelCatalogue}; if set, the level is not read from {@link #level}
+	 * that (together with {@link #levelNumber}) then only identifies it.
+	 */
+	public CompactLevel preloadedLevel;
+	
 	/**
 	 * Timeout for the game; positive number == timeout in effect; otherwise no timeout.
 	 */
 	public long timeoutMillis = 0;
 	
+	/**
+	 * CPU time budget for the agent, i.e., CPU time of all threads started for the level (simulation thread included);
+	 * positive number == budget in effect (exceeding it is {@link SokobanResultType#TIMEOUT}); otherwise no budget.
+	 * Enforced by {@link AgentBudgetMonitor} in headless simulations only.
+	 */
+	public long cpuTimeoutMillis = 0;
+	
+	/**
+	 * Heap allocation budget for the agent, i.e., bytes allocated by all threads started for the level (simulation thread included);
+	 * positive number == budget in effect (exceeding it is {@link SokobanResultType#AGENT_FAILED}); otherwise no budget.
+	 * Enforced by {@link AgentBudgetMonitor} in headless simulations only.
+	 */
+	public long maxAllocatedBytes = 0;
+	
 	/**
 	 * TRUE == start Sokoban visualized using {@link SokobanVis}; FALSE == start Sokoban headless using {@link SokobanSim}.
 	 */
@@ -50,6 +70,27 @@ public class SokobanConfig {
 
     public boolean requireOptimal = false;
 
+	/**
+	 * Shallow copy of the configuration.
+	 * @return
+	 */
+	public SokobanConfig copy() {
+		SokobanConfig result = new SokobanConfig();
+		result.id = id;
+		result.level = level;
+		result.levelNumber = levelNumber;
+		result.levelFormat = levelFormat;
+		result.preloadedLevel = preloadedLevel;
+		result.timeoutMillis = timeoutMillis;
+		result.cpuTimeoutMillis = cpuTimeoutMillis;
+		result.maxAllocatedBytes = maxAllocatedBytes;
+		result.visualization = visualization;
+		result.agent = agent;
+		result.verbose = verbose;
+		result.requireOptimal = requireOptimal;
+		return result;
+	}
+
 	/**
 	 * Validates the configuration; throws {@link RuntimeException} if config is found invalid. 
 	 */
@@ -63,6 +104,7 @@ public class SokobanConfig {
 		if (!level.exists()) throw new RuntimeException("Level '" + level.getAbsolutePath() + "' does not exist.");
 		if (!level.isFile() && !level.isDirectory()) throw new RuntimeException("Level '" + level.getAbsolutePath() + "' is neither a file nor a directory.");
 		if (level.isFile() && levelFormat == null) throw new RuntimeException("LevelFormat is null but Level points to a file '" + level.getAbsolutePath() + "'.");
+		if (preloadedLevel != null && (!level.isFile() || levelNumber == 0)) throw new RuntimeException("PreloadedLevel is set but Level '" + level.getAbsolutePath() + "' does not point to a single level.");
 	}
 
 }
@@ -2,6 +2,8 @@ package game;
 
 import java.io.*;
 
+import agents.metrics.MetricsSnapshot;
+
 public class SokobanResult {
 	private String id = null;
 	
@@ -16,6 +18,18 @@ public class SokobanResult {
 	private int steps = 0;
 	
 	private long simStartMillis = 0, simEndMillis = 0;
+	
+	private long cpuTimeMillis = 0, allocatedBytes = 0;
+	
+	private int abandonedThreads = 0;
+	
+	private long searchedNodes = -1;
+	
+	private long peakHeapBytes = 0;
+	
+	private MetricsSnapshot metrics;
+	
+	private String solution;
     
     public String message;
 
@@ -96,6 +110,83 @@ public class SokobanResult {
 		return simEndMillis - simStartMillis;
 	}
 
+	/**
+	 * CPU time consumed by threads of the agent (simulation thread included), see {@link AgentBudgetMonitor}.
+	 */
+	public long getCpuTimeMillis() {
+		return cpuTimeMillis;
+	}
+
+	public void setCpuTimeMillis(long cpuTimeMillis) {
+		this.cpuTimeMillis = cpuTimeMillis;
+	}
+
+	/**
+	 * Bytes allocated by threads of the agent (simulation thread included), see {@link AgentBudgetMonitor}; 0 if not supported by the JVM.
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public void setAllocatedBytes(long allocatedBytes) {
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	/**
+	 * How many threads of the agent were still burning CPU after the simulation ended and had to be abandoned.
+	 */
+	public int getAbandonedThreads() {
+		return abandonedThreads;
+	}
+
+	public void setAbandonedThreads(int abandonedThreads) {
+		this.abandonedThreads = abandonedThreads;
+	}
+
+	/**
+	 * Search nodes expanded by the agent, see {@link IAgent#getSearchedNodes()}; -1 if the agent does not count them.
+	 */
+	public long getSearchedNodes() {
+		return searchedNodes;
+	}
+
+	public void setSearchedNodes(long searchedNodes) {
+		this.searchedNodes = searchedNodes;
+	}
+
+	/**
+	 * Peak of used heap of the JVM sampled while the agent was playing, see {@link AgentBudgetMonitor}; includes garbage not collected yet.
+	 */
+	public long getPeakHeapBytes() {
+		return peakHeapBytes;
+	}
+
+	public void setPeakHeapBytes(long peakHeapBytes) {
+		this.peakHeapBytes = peakHeapBytes;
+	}
+
+	/**
+	 * Search figures of the agent at the end of the simulation, see {@link IAgent#getMetrics()}; null if the agent does not collect them.
+	 */
+	public MetricsSnapshot getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(MetricsSnapshot metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Steps of the agent as LURD (see {@link SolutionVerifier}); filled in case of victory.
+	 */
+	public String getSolution() {
+		return solution;
+	}
+
+	public void setSolution(String solution) {
+		this.solution = solution;
+	}
+
 	/**
 	 * Exception caught during the simulation; 
 	 * filled in case of {@link #getResult()} == {@link SokobanResultType#AGENT_EXCEPTION} or {@link SokobanResultType#SIMULATION_EXCEPTION}.  
@@ -113,8 +204,47 @@ public class SokobanResult {
 		return "SokobanResult[" + getResult() + "]";
 	}
     
+	/**
+	 * Header of the result file, see {@link #getResultLine(String, int, String)}.
+	 */
+	public static final String RESULT_HEADER = "id;levelFile;levelNumber;agent;result;steps;playTimeMillis;cpuTimeMillis;allocatedBytes;searchedNodes;peakHeapBytes;solution";
+	
+	/**
+	 * Index of the 'solution' column (LURD, empty unless {@link SokobanResultType#VICTORY}) within {@link #RESULT_HEADER}.
+	 */
+	public static final int RESULT_SOLUTION_COLUMN = 11;
+	
+	/**
+	 * Whether the 'line' is the header of the result file; also recognizes headers of older versions (without some trailing columns).
+	 * @param line
+	 * @return
+	 */
+	public static boolean isResultHeader(String line) {
+		return line.startsWith("id;levelFile;levelNumber;");
+	}
+	
+	/**
+	 * Line of the result file describing this result, see {@link #RESULT_HEADER}.
+	 * @param levelFile
+	 * @param level
+	 * @param agentClassString
+	 * @return
+	 */
+	public String getResultLine(String levelFile, int level, String agentClassString) {
+		return getId() + ";" + levelFile + ";" + level + ";" + agentClassString + ";" + getResult() + ";" + getSteps() + ";" + getSimDurationMillis() + ";" + getCpuTimeMillis() + ";" + getAllocatedBytes() + ";" + getSearchedNodes() + ";" + getPeakHeapBytes() + ";" + (solution == null ? "" : solution);
+	}
+    
 	public void outputResult(File resultFile, String levelFile, int level, String agentClassString) {
 		System.out.println("Outputting result: " + toString());
+		outputResultLine(resultFile, getResultLine(levelFile, level, agentClassString));
+	}
+	
+	/**
+	 * Appends the result 'line' (see {@link #getResultLine(String, int, String)}) to the 'resultFile', writing {@link #RESULT_HEADER} first into a new file.
+	 * @param resultFile
+	 * @param line
+	 */
+	public static void outputResultLine(File resultFile, String line) {
 		FileOutputStream output = null;		
 		boolean header = !resultFile.exists();
 		try {
@@ -126,9 +256,9 @@ public class SokobanResult {
 			PrintWriter writer = new PrintWriter(output);
 		
 			if (header) {
-				writer.println("id;levelFile;levelNumber;agent;result;steps;playTimeMillis");
+				writer.println(RESULT_HEADER);
 			}
-			writer.println(getId() + ";" + levelFile + ";" + level + ";" + agentClassString + ";" + getResult() + ";" + getSteps() + ";" + getSimDurationMillis());
+			writer.println(line);
 			
 			writer.flush();
 			writer.close();
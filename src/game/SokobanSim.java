@@ -1,13 +1,28 @@
 package game;
 
+import java.util.List;
+
 import game.actions.EDirection;
-import game.actions.oop.*;
+import game.actions.compact.CAction;
+import game.actions.compact.CMove;
+import game.actions.compact.CPush;
 import game.board.compact.BoardCompact;
-import game.board.oop.Board;
 
+/**
+ * Headless game; the level is played on {@link BoardCompact}, no OOP {@link game.board.oop.Board} is created.
+ *
+ * @author Jimmy
+ */
 public class SokobanSim implements ISokobanGame, Runnable {
+	
+	/**
+	 * How long we wait for the agent at most in one {@link IAgent#act(long)} call when there is no timeout.
+	 */
+	public static final long MAX_ACT_WAIT_MILLIS = 1000;
+	
 	private SokobanConfig config;
-	private Board board;
+	private CompactLevel level;
+	private BoardCompact board;
 	private IAgent agent;
 	
 	private Thread gameThread;
@@ -16,11 +31,17 @@ public class SokobanSim implements ISokobanGame, Runnable {
 	
 	private SokobanGameState state;
 	
-	private IAction agentAction;
-	
 	private boolean observe = true;
 	
-	private boolean shouldRun = true;
+	private volatile boolean shouldRun = true;
+	
+	private AgentBudgetMonitor monitor;
+	
+	private volatile SokobanResultType cancelResultType;
+	
+	private volatile String cancelMessage;
+	
+	private volatile boolean abandoned = false;
 	
 	// RESULT
 	
@@ -28,17 +49,27 @@ public class SokobanSim implements ISokobanGame, Runnable {
 	
 	private int steps = 0;
 	
-	public SokobanSim(SokobanConfig config, Board board) {
+	/**
+	 * Steps performed so far in LURD.
+	 */
+	private StringBuilder solution = new StringBuilder();
+	
+	/**
+	 * @param config
+	 * @param level not modified, the game is played on the clone of its board
+	 */
+	public SokobanSim(SokobanConfig config, CompactLevel level) {
 		this.config = config;
 		String id = config.id == null ? "SokobanSim" : config.id;
-		this.board = board;
+		this.level = level;
+		this.board = level.board.clone();
 		this.agent = config.agent;
 		
 		this.state = SokobanGameState.INIT;
 		
 		result.setId(id);
 		result.setAgent(agent);
-		result.setLevel(board.level == null ? "N/A" : board.level);
+		result.setLevel(level.name == null ? "N/A" : level.name);
 	}
 	
 	@Override
@@ -46,8 +77,10 @@ public class SokobanSim implements ISokobanGame, Runnable {
 		if (state != SokobanGameState.INIT) return;
 		try { 
 			state = SokobanGameState.RUNNING;
+			monitor = new AgentBudgetMonitor(config, this);
 			gameThread = new Thread(this, "SokobanVis");
 			gameThread.start();
+			monitor.start();
 		} catch (Exception e) {
 			stopGame();  
 			onSimulationException(e);
@@ -87,7 +120,14 @@ public class SokobanSim implements ISokobanGame, Runnable {
 			
 			while (shouldRun && !Thread.interrupted()) {
 
+				// BUDGET EXCEEDED?
+				if (cancelMessage != null) {
+					onCancel();
+					return;
+				}
+
 				// TIMEOUT?
+				long maxWaitMillis = MAX_ACT_WAIT_MILLIS;
 				if (config.timeoutMillis > 0) {
 					long now = System.currentTimeMillis();
 					long timeLeftMillis = config.timeoutMillis - (now - result.getSimStartMillis());
@@ -95,6 +135,7 @@ public class SokobanSim implements ISokobanGame, Runnable {
 						onTimeout();
 						return;
 					}					
+					maxWaitMillis = Math.min(maxWaitMillis, timeLeftMillis);
 				}
 				
 				// VICTORY?
@@ -105,44 +146,115 @@ public class SokobanSim implements ISokobanGame, Runnable {
 				
 				// OTHERWISE QUERY AGENT FOR THE NEXT ACTION
 				
-				if (observe) {
-					// EXTRACT COMPACT VERSION OF THE BOARD FOR AI
-					BoardCompact compactBoard = board.makeBoardCompact();
-					// PRESENT BOARD TO THE AGENT
-					agent.observe(compactBoard);
-					observe = false;
+				List<EDirection> plan;
+				try {
+					if (observe) {
+						// PRESENT COPY OF THE BOARD TO THE AGENT
+						agent.observe(board.clone());
+						observe = false;
+					}
+					
+					// GET AGENT PLAN (blocks till the agent knows or the time is up)
+					plan = agent.actPlan(maxWaitMillis);
+				} catch (Exception e) {
+					// e.g. think() of ArtificialAgent failed
+					onAgentException(e);
+					return;
 				}
-									
-				// GET AGENT ACTION
-				EDirection whereToMove = agent.act();
 				
-				if (whereToMove == null) continue;
-                
-                if (whereToMove == EDirection.NONE) {   // agent gave up
-                    stopSimulation(SokobanResultType.AGENT_FAILED, SokobanGameState.FAILED);
-                    break;
-                }
-
-                agentAction = Move.orPush(board, whereToMove);
-	
-				// AGENT ACTION VALID?
-				if (agentAction.isPossible(board)) {
-					// PERFORM THE ACTION
-					agentAction.perform(board);
-					++steps;
-					observe = true;
-				} else {
-                    System.out.println("Agent returned an illegal move!");
-                    stopSimulation(SokobanResultType.AGENT_FAILED, SokobanGameState.FAILED);
-				}
+				if (plan == null || plan.size() == 0) continue;
 				
-				agentAction = null;
+				// EXECUTE IT AS A WHOLE, THE AGENT OBSERVES ONLY THE RESULT
+				if (!performPlan(plan)) break;
+				observe = true;
+			}
+			
+			// INTERRUPTED BY THE MONITOR?
+			if (cancelMessage != null && state == SokobanGameState.RUNNING) {
+				onCancel();
 			}
 		} catch (Exception e) {
 			onSimulationException(e);
+		} finally {
+			if (!abandoned) {
+				monitor.finish(result);
+				recordAgentMetrics();
+			}
+		}
+	}
+	
+	/**
+	 * Cooperatively cancels the simulation as the agent exceeded its budget, see {@link AgentBudgetMonitor}.
+	 * @param resultType
+	 * @param message
+	 * @return simulation thread to wait for
+	 */
+	Thread cancel(SokobanResultType resultType, String message) {
+		cancelResultType = resultType;
+		cancelMessage = message;
+		try {
+			agent.stop();
+		} catch (Exception e) {
+		}
+		Thread thread = gameThread;
+		if (thread != null) thread.interrupt();
+		return thread;
+	}
+	
+	/**
+	 * Finishes the cancelled simulation without waiting for the simulation thread that does not respond.
+	 */
+	void abandon() {
+		if (state != SokobanGameState.RUNNING) return;
+		result.message = cancelMessage + ", agent abandoned";
+		stopSimulation(cancelResultType, SokobanGameState.FINISHED);
+		monitor.finish(result);
+		result.setAbandonedThreads(Math.max(1, result.getAbandonedThreads()));
+		recordAgentMetrics();
+		// releases waitFinish()
+		abandoned = true;
+	}
+
+	private void recordAgentMetrics() {
+		try {
+			result.setSearchedNodes(agent.getSearchedNodes());
+			result.setMetrics(agent.getMetrics());
+		} catch (Exception e) {
 		}
 	}
 
+	/**
+	 * Validates 'plan' via {@link SolutionVerifier} and performs its legal part; stops early on victory.
+	 * @param plan
+	 * @return false if the agent gave up or returned an illegal move (the simulation is stopped then)
+	 */
+	private boolean performPlan(List<EDirection> plan) {
+		SolutionVerifier.Verification verification = SolutionVerifier.verify(board, plan, true, solution);
+		
+		// PERFORM LEGAL STEPS
+		int performed = 0;
+		for (EDirection whereToMove : plan) {
+			if (performed == verification.steps) break;
+			CAction action = CPush.isPushPossible(board, board.playerX, board.playerY, whereToMove)
+				? CPush.getAction(whereToMove)
+				: CMove.getAction(whereToMove);
+			action.perform(board);
+			++performed;
+		}
+		steps += performed;
+		
+		if (verification.isLegal()) return true;
+		
+		if (plan.get(verification.illegalStep) == EDirection.NONE) {   // agent gave up
+			stopSimulation(SokobanResultType.AGENT_FAILED, SokobanGameState.FAILED);
+			return false;
+		}
+		
+		System.out.println("Agent returned an illegal move (step " + (steps + 1) + ")!");
+		stopSimulation(SokobanResultType.AGENT_FAILED, SokobanGameState.FAILED);
+		return false;
+	}
+
     void stopSimulation(SokobanResultType resultType, SokobanGameState endState) {
 		result.setSimEndMillis(System.currentTimeMillis());
 		result.setResult(resultType);
@@ -167,15 +279,15 @@ public class SokobanSim implements ISokobanGame, Runnable {
         result.setSimEndMillis(System.currentTimeMillis());
 
         SokobanResultType outcome = SokobanResultType.VICTORY;
-        if (board.minMoves > 0) {
-            if (steps < board.minMoves)
+        if (level.minMoves > 0) {
+            if (steps < level.minMoves)
                 result.message = 
                     "warning: solution in fewer moves than supposedly optimal move count of " +
-                    board.minMoves;
-            else if (steps > board.minMoves && config.requireOptimal) {
+                    level.minMoves;
+            else if (steps > level.minMoves && config.requireOptimal) {
                 result.message = String.format(
                     "solution of %d steps exceeded optimal move count of %d",
-                    steps, board.minMoves);
+                    steps, level.minMoves);
                 outcome = SokobanResultType.AGENT_FAILED;
             }
         } else if (config.requireOptimal)
@@ -183,6 +295,7 @@ public class SokobanSim implements ISokobanGame, Runnable {
 
         result.setResult(outcome);
         result.setSteps(steps);
+        result.setSolution(solution.toString());
         
 		try {
 			agent.victory();
@@ -197,6 +310,11 @@ public class SokobanSim implements ISokobanGame, Runnable {
 		}
 	}
 
+	private void onCancel() {
+		result.message = cancelMessage;
+		stopSimulation(cancelResultType, SokobanGameState.FINISHED);
+	}
+
 	private void onTimeout() {
         stopSimulation(SokobanResultType.TIMEOUT, SokobanGameState.FINISHED);
 	}
@@ -224,7 +342,8 @@ public class SokobanSim implements ISokobanGame, Runnable {
 			return null;
 			
 		case RUNNING:
-			if (gameThread != null && gameThread.isAlive()) this.gameThread.join();
+			Thread thread = gameThread;
+			while (thread != null && thread.isAlive() && !abandoned) thread.join(AgentBudgetMonitor.SAMPLE_MILLIS);
 			return getResult();
 		
 		default:
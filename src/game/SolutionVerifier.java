@@ -0,0 +1,312 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+
+import game.actions.EDirection;
+import game.actions.compact.CAction;
+import game.actions.compact.CMove;
+import game.actions.compact.CPush;
+import game.board.compact.BoardCompact;
+import game.board.compact.BoardCompactFlat;
+
+/**
+ * Replays solutions on {@link BoardCompactFlat} copy of the board using static {@link CMove} / {@link CPush} instances (no allocation per step).
+ *
+ * Solutions are either lists of {@link EDirection} or LURD strings: 'l', 'u', 'r', 'd' for moves, 'L', 'U', 'R', 'D' for pushes;
+ * the case of LURD steps is checked, i.e., a lower-case step that pushes a box is illegal.
+ *
+ * Can be run to verify stored solutions: <code>SolutionVerifier &lt;file&gt;</code>, where every line of the file is <code>levelFile;levelNumber;lurd</code>
+ * or the file is a result file (see {@link SokobanResult#RESULT_HEADER}) whose {@link SokobanResultType#VICTORY} lines are verified.
+ *
+ * @author Jimmy
+ */
+public class SolutionVerifier {
+
+	/**
+	 * Outcome of the replay.
+	 */
+	public static class Verification {
+
+		/**
+		 * Number of legal steps performed.
+		 */
+		public int steps;
+
+		/**
+		 * How many of {@link #steps} were pushes.
+		 */
+		public int pushes;
+
+		/**
+		 * 0-based index of the first illegal step; -1 if all steps were legal.
+		 */
+		public int illegalStep = -1;
+
+		/**
+		 * Whether all boxes are in place after the last legal step.
+		 */
+		public boolean solved;
+
+		/**
+		 * Whether all steps were legal.
+		 * @return
+		 */
+		public boolean isLegal() {
+			return illegalStep < 0;
+		}
+
+		/**
+		 * Whether all steps were legal and they solved the level.
+		 * @return
+		 */
+		public boolean isValid() {
+			return illegalStep < 0 && solved;
+		}
+
+		@Override
+		public String toString() {
+			return "Verification[steps=" + steps + ", pushes=" + pushes + (illegalStep >= 0 ? ", illegalStep=" + illegalStep : "") + ", solved=" + solved + "]";
+		}
+
+	}
+
+	// =======
+	// PARSING
+	// =======
+
+	/**
+	 * Direction of the LURD character, see {@link #isLurdPush(char)}.
+	 * @param c
+	 * @return null for invalid character
+	 */
+	public static EDirection getLurdDirection(char c) {
+		switch (c) {
+			case 'l': case 'L': return EDirection.LEFT;
+			case 'u': case 'U': return EDirection.UP;
+			case 'r': case 'R': return EDirection.RIGHT;
+			case 'd': case 'D': return EDirection.DOWN;
+			default: return null;
+		}
+	}
+
+	public static boolean isLurdPush(char c) {
+		return Character.isUpperCase(c);
+	}
+
+	public static char getLurdChar(EDirection dir, boolean push) {
+		char c;
+		switch (dir) {
+			case LEFT:  c = 'l'; break;
+			case UP:    c = 'u'; break;
+			case RIGHT: c = 'r'; break;
+			case DOWN:  c = 'd'; break;
+			default: throw new RuntimeException("Direction has no LURD character: " + dir);
+		}
+		return push ? Character.toUpperCase(c) : c;
+	}
+
+	// ============
+	// VERIFICATION
+	// ============
+
+	/**
+	 * Replays 'lurd' on the copy of the 'board'; whitespace is ignored, any other character is an illegal step.
+	 * @param board
+	 * @param lurd
+	 * @return
+	 */
+	public static Verification verify(BoardCompact board, String lurd) {
+		BoardCompactFlat flat = board.makeBoardCompactFlat();
+		Verification result = new Verification();
+
+		for (int i = 0; i < lurd.length(); ++i) {
+			char c = lurd.charAt(i);
+			if (Character.isWhitespace(c)) continue;
+
+			EDirection dir = getLurdDirection(c);
+			if (dir == null || !perform(flat, dir, isLurdPush(c), true, result, null)) {
+				result.illegalStep = result.steps;
+				break;
+			}
+		}
+
+		result.solved = flat.isVictory();
+		return result;
+	}
+
+	/**
+	 * Loads 'levelNumber'-th level (1-based) from 'levelFile' afresh and replays 'lurd' on it; null 'lurd' is an empty solution.
+	 * @param levelFile
+	 * @param levelNumber
+	 * @param lurd
+	 * @return
+	 */
+	public static Verification verify(File levelFile, int levelNumber, String lurd) {
+		BoardCompact board = CompactLevel.fromFile(levelFile, ELevelFormat.getExpectedLevelFormat(levelFile), levelNumber).board;
+		return verify(board, lurd == null ? "" : lurd);
+	}
+
+	/**
+	 * Re-verifies {@link SokobanResult#getSolution()} of the {@link SokobanResultType#VICTORY} 'result' against the level loaded afresh;
+	 * if it does not solve the level, the 'result' is turned into {@link SokobanResultType#AGENT_FAILED}.
+	 * @param result
+	 * @param levelFile
+	 * @param levelNumber
+	 * @return whether the 'result' stays {@link SokobanResultType#VICTORY}; false for other results
+	 */
+	public static boolean verifyVictory(SokobanResult result, File levelFile, int levelNumber) {
+		if (result.getResult() != SokobanResultType.VICTORY) return false;
+		return verifyVictory(result, CompactLevel.fromFile(levelFile, ELevelFormat.getExpectedLevelFormat(levelFile), levelNumber).board);
+	}
+
+	/**
+	 * Re-verifies {@link SokobanResult#getSolution()} of the {@link SokobanResultType#VICTORY} 'result' against the 'board' the level was played on
+	 * (e.g., {@link CompactLevel#board} of {@link SokobanConfig#preloadedLevel}, which is not modified by the simulation);
+	 * if it does not solve the level, the 'result' is turned into {@link SokobanResultType#AGENT_FAILED}.
+	 * @param result
+	 * @param board initial state of the level, not modified
+	 * @return whether the 'result' stays {@link SokobanResultType#VICTORY}; false for other results
+	 */
+	public static boolean verifyVictory(SokobanResult result, BoardCompact board) {
+		if (result.getResult() != SokobanResultType.VICTORY) return false;
+		String lurd = result.getSolution();
+		Verification verification = verify(board, lurd == null ? "" : lurd);
+		if (verification.isValid()) return true;
+		result.setResult(SokobanResultType.AGENT_FAILED);
+		result.message = "solution failed verification: " + verification;
+		return false;
+	}
+
+	/**
+	 * Replays 'moves' on the copy of the 'board'; {@link EDirection#NONE} is an illegal step.
+	 * @param board
+	 * @param moves
+	 * @return
+	 */
+	public static Verification verify(BoardCompact board, List<EDirection> moves) {
+		return verify(board, moves, false, null);
+	}
+
+	/**
+	 * Replays 'moves' on the copy of the 'board'; {@link EDirection#NONE} is an illegal step.
+	 * @param board
+	 * @param moves
+	 * @param stopOnVictory whether to ignore steps after the level is solved
+	 * @param lurd where to append legal steps as LURD; may be null
+	 * @return
+	 */
+	public static Verification verify(BoardCompact board, List<EDirection> moves, boolean stopOnVictory, StringBuilder lurd) {
+		BoardCompactFlat flat = board.makeBoardCompactFlat();
+		Verification result = new Verification();
+
+		for (EDirection dir : moves) {
+			if (stopOnVictory && flat.isVictory()) break;
+			if (dir == null || !perform(flat, dir, false, false, result, lurd)) {
+				result.illegalStep = result.steps;
+				break;
+			}
+		}
+
+		result.solved = flat.isVictory();
+		return result;
+	}
+
+	/**
+	 * Performs single step in 'dir' if it is legal.
+	 * @param board
+	 * @param dir
+	 * @param push expected to push (checked only if 'checkPush')
+	 * @param checkPush
+	 * @param result where to count steps/pushes
+	 * @param lurd may be null
+	 * @return whether the step was legal
+	 */
+	private static boolean perform(BoardCompactFlat board, EDirection dir, boolean push, boolean checkPush, Verification result, StringBuilder lurd) {
+		if (dir == EDirection.NONE) return false;
+
+		CAction action;
+		if (CPush.isPushPossible(board, board.playerX, board.playerY, dir)) {
+			if (checkPush && !push) return false;
+			action = CPush.getAction(dir);
+			++result.pushes;
+		} else {
+			if (checkPush && push) return false;
+			action = CMove.getAction(dir);
+			if (!action.isPossible(board)) return false;
+		}
+
+		action.perform(board);
+		++result.steps;
+		if (lurd != null) lurd.append(getLurdChar(dir, action instanceof CPush));
+
+		return true;
+	}
+
+	// ===========
+	// STANDALONE
+	// ===========
+
+	/**
+	 * Verifies stored solutions, see {@link SolutionVerifier}.
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.out.println("usage: SolutionVerifier <file with levelFile;levelNumber;lurd lines | result file>");
+			System.exit(1);
+		}
+
+		File file = new File(args[0]);
+		int verified = 0, failed = 0;
+		long startNanos = System.nanoTime();
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			String boardFile = null;
+			int boardLevel = -1;
+			BoardCompact board = null;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().length() == 0 || line.startsWith("#") || SokobanResult.isResultHeader(line)) continue;
+				String[] parts = line.split(";", -1);
+				String levelPath;
+				String lurd;
+				int levelNumber;
+				if (parts.length == 3) {
+					levelPath = parts[0];
+					levelNumber = Integer.parseInt(parts[1]);
+					lurd = parts[2];
+				} else if (parts.length > SokobanResult.RESULT_SOLUTION_COLUMN) {
+					// RESULT FILE LINE
+					if (!SokobanResultType.VICTORY.toString().equals(parts[4])) continue;
+					levelPath = parts[1];
+					levelNumber = Integer.parseInt(parts[2]);
+					lurd = parts[SokobanResult.RESULT_SOLUTION_COLUMN];
+				} else {
+					throw new RuntimeException("Invalid line, expected levelFile;levelNumber;lurd or result line: " + line);
+				}
+				if (!levelPath.equals(boardFile) || levelNumber != boardLevel) {
+					File levelFile = Sokoban.findFile(levelPath);
+					board = CompactLevel.fromFile(levelFile, ELevelFormat.getExpectedLevelFormat(levelFile), levelNumber).board;
+					boardFile = levelPath;
+					boardLevel = levelNumber;
+				}
+				Verification verification = verify(board, lurd);
+				++verified;
+				if (!verification.isValid()) {
+					++failed;
+					System.out.println("INVALID " + levelPath + " #" + levelNumber + ": " + verification);
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read solutions from: " + file.getAbsolutePath(), e);
+		}
+
+		System.out.printf("Verified %d solutions in %.1f ms, %d invalid.\n", verified, (System.nanoTime() - startNanos) / 1000000.0, failed);
+		System.exit(failed == 0 ? 0 : 1);
+	}
+
+}
@@ -0,0 +1,109 @@
+package game.actions.compact;
+
+import game.actions.EDirection;
+import game.board.compact.BoardCompact;
+
+/**
+ * Allocation-free enumeration of {@link CMove}s and {@link CPush}es possible on a {@link BoardCompact}.
+ *
+ * Possible actions are written into a caller-supplied int[] buffer as action codes, i.e., {@link EDirection#index}
+ * with {@link #PUSH_FLAG} set for pushes. Use {@link #action(int)} to get the shared {@link CAction} instance back.
+ *
+ * As every direction is either a move, a push or nothing, at most {@link #MAX_ACTIONS} codes are generated per position;
+ * recursive searches may therefore preallocate one int[(maxDepth+1) * MAX_ACTIONS] and use 'depth * MAX_ACTIONS' as the offset.
+ *
+ * @author Jimmy
+ */
+public class CActions {
+
+	/**
+	 * Set in the action code for {@link CPush}es.
+	 */
+	public static final int PUSH_FLAG = 4;
+
+	/**
+	 * Maximum number of action codes {@link #generate(BoardCompact, int[], int)} writes.
+	 */
+	public static final int MAX_ACTIONS = 4;
+
+	private static final int DIRECTION_MASK = 3;
+
+	/**
+	 * Indexed by action code.
+	 */
+	private static final CAction[] actions = new CAction[] {
+		CMove.getAction(0), CMove.getAction(1), CMove.getAction(2), CMove.getAction(3),
+		CPush.getAction(0), CPush.getAction(1), CPush.getAction(2), CPush.getAction(3)
+	};
+
+	/**
+	 * Writes codes of possible moves, then possible pushes, starting at 'offset'.
+	 * @param board
+	 * @param buffer
+	 * @param offset
+	 * @return offset past the last written code
+	 */
+	public static int generate(BoardCompact board, int[] buffer, int offset) {
+		offset = generateMoves(board, buffer, offset, EDirection.NONE);
+		return generatePushes(board, buffer, offset);
+	}
+
+	/**
+	 * Writes codes of possible {@link CMove}s starting at 'offset'.
+	 * @param board
+	 * @param buffer
+	 * @param offset
+	 * @param skip direction not to generate (e.g. the move back), {@link EDirection#NONE} to generate all
+	 * @return offset past the last written code
+	 */
+	public static int generateMoves(BoardCompact board, int[] buffer, int offset, EDirection skip) {
+		for (int dirIndex = 0; dirIndex < 4; ++dirIndex) {
+			if (dirIndex == skip.index) continue;
+			if (actions[dirIndex].isPossible(board)) {
+				buffer[offset++] = dirIndex;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Writes codes of possible {@link CPush}es starting at 'offset'.
+	 * @param board
+	 * @param buffer
+	 * @param offset
+	 * @return offset past the last written code
+	 */
+	public static int generatePushes(BoardCompact board, int[] buffer, int offset) {
+		for (int dirIndex = 0; dirIndex < 4; ++dirIndex) {
+			if (actions[PUSH_FLAG | dirIndex].isPossible(board)) {
+				buffer[offset++] = PUSH_FLAG | dirIndex;
+			}
+		}
+		return offset;
+	}
+
+	public static boolean isPush(int code) {
+		return (code & PUSH_FLAG) != 0;
+	}
+
+	/**
+	 * @param code
+	 * @return {@link EDirection#index}
+	 */
+	public static int directionIndex(int code) {
+		return code & DIRECTION_MASK;
+	}
+
+	public static EDirection direction(int code) {
+		return EDirection.arrows()[code & DIRECTION_MASK];
+	}
+
+	/**
+	 * @param code
+	 * @return shared {@link CMove} / {@link CPush} instance
+	 */
+	public static CAction action(int code) {
+		return actions[code];
+	}
+
+}
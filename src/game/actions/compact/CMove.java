@@ -1,8 +1,8 @@
 package game.actions.compact;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
 
 import game.actions.EDirection;
 import game.actions.oop.EActionType;
@@ -15,21 +15,35 @@ import game.board.compact.CTile;
  */
 public class CMove extends CAction {
 	
-	private static Map<EDirection, CMove> actions = new HashMap<EDirection, CMove>();
+	/**
+	 * Indexed by {@link EDirection#index}, i.e., UP, RIGHT, DOWN, LEFT.
+	 */
+	private static final CMove[] actions = new CMove[]{ new CMove(EDirection.UP), new CMove(EDirection.RIGHT), new CMove(EDirection.DOWN), new CMove(EDirection.LEFT) };
 	
-	static {
-		actions.put(EDirection.DOWN, new CMove(EDirection.DOWN));
-		actions.put(EDirection.UP, new CMove(EDirection.UP));
-		actions.put(EDirection.LEFT, new CMove(EDirection.LEFT));
-		actions.put(EDirection.RIGHT, new CMove(EDirection.RIGHT));
-	}
+	private static final Collection<CMove> actionsList = Collections.unmodifiableList(Arrays.asList(actions));
 	
+	/**
+	 * UP, RIGHT, DOWN, LEFT; see {@link CActions} for allocation-free enumeration of possible actions.
+	 * @return
+	 */
 	public static Collection<CMove> getActions() {
-		return actions.values();
+		return actionsList;
 	}
 	
+	/**
+	 * @param direction
+	 * @return null for {@link EDirection#NONE}
+	 */
 	public static CMove getAction(EDirection direction) {
-		return actions.get(direction);
+		return direction.index < 0 ? null : actions[direction.index];
+	}
+	
+	/**
+	 * @param directionIndex {@link EDirection#index}
+	 * @return
+	 */
+	public static CMove getAction(int directionIndex) {
+		return actions[directionIndex];
 	}
 	
 	private EDirection dir;
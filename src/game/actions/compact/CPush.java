@@ -1,8 +1,8 @@
 package game.actions.compact;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
 
 import game.actions.EDirection;
 import game.actions.oop.EActionType;
@@ -15,21 +15,35 @@ import game.board.compact.CTile;
  */
 public class CPush extends CAction {
 	
-	private static Map<EDirection, CPush> actions = new HashMap<EDirection, CPush>();
+	/**
+	 * Indexed by {@link EDirection#index}, i.e., UP, RIGHT, DOWN, LEFT.
+	 */
+	private static final CPush[] actions = new CPush[]{ new CPush(EDirection.UP), new CPush(EDirection.RIGHT), new CPush(EDirection.DOWN), new CPush(EDirection.LEFT) };
 	
-	static {
-		actions.put(EDirection.DOWN, new CPush(EDirection.DOWN));
-		actions.put(EDirection.UP, new CPush(EDirection.UP));
-		actions.put(EDirection.LEFT, new CPush(EDirection.LEFT));
-		actions.put(EDirection.RIGHT, new CPush(EDirection.RIGHT));
-	}
+	private static final Collection<CPush> actionsList = Collections.unmodifiableList(Arrays.asList(actions));
 	
+	/**
+	 * UP, RIGHT, DOWN, LEFT; see {@link CActions} for allocation-free enumeration of possible actions.
+	 * @return
+	 */
 	public static Collection<CPush> getActions() {
-		return actions.values();
+		return actionsList;
 	}
 	
+	/**
+	 * @param direction
+	 * @return null for {@link EDirection#NONE}
+	 */
 	public static CPush getAction(EDirection direction) {
-		return actions.get(direction);
+		return direction.index < 0 ? null : actions[direction.index];
+	}
+	
+	/**
+	 * @param directionIndex {@link EDirection#index}
+	 * @return
+	 */
+	public static CPush getAction(int directionIndex) {
+		return actions[directionIndex];
 	}
 	
 	private EDirection dir;
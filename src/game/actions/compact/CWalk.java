@@ -45,6 +45,22 @@ public class CWalk extends CAction {
 		return path;
 	}
 	
+	/**
+	 * X of the walk target.
+	 * @return
+	 */
+	public int getX() {
+		return x;
+	}
+	
+	/**
+	 * Y of the walk target.
+	 * @return
+	 */
+	public int getY() {
+		return y;
+	}
+	
 	/**
 	 * How many steps do you need in order to perform the walk; defined only if directions are provided during construction using {@link CWalk#CWalk(int, int, EDirection[])}.
 	 * @return
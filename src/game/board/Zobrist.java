@@ -0,0 +1,68 @@
+package game.board;
+
+import game.board.compact.BoardCompact;
+import game.board.compressed.BoardCompressed;
+import game.board.slim.BoardSlim;
+
+/**
+ * Zobrist keys for Sokoban entities, shared by {@link BoardCompact}, {@link BoardSlim} and {@link BoardCompressed}.
+ *
+ * The key of the board is XOR of {@link #key(int, int, int)} of all its entities (player and boxes); as XOR is its own inverse,
+ * moving an entity from [sx;sy] to [tx;ty] is done by XOR-ing {@link #key(int, int, int)} of both positions into the board key.
+ *
+ * Keys are not stored in any table but derived from the position on the fly (SplitMix64 finalizer), so they do not depend on the board size
+ * and the same entity on the same position has the same key within every board representation.
+ *
+ * @author Jimmy
+ */
+public class Zobrist {
+
+	/**
+	 * Entity id of the player.
+	 */
+	public static final int PLAYER = 0;
+
+	/**
+	 * Entity id of the box for representations that do not distinguish box colors; the same as box number of {@link game.board.oop.EEntity#BOX_1}.
+	 */
+	public static final int BOX = 1;
+
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Zobrist key of 'entity' standing at [x;y].
+	 * @param x
+	 * @param y
+	 * @param entity {@link #PLAYER} or box number (1-based, see {@link game.board.oop.EEntity#getBoxNum()}).
+	 * @return
+	 */
+	public static long key(int x, int y, int entity) {
+		long z = SEED * (((long)x << 24) ^ ((long)y << 8) ^ entity ^ 0x5851F42D4C957F2DL);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Key delta for 'entity' moving from [sourceX;sourceY] to [targetX;targetY]; XOR it into the board key.
+	 * @param sourceX
+	 * @param sourceY
+	 * @param targetX
+	 * @param targetY
+	 * @param entity
+	 * @return
+	 */
+	public static long move(int sourceX, int sourceY, int targetX, int targetY, int entity) {
+		return key(sourceX, sourceY, entity) ^ key(targetX, targetY, entity);
+	}
+
+	/**
+	 * Folds 64-bit key into {@link Object#hashCode()}.
+	 * @param key
+	 * @return
+	 */
+	public static int hash(long key) {
+		return (int)(key ^ (key >>> 32));
+	}
+
+}
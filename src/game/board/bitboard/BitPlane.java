@@ -0,0 +1,134 @@
+package game.board.bitboard;
+
+/**
+ * Static helpers for bit planes, i.e., <code>long[]</code> bitsets over board cells where cell [x;y] is the bit <code>y * width + x</code>.
+ *
+ * Shifts are "towards higher cell index" ({@link #shiftUp(long[], int, int)}) and "towards lower cell index" ({@link #shiftDown(long[], int, int)});
+ * shifting by 1 moves a cell to its RIGHT / LEFT neighbour, shifting by width moves it to its DOWN / UP neighbour.
+ *
+ * @author Jimmy
+ */
+public class BitPlane {
+
+	/**
+	 * How many longs do you need for 'cells' bits.
+	 * @param cells
+	 * @return
+	 */
+	public static int words(int cells) {
+		return (cells + 63) >>> 6;
+	}
+
+	public static boolean get(long[] plane, int cell) {
+		return (plane[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	public static void set(long[] plane, int cell) {
+		plane[cell >>> 6] |= 1L << cell;
+	}
+
+	public static void clear(long[] plane, int cell) {
+		plane[cell >>> 6] &= ~(1L << cell);
+	}
+
+	/**
+	 * Word 'word' of 'plane' shifted by 'n' bits towards higher cell indices, i.e., bit 'c' of the result is bit 'c-n' of 'plane'.
+	 * @param plane
+	 * @param word
+	 * @param n
+	 * @return
+	 */
+	public static long shiftUp(long[] plane, int word, int n) {
+		int src = word - (n >>> 6);
+		int r = n & 63;
+		long result = 0;
+		if (src >= 0 && src < plane.length) result = plane[src] << r;
+		if (r != 0 && src - 1 >= 0 && src - 1 < plane.length) result |= plane[src - 1] >>> (64 - r);
+		return result;
+	}
+
+	/**
+	 * Word 'word' of 'plane' shifted by 'n' bits towards lower cell indices, i.e., bit 'c' of the result is bit 'c+n' of 'plane'.
+	 * @param plane
+	 * @param word
+	 * @param n
+	 * @return
+	 */
+	public static long shiftDown(long[] plane, int word, int n) {
+		int src = word + (n >>> 6);
+		int r = n & 63;
+		long result = 0;
+		if (src >= 0 && src < plane.length) result = plane[src] >>> r;
+		if (r != 0 && src + 1 < plane.length) result |= plane[src + 1] << (64 - r);
+		return result;
+	}
+
+	/**
+	 * Whether 'a' and 'b' share at least one cell.
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static boolean intersects(long[] a, long[] b) {
+		for (int i = 0; i < a.length; ++i) {
+			if ((a[i] & b[i]) != 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Whether all cells of 'a' are within 'b', i.e., <code>a &amp; ~b == 0</code>.
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static boolean isSubset(long[] a, long[] b) {
+		for (int i = 0; i < a.length; ++i) {
+			if ((a[i] & ~b[i]) != 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Number of cells within 'plane'.
+	 * @param plane
+	 * @return
+	 */
+	public static int count(long[] plane) {
+		int result = 0;
+		for (int i = 0; i < plane.length; ++i) {
+			result += Long.bitCount(plane[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Lowest cell within 'plane' or -1 if empty.
+	 * @param plane
+	 * @return
+	 */
+	public static int first(long[] plane) {
+		for (int i = 0; i < plane.length; ++i) {
+			if (plane[i] != 0) return (i << 6) + Long.numberOfTrailingZeros(plane[i]);
+		}
+		return -1;
+	}
+
+	/**
+	 * Lowest cell within 'plane' that is &gt;= 'from' or -1 if there is none; iterate with <code>for (int c = first(p); c &gt;= 0; c = next(p, c+1))</code>.
+	 * @param plane
+	 * @param from
+	 * @return
+	 */
+	public static int next(long[] plane, int from) {
+		int i = from >>> 6;
+		if (i >= plane.length) return -1;
+		long word = plane[i] & (-1L << from);
+		while (true) {
+			if (word != 0) return (i << 6) + Long.numberOfTrailingZeros(word);
+			if (++i >= plane.length) return -1;
+			word = plane[i];
+		}
+	}
+
+}
@@ -0,0 +1,421 @@
+package game.board.bitboard;
+
+import game.board.Zobrist;
+import game.board.compact.BoardCompact;
+import game.board.compact.CTile;
+import game.board.oop.EEntity;
+import game.board.oop.EPlace;
+import game.board.oop.ESpace;
+
+/**
+ * Board as a set of bit planes ({@link BitPlane}): {@link #walls}, {@link #goals}, {@link #boxes} and the player region, cell [x;y] is the bit <code>y * width + x</code>.
+ * Ignores colors of boxes and places, i.e., can be used for levels with only one type of boxes and places.
+ *
+ * Most levels fit into 2-4 longs per plane, so:
+ * <ul>
+ * <li>player reachability ({@link #getReachable()}) is word-parallel shift-and-mask flood fill instead of per-tile BFS;</li>
+ * <li>{@link #isVictory()} is <code>boxes &amp; ~goals == 0</code>;</li>
+ * <li>dead-square check ({@link #isDead(long[])}) is <code>boxes &amp; dead != 0</code>.</li>
+ * </ul>
+ *
+ * Static planes ({@link #walls}, {@link #goals}) are shared between clones, do not modify them.
+ *
+ * {@link #hashCode()} is derived from {@link #getZobristKey()}, which is kept up-to-date incrementally by {@link #movePlayer(int, int, int, int)}
+ * and {@link #moveBox(int, int, int, int)}; call {@link #invalidateHash()} if you write into {@link #boxes} directly.
+ *
+ * @author Jimmy
+ */
+public class BoardBitboard {
+
+	private long zobrist;
+
+	private boolean zobristValid = false;
+
+	private int width;
+
+	private int height;
+
+	/**
+	 * Static; cells that are walls.
+	 */
+	public long[] walls;
+
+	/**
+	 * Static; cells that are box places.
+	 */
+	public long[] goals;
+
+	/**
+	 * Cells occupied by boxes.
+	 */
+	public long[] boxes;
+
+	public int playerX;
+	public int playerY;
+
+	public int boxCount;
+
+	/**
+	 * Static; cells with x != 0, used to mask out wrap-around of horizontal shifts.
+	 */
+	private long[] notFirstColumn;
+
+	/**
+	 * Static; cells with x != width-1, used to mask out wrap-around of horizontal shifts.
+	 */
+	private long[] notLastColumn;
+
+	/**
+	 * Cells reachable by the player; valid only if {@link #regionValid}.
+	 */
+	private long[] region;
+
+	private boolean regionValid = false;
+
+	private BoardBitboard() {
+	}
+
+	/**
+	 * Creates bitboard copy of 'board'.
+	 * @param board
+	 */
+	public BoardBitboard(BoardCompact board) {
+		width = board.width();
+		height = board.height();
+
+		int words = BitPlane.words(width * height);
+		walls = new long[words];
+		goals = new long[words];
+		boxes = new long[words];
+		region = new long[words];
+		notFirstColumn = new long[words];
+		notLastColumn = new long[words];
+
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				int cell = y * width + x;
+				int tile = board.tile(x, y);
+				if (CTile.isWall(tile)) BitPlane.set(walls, cell);
+				if (CTile.forSomeBox(tile)) BitPlane.set(goals, cell);
+				if (CTile.isSomeBox(tile)) BitPlane.set(boxes, cell);
+				if (x != 0) BitPlane.set(notFirstColumn, cell);
+				if (x != width - 1) BitPlane.set(notLastColumn, cell);
+			}
+		}
+
+		playerX = board.playerX;
+		playerY = board.playerY;
+		boxCount = board.boxCount;
+	}
+
+	@Override
+	public BoardBitboard clone() {
+		BoardBitboard result = new BoardBitboard();
+		result.width = width;
+		result.height = height;
+		result.walls = walls;
+		result.goals = goals;
+		result.notFirstColumn = notFirstColumn;
+		result.notLastColumn = notLastColumn;
+		result.boxes = boxes.clone();
+		result.region = new long[region.length];
+		if (regionValid) {
+			System.arraycopy(region, 0, result.region, 0, region.length);
+			result.regionValid = true;
+		}
+		result.playerX = playerX;
+		result.playerY = playerY;
+		result.boxCount = boxCount;
+		result.zobrist = zobrist;
+		result.zobristValid = zobristValid;
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		return Zobrist.hash(getZobristKey());
+	}
+
+	/**
+	 * 64-bit Zobrist key of the board (player + boxes positions), see {@link Zobrist}.
+	 * @return
+	 */
+	public long getZobristKey() {
+		if (!zobristValid) {
+			zobrist = computeZobristKey();
+			zobristValid = true;
+		}
+		return zobrist;
+	}
+
+	/**
+	 * Computes the Zobrist key from scratch.
+	 * @return
+	 */
+	public long computeZobristKey() {
+		long result = Zobrist.key(playerX, playerY, Zobrist.PLAYER);
+		for (int cell = BitPlane.first(boxes); cell >= 0; cell = BitPlane.next(boxes, cell + 1)) {
+			result ^= Zobrist.key(cell % width, cell / width, Zobrist.BOX);
+		}
+		return result;
+	}
+
+	/**
+	 * Forces {@link #getZobristKey()} (and {@link #hashCode()}) and {@link #getReachable()} to be recomputed; call after writing into {@link #boxes} directly.
+	 */
+	public void invalidateHash() {
+		zobristValid = false;
+		regionValid = false;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == null) return false;
+		if (this == obj) return true;
+		if (!(obj instanceof BoardBitboard)) return false;
+		BoardBitboard other = (BoardBitboard) obj;
+		if (obj.hashCode() != hashCode()) return false;
+		if (width != other.width || height != other.height) return false;
+		if (playerX != other.playerX || playerY != other.playerY) return false;
+		for (int i = 0; i < boxes.length; ++i) {
+			if (boxes[i] != other.boxes[i]) return false;
+		}
+		return true;
+	}
+
+	public int width() {
+		return width;
+	}
+
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * Bit index of the tile [x;y].
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int cell(int x, int y) {
+		return y * width + x;
+	}
+
+	public boolean isWall(int x, int y) {
+		return BitPlane.get(walls, y * width + x);
+	}
+
+	public boolean isGoal(int x, int y) {
+		return BitPlane.get(goals, y * width + x);
+	}
+
+	public boolean isBox(int x, int y) {
+		return BitPlane.get(boxes, y * width + x);
+	}
+
+	/**
+	 * Neither wall nor box (player does not count).
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isFree(int x, int y) {
+		int cell = y * width + x;
+		return !BitPlane.get(walls, cell) && !BitPlane.get(boxes, cell);
+	}
+
+	// ========
+	// MOVEMENT
+	// ========
+
+	public void movePlayer(int sourceTileX, int sourceTileY, int targetTileX, int targetTileY) {
+		playerX = targetTileX;
+		playerY = targetTileY;
+
+		// player stays within the region, so it remains valid
+
+		if (zobristValid) zobrist ^= Zobrist.move(sourceTileX, sourceTileY, targetTileX, targetTileY, Zobrist.PLAYER);
+	}
+
+	public void moveBox(int sourceTileX, int sourceTileY, int targetTileX, int targetTileY) {
+		BitPlane.clear(boxes, sourceTileY * width + sourceTileX);
+		BitPlane.set(boxes, targetTileY * width + targetTileX);
+
+		regionValid = false;
+
+		if (zobristValid) zobrist ^= Zobrist.move(sourceTileX, sourceTileY, targetTileX, targetTileY, Zobrist.BOX);
+	}
+
+	/**
+	 * Whether the board is in WIN-STATE == all boxes are in correct places, i.e., <code>boxes &amp; ~goals == 0</code>.
+	 * @return
+	 */
+	public boolean isVictory() {
+		return BitPlane.isSubset(boxes, goals);
+	}
+
+	/**
+	 * Number of boxes standing on their places.
+	 * @return
+	 */
+	public int getBoxInPlaceCount() {
+		int result = 0;
+		for (int i = 0; i < boxes.length; ++i) {
+			result += Long.bitCount(boxes[i] & goals[i]);
+		}
+		return result;
+	}
+
+	// ============
+	// REACHABILITY
+	// ============
+
+	/**
+	 * Cells reachable by the player (walls and boxes block), computed lazily by word-parallel flood fill.
+	 *
+	 * Returned plane is owned by the board, do not modify it; it gets recomputed after {@link #moveBox(int, int, int, int)}.
+	 *
+	 * @return
+	 */
+	public long[] getReachable() {
+		if (!regionValid) {
+			floodRegion();
+			regionValid = true;
+		}
+		return region;
+	}
+
+	/**
+	 * Whether the player can walk to [x;y].
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean isReachable(int x, int y) {
+		return BitPlane.get(getReachable(), y * width + x);
+	}
+
+	/**
+	 * Cell of the top-left-most tile reachable by the player; the same for all player positions within the region.
+	 * @return
+	 */
+	public int getNormalizedPlayerCell() {
+		return BitPlane.first(getReachable());
+	}
+
+	private void floodRegion() {
+		long[] r = region;
+		for (int i = 0; i < r.length; ++i) {
+			r[i] = 0;
+		}
+		BitPlane.set(r, playerY * width + playerX);
+
+		// grows in-place (new bits are always reachable cells), so rows can be swept multiple times per pass
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < r.length; ++i) {
+				long grown = r[i]
+						   | (BitPlane.shiftUp(r, i, 1) & notFirstColumn[i])   // from left neighbour
+						   | (BitPlane.shiftDown(r, i, 1) & notLastColumn[i])  // from right neighbour
+						   | BitPlane.shiftUp(r, i, width)                     // from upper neighbour
+						   | BitPlane.shiftDown(r, i, width);                  // from lower neighbour
+				grown &= ~walls[i] & ~boxes[i];
+				grown |= r[i];
+				if (grown != r[i]) {
+					r[i] = grown;
+					changed = true;
+				}
+			}
+		}
+	}
+
+	// =============
+	// DEAD SQUARES
+	// =============
+
+	/**
+	 * Whether some box stands on the cell of 'deadMask', i.e., <code>boxes &amp; deadMask != 0</code>.
+	 * @param deadMask
+	 * @return
+	 */
+	public boolean isDead(long[] deadMask) {
+		return BitPlane.intersects(boxes, deadMask);
+	}
+
+	/**
+	 * Mask of simple dead squares: non-goal non-wall cells in the corner (wall above or below AND wall left or right); a box pushed there can never move again.
+	 *
+	 * Computed word-parallel; out-of-board neighbours count as walls.
+	 *
+	 * @return
+	 */
+	public long[] computeCornerDeadMask() {
+		long[] result = new long[walls.length];
+		int cells = width * height;
+		for (int i = 0; i < result.length; ++i) {
+			long wallLeft  = (BitPlane.shiftUp(walls, i, 1) & notFirstColumn[i]) | ~notFirstColumn[i];
+			long wallRight = (BitPlane.shiftDown(walls, i, 1) & notLastColumn[i]) | ~notLastColumn[i];
+			long wallUp    = BitPlane.shiftUp(walls, i, width) | firstRowMask(i);
+			long wallDown  = BitPlane.shiftDown(walls, i, width) | lastRowMask(i, cells);
+			result[i] = (wallUp | wallDown) & (wallLeft | wallRight) & ~walls[i] & ~goals[i];
+		}
+		// drop bits past the last cell
+		int tail = cells & 63;
+		if (tail != 0) result[result.length - 1] &= (1L << tail) - 1;
+		return result;
+	}
+
+	private long firstRowMask(int word) {
+		return wordMask(word, 0, width);
+	}
+
+	private long lastRowMask(int word, int cells) {
+		return wordMask(word, cells - width, cells);
+	}
+
+	/**
+	 * Bits of cells [from;to) that fall into 'word'.
+	 */
+	private static long wordMask(int word, int from, int to) {
+		int lo = Math.max(from, word << 6);
+		int hi = Math.min(to, (word + 1) << 6);
+		if (lo >= hi) return 0;
+		long mask = hi - lo == 64 ? -1L : ((1L << (hi - lo)) - 1);
+		return mask << (lo & 63);
+	}
+
+	// ==========
+	// CONVERSION
+	// ==========
+
+	/**
+	 * Creates {@link BoardCompact} out of this board; all boxes / places are {@link EEntity#BOX_1} / {@link EPlace#BOX_1}.
+	 * @return
+	 */
+	public BoardCompact makeBoardCompact() {
+		BoardCompact result = new BoardCompact(width, height);
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				int cell = y * width + x;
+				int flag = BitPlane.get(walls, cell) ? ESpace.WALL.getFlag() : ESpace.FREE.getFlag();
+				flag |= BitPlane.get(goals, cell) ? EPlace.BOX_1.getFlag() : EPlace.NONE.getFlag();
+				if (BitPlane.get(boxes, cell)) flag |= EEntity.BOX_1.getFlag();
+				else if (x == playerX && y == playerY) flag |= EEntity.PLAYER.getFlag();
+				else flag |= EEntity.NONE.getFlag();
+				result.setTile(x, y, flag);
+			}
+		}
+		result.playerX = playerX;
+		result.playerY = playerY;
+		result.boxCount = boxCount;
+		result.boxInPlaceCount = getBoxInPlaceCount();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "BoardBitboard[" + width + "x" + height + ", boxes " + boxCount + "]";
+	}
+
+}
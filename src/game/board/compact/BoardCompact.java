@@ -1,5 +1,7 @@
 package game.board.compact;
 
+import game.board.Zobrist;
+import game.board.bitboard.BoardBitboard;
 import game.board.compressed.BoardCompressed;
 import game.board.compressed.MTile;
 import game.board.compressed.MTile.SubSlimTile;
@@ -10,18 +12,26 @@ import game.board.oop.EPlace;
 import game.board.oop.ESpace;
 import game.board.slim.BoardSlim;
 import game.board.slim.STile;
+import utils.TextLevelS4JL;
 
 /**
  * More memory-compact representation of OOP-bulky {@link Board}.
  * 
- * BEWARE: once {@link #hashCode()} is called and you use {@link #moveBox(int, int, int, int)} or {@link #movePlayer(int, int, int, int)} it will
- *         force {@link #hashCode()} recomputation.
+ * {@link #hashCode()} is derived from {@link #getZobristKey()} that is kept up-to-date incrementally by {@link #moveBox(int, int, int, int)}
+ * and {@link #movePlayer(int, int, int, int)}, i.e., hashing the board after an action costs O(1).
+ * 
+ * BEWARE: if you write into {@link #tiles} directly, call {@link #invalidateHash()} afterwards (or use {@link #setTile(int, int, int)}).
  * 
  * @author Jimmy
  */
 public class BoardCompact implements Cloneable {
 
-	private Integer hash = null;
+	/**
+	 * Zobrist key of entities on the board; meaningful only if {@link #zobristValid}.
+	 */
+	protected long zobrist;
+	
+	protected boolean zobristValid = false;
 	
 	/**
 	 * Compact representation of tiles.
@@ -34,7 +44,7 @@ public class BoardCompact implements Cloneable {
 	public int boxCount;
 	public int boxInPlaceCount;
 	
-	private BoardCompact() {
+	protected BoardCompact() {
 	}
 	
 	public BoardCompact(int width, int height) {
@@ -59,20 +69,52 @@ public class BoardCompact implements Cloneable {
 		result.playerY = playerY;
 		result.boxCount = boxCount;
 		result.boxInPlaceCount = boxInPlaceCount;
+		result.zobrist = zobrist;
+		result.zobristValid = zobristValid;
 		return result;
 	}
 	
 	@Override
 	public int hashCode() {
-		if (hash == null) {
-			hash = 0;
-			for (int x = 0; x < width(); ++x) {
-				for (int y = 0; y < height(); ++y) {
-					hash += (290317 * x + 97 * y) * tiles[x][y];
-				}		
+		return Zobrist.hash(getZobristKey());
+	}
+	
+	/**
+	 * 64-bit Zobrist key of the board (player + boxes positions), see {@link Zobrist}.
+	 * 
+	 * Computed by scanning the board the first time (or after {@link #invalidateHash()}), then maintained incrementally
+	 * by {@link #movePlayer(int, int, int, int)} and {@link #moveBox(int, int, int, int)}.
+	 * @return
+	 */
+	public long getZobristKey() {
+		if (!zobristValid) {
+			zobrist = computeZobristKey();
+			zobristValid = true;
+		}
+		return zobrist;
+	}
+	
+	/**
+	 * Computes the Zobrist key from scratch by scanning the whole board.
+	 * @return
+	 */
+	public long computeZobristKey() {
+		long result = 0;
+		for (int x = 0; x < width(); ++x) {
+			for (int y = 0; y < height(); ++y) {
+				int tile = tile(x, y);
+				if (CTile.isPlayer(tile)) result ^= Zobrist.key(x, y, Zobrist.PLAYER);
+				else if (CTile.isSomeBox(tile)) result ^= Zobrist.key(x, y, CTile.getBoxNum(tile));
 			}
 		}
-		return hash;
+		return result;
+	}
+	
+	/**
+	 * Forces {@link #getZobristKey()} (and {@link #hashCode()}) to be recomputed; call after writing into {@link #tiles} directly.
+	 */
+	public void invalidateHash() {
+		zobristValid = false;
 	}
 	
 	@Override
@@ -89,7 +131,7 @@ public class BoardCompact implements Cloneable {
 		if (width() != other.width() || height() != other.height()) return false;
 		for (int x = 0; x < width(); ++x) {
 			for (int y = 0; y < height(); ++y) {
-				if (tiles[x][y] != other.tiles[x][y]) return false;
+				if (tile(x, y) != other.tile(x, y)) return false;
 			}			
 		}
 		return true;
@@ -108,7 +150,18 @@ public class BoardCompact implements Cloneable {
 	}
 	
 	/**
-	 * Fair warning: by moving the player you're invalidating {@link #hashCode()}...
+	 * Overwrites the tile flag on [x;y]; no bookkeeping of {@link #boxCount} / {@link #boxInPlaceCount} / player position is done.
+	 * @param x
+	 * @param y
+	 * @param tileFlag
+	 */
+	public void setTile(int x, int y, int tileFlag) {
+		tiles[x][y] = tileFlag;
+		zobristValid = false;
+	}
+	
+	/**
+	 * Moves the player, updating {@link #getZobristKey()} incrementally.
 	 * @param sourceTileX
 	 * @param sourceTileY
 	 * @param targetTileX
@@ -126,11 +179,11 @@ public class BoardCompact implements Cloneable {
 		playerX = targetTileX;
 		playerY = targetTileY;
 		
-		hash = null;
+		if (zobristValid) zobrist ^= Zobrist.move(sourceTileX, sourceTileY, targetTileX, targetTileY, Zobrist.PLAYER);
 	}
 	
 	/**
-	 * Fair warning: by moving the box you're invalidating {@link #hashCode()}...
+	 * Moves the box, updating {@link #boxInPlaceCount} and {@link #getZobristKey()} incrementally.
 	 * @param sourceTileX
 	 * @param sourceTileY
 	 * @param targetTileX
@@ -152,7 +205,7 @@ public class BoardCompact implements Cloneable {
 		tiles[sourceTileX][sourceTileY] &= EEntity.NULLIFY_ENTITY_FLAG;
 		tiles[sourceTileX][sourceTileY] |= EEntity.NONE.getFlag();
 		
-		hash = null;
+		if (zobristValid) zobrist ^= Zobrist.move(sourceTileX, sourceTileY, targetTileX, targetTileY, boxNum);
 	}
 	
 	/**
@@ -173,8 +226,10 @@ public class BoardCompact implements Cloneable {
 		playerY = state.getY(state.positions[1]);
 		
 		for (int i = 1; i < state.positions.length; ++i) {
-			tiles[state.getX(state.positions[i])][state.getY(state.positions[i])] &= EEntity.BOX_1.getFlag();
-			if (CTile.forSomeBox(tiles[state.getX(state.positions[i])][state.getY(state.positions[i])])) ++boxInPlaceCount;
+			int x = state.getX(state.positions[i]);
+			int y = state.getY(state.positions[i]);
+			setTile(x, y, tile(x, y) & EEntity.BOX_1.getFlag());
+			if (CTile.forSomeBox(tile(x, y))) ++boxInPlaceCount;
 		}
 	}
 	
@@ -187,7 +242,9 @@ public class BoardCompact implements Cloneable {
 		playerY = -1;
 		boxInPlaceCount = -1;
 		for (int i = 1; i < state.positions.length; ++i) {
-			tiles[state.getX(state.positions[i])][state.getY(state.positions[i])] &= EEntity.NULLIFY_ENTITY_FLAG;
+			int x = state.getX(state.positions[i]);
+			int y = state.getY(state.positions[i]);
+			setTile(x, y, tile(x, y) & EEntity.NULLIFY_ENTITY_FLAG);
 		}
 	}
 	
@@ -209,9 +266,9 @@ public class BoardCompact implements Cloneable {
 		for (int y = 0; y < height(); ++y) {
 			if (y != 0) sb.append("\n");
 			for (int x = 0; x < width(); ++x) {
-				EEntity entity = EEntity.fromFlag(tiles[x][y]);
-				EPlace place = EPlace.fromFlag(tiles[x][y]);
-				ESpace space = ESpace.fromFlag(tiles[x][y]);
+				EEntity entity = EEntity.fromFlag(tile(x, y));
+				EPlace place = EPlace.fromFlag(tile(x, y));
+				ESpace space = ESpace.fromFlag(tile(x, y));
 				
 				if (entity != null && entity != EEntity.NONE) {
 					sb.append(entity.getSymbol());
@@ -230,6 +287,22 @@ public class BoardCompact implements Cloneable {
 		return sb.toString();
 	}
 	
+	/**
+	 * Creates {@link BoardCompactFlat} copy of this board, i.e., the same tile flags stored within single 1-D array.
+	 * @return
+	 */
+	public BoardCompactFlat makeBoardCompactFlat() {
+		return new BoardCompactFlat(this);
+	}
+	
+	/**
+	 * Creates {@link BoardBitboard} copy of this board (ignores box / place colors).
+	 * @return
+	 */
+	public BoardBitboard makeBoardBitboard() {
+		return new BoardBitboard(this);
+	}
+	
 	public BoardCompressed makeBoardCompressed() {
 		BoardCompressed result = new BoardCompressed(width(), height());
 		result.boxCount = boxCount;
@@ -311,6 +384,79 @@ public class BoardCompact implements Cloneable {
 		return result;
 	}
 	
+	/**
+	 * Throws {@link RuntimeException} if the board is invalid; the same checks as {@link Board#validate()}.
+	 */
+	public void validate() {
+		int playerCount = 0;
+		int placeCount = 0;
+		int boxCount = 0;
+		
+		// index 0 == places for any box, 1-6 == specific boxes
+		int[] specificBoxes = new int[7];
+		int[] specificPlaces = new int[7];
+		
+		for (int x = 0; x < width(); ++x) {
+			for (int y = 0; y < height(); ++y) {
+				int tile = tile(x, y);
+				if (CTile.isPlayer(tile)) ++playerCount;
+				if (CTile.forSomeBox(tile)) {
+					++placeCount;
+					++specificPlaces[EPlace.fromFlag(tile).getBoxNum()];
+				}
+				if (CTile.isSomeBox(tile)) {
+					++boxCount;
+					++specificBoxes[CTile.getBoxNum(tile)];
+				}
+			}
+		}
+		if (playerCount < 1) throw new RuntimeException("NO PLAYER ON THE BOARD");
+		if (playerCount > 1) throw new RuntimeException("MORE THAN 1 PLAYER ON THE BOARD");
+		if (boxCount <= 0) throw new RuntimeException("THERE ARE NO BOXES IN THE MAP");
+		if (boxCount != placeCount) throw new RuntimeException("BOX(" + boxCount + ") and TARGET BOX PLACES(" + placeCount + ") COUNT MISMATCH");
+		
+		int anyBox = 0;
+		for (int boxNum = 1; boxNum < specificBoxes.length; ++boxNum) {
+			if (specificBoxes[boxNum] > specificPlaces[boxNum]) anyBox += specificBoxes[boxNum] - specificPlaces[boxNum];
+		}
+		if (anyBox > 0 && anyBox > specificPlaces[EPlace.BOX_ANY.getBoxNum()]) {
+			throw new RuntimeException("Invalid/Incompatible combination of places for boxes.");
+		}
+	}
+	
+	/**
+	 * Creates the board straight from {@link TextLevelS4JL} description (using {@link CTile#fromSymbol(char)}), i.e., without creating OOP {@link Board}.
+	 * The board is not validated, see {@link #validate()}.
+	 * @param level
+	 * @return
+	 */
+	public static BoardCompact fromTextLevel(TextLevelS4JL level) {
+		if (level == null) throw new RuntimeException("Passed level is null.");
+		level.validate();
+		
+		BoardCompact result = new BoardCompact(level.getWidth(), level.getHeight());
+		result.boxCount = 0;
+		result.boxInPlaceCount = 0;
+		
+		for (int y = 0; y < level.getHeight(); ++y) {
+			String line = level.getMaze().get(y);
+			for (int x = 0; x < level.getWidth(); ++x) {
+				int tile = CTile.fromSymbol(line.charAt(x));
+				if (tile < 0) throw new RuntimeException("Unknown symbol '" + line.charAt(x) + "' at [" + x + ";" + y + "] in " + level.getName());
+				result.tiles[x][y] = tile;
+				if (CTile.isPlayer(tile)) {
+					result.playerX = x;
+					result.playerY = y;
+				} else
+				if (CTile.isSomeBox(tile)) {
+					++result.boxCount;
+					if (CTile.forAnyBox(tile) || CTile.forBox(CTile.getBoxNum(tile), tile)) ++result.boxInPlaceCount;
+				}
+			}
+		}
+		
+		return result;
+	}
 	
 	@Override
 	public String toString() {
@@ -0,0 +1,253 @@
+package game.board.compact;
+
+import game.actions.EDirection;
+import game.board.Zobrist;
+import game.board.oop.EEntity;
+
+/**
+ * {@link BoardCompact} variant that keeps all tile flags within single 1-D array {@link #cells} indexed by <code>y * width + x</code>.
+ *
+ * Uses the same tile flags as {@link BoardCompact}, so all {@link CTile} queries work unchanged; {@link #tile(int, int)} costs
+ * single array access and {@link #clone()} is single {@link System#arraycopy(Object, int, Object, int, int)}.
+ *
+ * Additionally provides "index" API ({@link #index(int, int)}, {@link #tileAt(int)}, {@link #offset(EDirection)}) so hot loops
+ * can step between neighbouring tiles by adding precomputed offsets instead of recomputing [x;y].
+ *
+ * BEWARE: inherited {@link BoardCompact#tiles} is NOT used (it is null) by this variant, always go through {@link #tile(int, int)}.
+ *
+ * @author Jimmy
+ */
+public class BoardCompactFlat extends BoardCompact {
+
+	/**
+	 * Tile flags, row by row; [x;y] is stored at <code>y * width + x</code>.
+	 */
+	public int[] cells;
+
+	private int width;
+
+	private int height;
+
+	/**
+	 * Index offsets to the neighbouring tile; indexed by {@link EDirection#index}.
+	 */
+	private int[] offsets;
+
+	private BoardCompactFlat() {
+	}
+
+	public BoardCompactFlat(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.cells = new int[width * height];
+		this.offsets = computeOffsets(width);
+	}
+
+	/**
+	 * Creates the flat copy of 'board'.
+	 * @param board
+	 */
+	public BoardCompactFlat(BoardCompact board) {
+		this(board.width(), board.height());
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				cells[y * width + x] = board.tile(x, y);
+			}
+		}
+		playerX = board.playerX;
+		playerY = board.playerY;
+		boxCount = board.boxCount;
+		boxInPlaceCount = board.boxInPlaceCount;
+	}
+
+	private static int[] computeOffsets(int width) {
+		int[] result = new int[EDirection.arrows().length];
+		for (EDirection dir : EDirection.arrows()) {
+			result[dir.index] = dir.dY * width + dir.dX;
+		}
+		return result;
+	}
+
+	@Override
+	public BoardCompactFlat clone() {
+		BoardCompactFlat result = new BoardCompactFlat();
+		result.width = width;
+		result.height = height;
+		result.offsets = offsets;
+		result.cells = new int[cells.length];
+		System.arraycopy(cells, 0, result.cells, 0, cells.length);
+		result.playerX = playerX;
+		result.playerY = playerY;
+		result.boxCount = boxCount;
+		result.boxInPlaceCount = boxInPlaceCount;
+		result.zobrist = zobrist;
+		result.zobristValid = zobristValid;
+		return result;
+	}
+
+	@Override
+	public boolean equalsState(BoardCompact other) {
+		if (!(other instanceof BoardCompactFlat)) return super.equalsState(other);
+		BoardCompactFlat flat = (BoardCompactFlat) other;
+		if (width != flat.width || height != flat.height) return false;
+		for (int index = 0; index < cells.length; ++index) {
+			if (cells[index] != flat.cells[index]) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int width() {
+		return width;
+	}
+
+	@Override
+	public int height() {
+		return height;
+	}
+
+	@Override
+	public int tile(int x, int y) {
+		return cells[y * width + x];
+	}
+
+	@Override
+	public void setTile(int x, int y, int tileFlag) {
+		cells[y * width + x] = tileFlag;
+		zobristValid = false;
+	}
+
+	// =========
+	// INDEX API
+	// =========
+
+	/**
+	 * Index of the tile [x;y] into {@link #cells}.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int index(int x, int y) {
+		return y * width + x;
+	}
+
+	/**
+	 * X coordinate of the tile 'index'.
+	 * @param index
+	 * @return
+	 */
+	public int getX(int index) {
+		return index % width;
+	}
+
+	/**
+	 * Y coordinate of the tile 'index'.
+	 * @param index
+	 * @return
+	 */
+	public int getY(int index) {
+		return index / width;
+	}
+
+	/**
+	 * Tile flag of the tile 'index'; see {@link CTile} for queries.
+	 * @param index
+	 * @return
+	 */
+	public int tileAt(int index) {
+		return cells[index];
+	}
+
+	/**
+	 * What to add to the tile index in order to get the index of the neighbouring tile in 'dir'.
+	 * @param dir
+	 * @return
+	 */
+	public int offset(EDirection dir) {
+		return offsets[dir.index];
+	}
+
+	/**
+	 * What to add to the tile index in order to get the index of the neighbouring tile in {@link EDirection#forIndex(int)}.
+	 * @param directionIndex
+	 * @return
+	 */
+	public int offset(int directionIndex) {
+		return offsets[directionIndex];
+	}
+
+	/**
+	 * Index of the player tile.
+	 * @return
+	 */
+	public int playerIndex() {
+		return playerY * width + playerX;
+	}
+
+	// ========
+	// MOVEMENT
+	// ========
+
+	@Override
+	public void movePlayer(int sourceTileX, int sourceTileY, int targetTileX, int targetTileY) {
+		movePlayerAt(sourceTileY * width + sourceTileX, targetTileY * width + targetTileX);
+	}
+
+	/**
+	 * {@link #movePlayer(int, int, int, int)} using tile indices.
+	 * @param source
+	 * @param target
+	 */
+	public void movePlayerAt(int source, int target) {
+		int entity = cells[source] & EEntity.SOME_ENTITY_FLAG;
+
+		cells[target] = (cells[target] & EEntity.NULLIFY_ENTITY_FLAG) | entity;
+		cells[source] = (cells[source] & EEntity.NULLIFY_ENTITY_FLAG) | EEntity.NONE.getFlag();
+
+		int targetX = target % width;
+		int targetY = target / width;
+
+		if (zobristValid) zobrist ^= Zobrist.move(source % width, source / width, targetX, targetY, Zobrist.PLAYER);
+
+		playerX = targetX;
+		playerY = targetY;
+	}
+
+	@Override
+	public void moveBox(int sourceTileX, int sourceTileY, int targetTileX, int targetTileY) {
+		moveBoxAt(sourceTileY * width + sourceTileX, targetTileY * width + targetTileX);
+	}
+
+	/**
+	 * {@link #moveBox(int, int, int, int)} using tile indices.
+	 * @param source
+	 * @param target
+	 */
+	public void moveBoxAt(int source, int target) {
+		int entity = cells[source] & EEntity.SOME_ENTITY_FLAG;
+		int boxNum = CTile.getBoxNum(cells[source]);
+
+		if (CTile.forBox(boxNum, cells[target]) || CTile.forAnyBox(cells[target])) {
+			++boxInPlaceCount;
+		}
+		cells[target] = (cells[target] & EEntity.NULLIFY_ENTITY_FLAG) | entity;
+
+		if (CTile.forBox(boxNum, cells[source]) || CTile.forAnyBox(cells[source])) {
+			--boxInPlaceCount;
+		}
+		cells[source] = (cells[source] & EEntity.NULLIFY_ENTITY_FLAG) | EEntity.NONE.getFlag();
+
+		if (zobristValid) zobrist ^= Zobrist.move(source % width, source / width, target % width, target / width, boxNum);
+	}
+
+	@Override
+	public BoardCompactFlat makeBoardCompactFlat() {
+		return clone();
+	}
+
+	@Override
+	public String toString() {
+		return "BoardCompactFlat[\n" + getBoardString() + "\n]";
+	}
+
+}
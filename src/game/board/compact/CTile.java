@@ -22,6 +22,11 @@ public class CTile {
 	private static final int placeAnyBox;
 	private static final int[] placeSpecificBox;
 	
+	/**
+	 * Level text symbol -> tileFlag; -1 for unknown symbols.
+	 */
+	private static final int[] symbolFlags;
+	
 	static {
 		spaceFree = ESpace.FREE.getFlag();
 		spaceWall = ESpace.WALL.getFlag();
@@ -39,6 +44,24 @@ public class CTile {
 		placeAnyBox = EPlace.BOX_ANY.getFlag();
 
 		placeSpecificBox = new int[]{0, EPlace.BOX_1.getFlag(), EPlace.BOX_2.getFlag(), EPlace.BOX_3.getFlag(), EPlace.BOX_4.getFlag(), EPlace.BOX_5.getFlag(), EPlace.BOX_6.getFlag() };
+		
+		symbolFlags = new int[128];
+		for (char c = 0; c < symbolFlags.length; ++c) {
+			String symbol = String.valueOf(c);
+			ESpace space = ESpace.fromSymbol(symbol);
+			EEntity entity = EEntity.fromSymbol(symbol);
+			EPlace place = EPlace.fromSymbol(symbol);
+			symbolFlags[c] = space == null || place == null ? -1 : space.getFlag() | (entity == null ? entityNone : entity.getFlag()) | place.getFlag();
+		}
+	}
+	
+	/**
+	 * Returns 'tileFlag' of the level text 'symbol' (the same as {@link Tile#computeTileFlag()} of the tile parsed from it); -1 for unknown symbols.
+	 * @param symbol
+	 * @return
+	 */
+	public static int fromSymbol(char symbol) {
+		return symbol < symbolFlags.length ? symbolFlags[symbol] : -1;
 	}
 	
 	private static boolean isThis(int whatFlag, int tileFlag) {
@@ -1,5 +1,6 @@
 package game.board.compressed;
 
+import game.board.Zobrist;
 import game.board.compact.BoardCompact;
 import game.board.compressed.MTile.SubSlimTile;
 import game.board.oop.EEntity;
@@ -12,10 +13,18 @@ import game.board.slim.BoardSlim;
  * Can be used for levels with only one type of boxes and places.
  * <br/>
  * Roughly 50% memory-wiser representation then {@link BoardSlim}, but slightly slower due to div/mod operations; see {@link MTile}.
+ * <br/>
+ * {@link #hashCode()} is derived from {@link #getZobristKey()}, which is kept up-to-date incrementally by {@link #movePlayer(int, int, int, int)}
+ * and {@link #moveBox(int, int, int, int)}; call {@link #invalidateHash()} if you write into {@link #tiles} directly.
  */
 public class BoardCompressed {
 	
-	private Integer hash = null;
+	/**
+	 * Zobrist key of entities on the board; meaningful only if {@link #zobristValid}. See {@link #getZobristKey()}.
+	 */
+	private long zobrist;
+	
+	private boolean zobristValid = false;
 	
 	/**
 	 * Each int is storing information about 4 tiles (2x2 square), therefore the dimension of the array is 1/4 than compared to other BoardXXX implementations.
@@ -61,21 +70,49 @@ public class BoardCompressed {
 		result.playerY = playerY;
 		result.boxCount = boxCount;
 		result.boxInPlaceCount = boxInPlaceCount;
-		result.hash = hash;
+		result.zobrist = zobrist;
+		result.zobristValid = zobristValid;
 		return result;
 	}
 	
 	@Override
 	public int hashCode() {
-		if (hash == null) {
-			hash = 0;
-			for (int x = 0; x < getCompressedWidth(); ++x) {
-				for (int y = 0; y < getCompressedHeight(); ++y) {
-					hash += (290317 * x + 97 * y) * tiles[x][y];
-				}			
+		return Zobrist.hash(getZobristKey());
+	}
+	
+	/**
+	 * 64-bit Zobrist key of the board (player + boxes positions), see {@link Zobrist}.
+	 * @return
+	 */
+	public long getZobristKey() {
+		if (!zobristValid) {
+			zobrist = computeZobristKey();
+			zobristValid = true;
+		}
+		return zobrist;
+	}
+	
+	/**
+	 * Computes the Zobrist key from scratch by scanning the whole board.
+	 * @return
+	 */
+	public long computeZobristKey() {
+		long result = 0;
+		for (int x = 0; x < width(); ++x) {
+			for (int y = 0; y < height(); ++y) {
+				SubSlimTile subSlimTile = MTile.getSubSlimTile(x, y);
+				if (MTile.isPlayer(subSlimTile, tile(x, y))) result ^= Zobrist.key(x, y, Zobrist.PLAYER);
+				else if (MTile.isBox(subSlimTile, tile(x, y))) result ^= Zobrist.key(x, y, Zobrist.BOX);
 			}
 		}
-		return hash;
+		return result;
+	}
+	
+	/**
+	 * Forces {@link #getZobristKey()} (and {@link #hashCode()}) to be recomputed; call after writing into {@link #tiles} directly.
+	 */
+	public void invalidateHash() {
+		zobristValid = false;
 	}
 	
 	@Override
@@ -134,6 +171,8 @@ public class BoardCompressed {
 		
 		playerX = targetTileX;
 		playerY = targetTileY;
+		
+		if (zobristValid) zobrist ^= Zobrist.move(sourceTileX, sourceTileY, targetTileX, targetTileY, Zobrist.PLAYER);
 	}
 	
 	public void moveBox(int sourceTileX, int sourceTileY, int targetTileX, int targetTileY) {
@@ -155,6 +194,8 @@ public class BoardCompressed {
 			--boxInPlaceCount;
 		}
 		tiles[stx][sty] &= sourceSubSlimTile.getNullifyEntityFlag();
+		
+		if (zobristValid) zobrist ^= Zobrist.move(sourceTileX, sourceTileY, targetTileX, targetTileY, Zobrist.BOX);
 	}
 	
 	/**
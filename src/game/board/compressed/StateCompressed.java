@@ -8,171 +8,170 @@ import game.board.slim.STile;
 
 /**
  * To be used for marking state of Sokoban board; can be used only for boards with single type of boxes.
- * 
- * Can be used for boards up-to 2^5x2^5 = 32x32 big.
- * 
+ *
+ * Positions (player first, then boxes) are stored as cell indices <code>x * height + y</code> packed into long[];
+ * bits per cell are derived from the board size (just enough for width * height cells), so the state stays small
+ * for small levels and still works for boards up-to {@link #MAX_SIZE}x{@link #MAX_SIZE} big.
+ *
+ * Hash is computed once during construction.
+ *
  * @author Jimmy
  */
 public class StateCompressed {
-	
-	/**
-	 * How many bits are we using for INT (x or y) representation.
-	 */
-	private static final int INT_SHIFT = 5;
-	
-	/**
-	 * How many positions ( (int,int) pairs ) can be fit into single int number;
-	 */
-	private static final int POSITIONS_IN_INT = 32 / (INT_SHIFT*2);
-	
+
 	/**
-	 * This number cannot be hold within our compressed representation.
+	 * Maximum width / height of the board.
 	 */
-	private static final int MAX_POSITION = 1 << INT_SHIFT;
-	
-	private int[] positions;
-	
-	private Integer hash;
-	
+	public static final int MAX_SIZE = 255;
+
+	private long[] positions;
+
+	private int hash;
+
 	/**
 	 * Creates the state out of the 'board' assuming there are certain number of 'boxes'.
 	 * @param board
 	 * @param boxes
 	 */
 	public StateCompressed(BoardCompact board, int boxes) {
-		positions = new int[(boxes+1) / (POSITIONS_IN_INT) + ((((boxes+1) / (POSITIONS_IN_INT)) % POSITIONS_IN_INT) == 0 ? 0 : 1)];
-		
-		for (int i = 0; i < positions.length; ++i) {
-			positions[i] = 0;
-		}
-		
-		positions[0] = addPosition(0, board.playerX, board.playerY);
-		
-		int positionIndex = 0;
-		int positionNum = 1;
-		
-		for (int x = 0; x < board.width(); ++x) {
-			for (int y = 0; y < board.height(); ++y) {
+		int width = board.width();
+		int height = board.height();
+		int bits = getCellBits(width, height);
+
+		positions = allocate(width, height, boxes);
+		int num = addPosition(positions, 0, bits, board.playerX * height + board.playerY);
+
+		for (int x = 0; x < width; ++x) {
+			for (int y = 0; y < height; ++y) {
 				if (CTile.isSomeBox(board.tile(x, y))) {
-					positions[positionIndex] = addPosition(positions[positionIndex], x, y);
-					++positionNum;
-					if (positionNum == POSITIONS_IN_INT) {
-						++positionIndex;
-						positionNum = 0;
-					}
+					num = addPosition(positions, num, bits, x * height + y);
 				}
 			}
 		}
+
+		hash = computeHash(positions);
 	}
-	
+
 	/**
 	 * Creates the state out of the 'board' assuming there are certain number of 'boxes'.
 	 * @param board
 	 * @param boxes
 	 */
 	public StateCompressed(BoardSlim board, int boxes) {
-		positions = new int[(boxes+1) / (POSITIONS_IN_INT) + ((((boxes+1) / (POSITIONS_IN_INT)) % POSITIONS_IN_INT) == 0 ? 0 : 1)];
-		
-		for (int i = 0; i < positions.length; ++i) {
-			positions[i] = 0;
-		}
-		
-		positions[0] = addPosition(0, board.playerX, board.playerY);
-		
-		int positionIndex = 0;
-		int positionNum = 1;
-		
-		for (int x = 0; x < board.width(); ++x) {
-			for (int y = 0; y < board.height(); ++y) {
+		// BoardSlim.width() / height() are bytes, which would overflow for boards wider than 127
+		int width = board.tiles.length;
+		int height = board.tiles[0].length;
+		int bits = getCellBits(width, height);
+
+		positions = allocate(width, height, boxes);
+		int num = addPosition(positions, 0, bits, (board.playerX & 0xFF) * height + (board.playerY & 0xFF));
+
+		for (int x = 0; x < width; ++x) {
+			for (int y = 0; y < height; ++y) {
 				if (STile.isBox(board.tile(x, y))) {
-					positions[positionIndex] = addPosition(positions[positionIndex], x, y);
-					++positionNum;
-					if (positionNum == POSITIONS_IN_INT) {
-						++positionIndex;
-						positionNum = 0;
-					}
+					num = addPosition(positions, num, bits, x * height + y);
 				}
 			}
 		}
+
+		hash = computeHash(positions);
 	}
-	
+
 	/**
 	 * Creates the state out of the 'board' assuming there are certain number of 'boxes'.
 	 * @param board
 	 * @param boxes
 	 */
 	public StateCompressed(BoardCompressed board, int boxes) {
-		positions = new int[(boxes+1) / (POSITIONS_IN_INT) + ((((boxes+1) / (POSITIONS_IN_INT)) % POSITIONS_IN_INT) == 0 ? 0 : 1)];
-		
-		for (int i = 0; i < positions.length; ++i) {
-			positions[i] = 0;
-		}
-		
-		positions[0] = addPosition(0, board.playerX, board.playerY);
-		
-		int positionIndex = 0;
-		int positionNum = 1;
-		
-		for (int x = 0; x < board.width(); ++x) {
-			for (int y = 0; y < board.height(); ++y) {
+		int width = board.width();
+		int height = board.height();
+		int bits = getCellBits(width, height);
+
+		positions = allocate(width, height, boxes);
+		int num = addPosition(positions, 0, bits, board.playerX * height + board.playerY);
+
+		for (int x = 0; x < width; ++x) {
+			for (int y = 0; y < height; ++y) {
 				SubSlimTile subSlimTile = MTile.getSubSlimTile(x, y);
 				if (MTile.isBox(subSlimTile, board.tile(x, y))) {
-					positions[positionIndex] = addPosition(positions[positionIndex], x, y);
-					++positionNum;
-					if (positionNum == POSITIONS_IN_INT) {
-						++positionIndex;
-						positionNum = 0;
-					}
+					num = addPosition(positions, num, bits, x * height + y);
 				}
 			}
 		}
+
+		hash = computeHash(positions);
+	}
+
+	/**
+	 * How many bits you need to store any cell index (x * height + y) of width x height board.
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	public static int getCellBits(int width, int height) {
+		int cells = width * height;
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(cells - 1));
+	}
+
+	private static long[] allocate(int width, int height, int boxes) {
+		if (width > MAX_SIZE || height > MAX_SIZE) {
+			throw new RuntimeException("Board " + width + "x" + height + " is too big for StateCompressed, max " + MAX_SIZE + "x" + MAX_SIZE + ".");
+		}
+		int cellsInLong = 64 / getCellBits(width, height);
+		return new long[(boxes + 1 + cellsInLong - 1) / cellsInLong];
 	}
-	
-	public int hashCode() {
-		if (hash == null) {
-			hash = 0;
-			int[] coefs = new int[] { 290317, 97 };
-			int coef = 0;
-			for (int p : positions) {
-				hash += coefs[coef % 2] * p;
-				++coef;
-			}
+
+	/**
+	 * Writes 'cell' as 'num'-th position.
+	 * @return num + 1
+	 */
+	private static int addPosition(long[] positions, int num, int bits, int cell) {
+		int cellsInLong = 64 / bits;
+		int index = num / cellsInLong;
+		if (index >= positions.length) {
+			throw new RuntimeException("There are more boxes on the board than expected, already packed " + (num - 1) + " boxes.");
 		}
+		positions[index] |= ((long)cell) << ((num % cellsInLong) * bits);
+		return num + 1;
+	}
+
+	private static int computeHash(long[] positions) {
+		long h = positions.length;
+		for (int i = 0; i < positions.length; ++i) {
+			h = (h ^ positions[i]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		return (int)(h ^ (h >>> 32));
+	}
+
+	public int hashCode() {
 		return hash;
 	}
-	
+
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == null) return false;
 		if (this == obj) return true;
-		if (obj.hashCode() != hashCode()) return false;		
+		if (obj.hashCode() != hashCode()) return false;
 		if (!(obj instanceof StateCompressed)) return false;
-		StateCompressed other = (StateCompressed) obj;		
+		StateCompressed other = (StateCompressed) obj;
 		if (positions.length != other.positions.length) return false;
 		for (int index = 0; index < positions.length; ++index) {
 			if (positions[index] != other.positions[index]) return false;
 		}
 		return true;
 	}
-	
-	private int addPosition(int position, int x, int y) {
-		position <<= INT_SHIFT;
-		position |= x;
-		position <<= INT_SHIFT;
-		position |= y;
-		return position;
-	}
-	
+
 	public static boolean isAvailableFor(BoardCompact board) {
-		return board.width() < MAX_POSITION && board.height() < MAX_POSITION;
+		return board.width() <= MAX_SIZE && board.height() <= MAX_SIZE;
 	}
-	
+
 	public static boolean isAvailableFor(BoardSlim board) {
-		return board.width() < MAX_POSITION && board.height() < MAX_POSITION;
+		return board.tiles.length <= MAX_SIZE && board.tiles[0].length <= MAX_SIZE;
 	}
-	
+
 	public static boolean isAvailableFor(BoardCompressed board) {
-		return board.width() < MAX_POSITION && board.height() < MAX_POSITION;
+		return board.width() <= MAX_SIZE && board.height() <= MAX_SIZE;
 	}
-	
+
 }
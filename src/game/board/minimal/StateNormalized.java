@@ -0,0 +1,227 @@
+package game.board.minimal;
+
+import game.board.compact.BoardCompact;
+import game.board.compact.CTile;
+
+/**
+ * Canonical push-level state of the Sokoban board: sorted box positions + the top-left-most tile the player can reach.
+ *
+ * Unlike {@link StateMinimal}, two boards that differ only in where the player stands within the same reachable area
+ * produce EQUAL states, which is what you want for the closed list of push-optimal solvers.
+ *
+ * Tiles are encoded as cell indices <code>y * width + x</code> (16 bits each, i.e., board up-to 65536 tiles), four per long:
+ * <ul>
+ * <li>cell #0 = normalized player cell;</li>
+ * <li>cell #n (n&gt;0) = n-th box cell, ascending.</li>
+ * </ul>
+ * Hash is computed once in the constructor.
+ *
+ * Cannot be used with multicolored-boxes.
+ *
+ * @author Jimmy
+ */
+public class StateNormalized {
+
+	private static final int CELL_BITS = 16;
+
+	private static final int CELLS_IN_LONG = 64 / CELL_BITS;
+
+	private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+	/**
+	 * Board cannot have more tiles than this.
+	 */
+	public static final int MAX_CELLS = 1 << CELL_BITS;
+
+	/**
+	 * Packed cells, see class javadoc.
+	 */
+	public final long[] packed;
+
+	private final int cellCount;
+
+	private final int hash;
+
+	/**
+	 * Extract normalized state from 'board'; floods the player area on its own.
+	 * @param board
+	 */
+	public StateNormalized(BoardCompact board) {
+		this(board, getNormalizedPlayerCell(board));
+	}
+
+	/**
+	 * Extract normalized state from 'board' using already known normalized player cell (e.g. from agents.actions.ActionsBFS#findReachable).
+	 * @param board
+	 * @param playerCell index of the top-left-most tile reachable by the player
+	 */
+	public StateNormalized(BoardCompact board, int playerCell) {
+		int width = board.width();
+		int height = board.height();
+		if (width * height > MAX_CELLS) throw new RuntimeException("Board " + width + "x" + height + " is too big for StateNormalized, max " + MAX_CELLS + " tiles.");
+
+		cellCount = 1 + board.boxCount;
+		packed = new long[getKeyLongs(board.boxCount)];
+
+		setCell(0, playerCell);
+
+		// row-major scan => boxes come out sorted by cell index
+		int cell = 1;
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				if (CTile.isSomeBox(board.tile(x, y))) {
+					setCell(cell, y * width + x);
+					++cell;
+				}
+			}
+		}
+
+		hash = computeHash();
+	}
+
+	/**
+	 * Creates the state directly out of cell indices.
+	 * @param playerCell normalized player cell
+	 * @param boxCells box cells, MUST BE sorted ascending
+	 */
+	public StateNormalized(int playerCell, int[] boxCells) {
+		cellCount = 1 + boxCells.length;
+		packed = pack(playerCell, boxCells, new long[getKeyLongs(boxCells.length)]);
+		hash = computeHash();
+	}
+
+	/**
+	 * How many longs does the state with 'boxes' boxes occupy.
+	 * @param boxes
+	 * @return
+	 */
+	public static int getKeyLongs(int boxes) {
+		return (1 + boxes + CELLS_IN_LONG - 1) / CELLS_IN_LONG;
+	}
+
+	/**
+	 * Packs the state into 'result' (at least {@link #getKeyLongs(int)} long) the same way {@link #packed} is; allows to build keys without allocations.
+	 * @param playerCell normalized player cell
+	 * @param boxCells box cells, MUST BE sorted ascending
+	 * @param result
+	 * @return 'result'
+	 */
+	public static long[] pack(int playerCell, int[] boxCells, long[] result) {
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = 0;
+		}
+		setCell(result, 0, playerCell);
+		for (int i = 0; i < boxCells.length; ++i) {
+			setCell(result, i + 1, boxCells[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads 'i'-th cell out of 'packed' state; #0 is the player, #n (n&gt;0) is (n-1)-th box.
+	 * @param packed
+	 * @param i
+	 * @return
+	 */
+	public static int unpack(long[] packed, int i) {
+		return (int)((packed[i / CELLS_IN_LONG] >>> ((i % CELLS_IN_LONG) * CELL_BITS)) & CELL_MASK);
+	}
+
+	private void setCell(int i, int cell) {
+		setCell(packed, i, cell);
+	}
+
+	private static void setCell(long[] packed, int i, int cell) {
+		packed[i / CELLS_IN_LONG] |= (cell & CELL_MASK) << ((i % CELLS_IN_LONG) * CELL_BITS);
+	}
+
+	private int getCell(int i) {
+		return unpack(packed, i);
+	}
+
+	private int computeHash() {
+		long h = cellCount;
+		for (int i = 0; i < packed.length; ++i) {
+			h = (h ^ packed[i]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		return (int)(h ^ (h >>> 32));
+	}
+
+	/**
+	 * Index (y * width + x) of the top-left-most tile reachable by the player.
+	 * @param board
+	 * @return
+	 */
+	public static int getNormalizedPlayerCell(BoardCompact board) {
+		int width = board.width();
+		int height = board.height();
+		boolean[] touched = new boolean[width * height];
+		int[] queue = new int[touched.length];
+		int head = 0;
+		int tail = 0;
+
+		int min = board.playerY * width + board.playerX;
+		queue[tail++] = min;
+		touched[min] = true;
+
+		while (head < tail) {
+			int cell = queue[head++];
+			if (cell < min) min = cell;
+			int x = cell % width;
+			int y = cell / width;
+			if (y > 0        && CTile.isWalkable(board.tile(x, y-1)) && !touched[cell-width]) { touched[cell-width] = true; queue[tail++] = cell-width; }
+			if (x < width-1  && CTile.isWalkable(board.tile(x+1, y)) && !touched[cell+1])     { touched[cell+1] = true;     queue[tail++] = cell+1;     }
+			if (y < height-1 && CTile.isWalkable(board.tile(x, y+1)) && !touched[cell+width]) { touched[cell+width] = true; queue[tail++] = cell+width; }
+			if (x > 0        && CTile.isWalkable(board.tile(x-1, y)) && !touched[cell-1])     { touched[cell-1] = true;     queue[tail++] = cell-1;     }
+		}
+
+		return min;
+	}
+
+	/**
+	 * Index (y * width + x) of the normalized player tile.
+	 * @return
+	 */
+	public int getPlayerCell() {
+		return getCell(0);
+	}
+
+	public int getBoxCount() {
+		return cellCount - 1;
+	}
+
+	/**
+	 * Index (y * width + x) of the 'i'-th box (0-based, ascending).
+	 * @param i
+	 * @return
+	 */
+	public int getBoxCell(int i) {
+		return getCell(i + 1);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == null) return false;
+		if (this == obj) return true;
+		if (!(obj instanceof StateNormalized)) return false;
+		StateNormalized other = (StateNormalized) obj;
+		if (hash != other.hash) return false;
+		if (cellCount != other.cellCount) return false;
+		for (int index = 0; index < packed.length; ++index) {
+			if (packed[index] != other.packed[index]) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "StateNormalized[" + hash + "]";
+	}
+
+}
@@ -8,11 +8,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import game.ELevelFormat;
 import game.board.compact.BoardCompact;
 import game.board.oop.entities.BoxEntity;
 import game.board.oop.entities.Entity;
 import game.board.oop.entities.EntityFactory;
 import game.board.oop.entities.PlayerEntity;
+import utils.LevelPack;
 import utils.S4JLReader;
 import utils.SokReader;
 import utils.TextLevelS4JL;
@@ -86,6 +88,7 @@ public class Board implements Cloneable {
 		Board result = new Board(width, height);
 		
 		result.level = level;
+		result.minMoves = minMoves;
 		
 		result.boxes = new ArrayList<BoxEntity>(boxes.size());
 		
@@ -283,7 +286,7 @@ public class Board implements Cloneable {
 	 * Creates the board from the data given by reader (expects .s4jl format).
 	 * @param levelName 
 	 * @param textReader
-	 * @param levelNumber level number to load; 1-based
+	 * @param levelNumber level number to load; 1-based, numbers below 1 load the first level
 	 * @return
 	 */
 	public static Board fromReaderS4JL(String levelName, Reader textReader, int levelNumber) {
@@ -302,14 +305,46 @@ public class Board implements Cloneable {
 	}
 	
 	/**
-	 * Creates the board from file .sok; reads 'levelNumber'-th level (1-based).
+	 * Creates the board from 'file' of given 'format'; reads 'levelNumber'-th level (1-based).
+	 * @param file
+	 * @param format
+	 * @param levelNumber level number to load; 1-based
+	 * @return
+	 */
+	public static Board fromFile(File file, ELevelFormat format, int levelNumber) {
+		if (format == null) throw new RuntimeException("Unknown level format of: " + file.getAbsolutePath());
+		switch (format) {
+		case S4JL: return fromFileS4JL(file, levelNumber);
+		case SOK: return fromFileSok(file, levelNumber);
+		case S4JP: return fromFileS4JP(file, levelNumber);
+		default:
+			throw new RuntimeException("Unsupported level format " + format + " of: " + file.getAbsolutePath());
+		}
+	}
+	
+	/**
+	 * Creates the board from level pack .s4jp (see {@link LevelPack}); reads 'levelNumber'-th level (1-based) without parsing preceding levels.
 	 * @param file
 	 * @param levelNumber level number to load; 1-based
 	 * @return
 	 */
+	public static Board fromFileS4JP(File file, int levelNumber) {
+		return new LevelPack(file).getBoard(levelNumber);
+	}
+	
+	/**
+	 * Creates the board from file .sok; reads 'levelNumber'-th level (1-based).
+	 * @param file
+	 * @param levelNumber level number to load; 1-based, numbers below 1 load the first level
+	 * @return
+	 */
 	public static Board fromFileSok(File file, int levelNumber) {
 		try {
-			return fromReaderSok(file.getName(), new FileReader(file), levelNumber);
+			// index of the file is cached, the level is read directly
+			SokReader reader = new SokReader(file);
+			TextLevelS4JL level = reader.readLevel(Math.max(1, levelNumber));
+			reader.close();
+			return fromTextLevel(level);
 		} catch (Exception e) {
 			throw new RuntimeException("Failed to load Board from '" + file.getAbsolutePath() + "'.", e);
 		}
@@ -319,25 +354,44 @@ public class Board implements Cloneable {
 	 * Creates the board from the data given by reader (expects .sok format).
 	 * @param levelName
 	 * @param textReader
-	 * @param levelNumber level number to load; 1-based
+	 * @param levelNumber level number to load; 1-based, numbers below 1 load the first level
 	 * @return
 	 */
 	public static Board fromReaderSok(String levelName, Reader textReader, int levelNumber) {
 		// INIT READER
 		SokReader reader = new SokReader(levelName, textReader);
 		
-		// FIND CORRECT LEVEL
-		for (int i = 1; i < levelNumber; ++i) {
-			reader.readNext();
-		}
 		// EXTRACT LEVEL DATA
-		TextLevelS4JL level = reader.readNext();
+		TextLevelS4JL level = reader.readLevel(Math.max(1, levelNumber));
 		reader.close();
 		
 		// PARSE LEVEL DATA
 		return fromTextLevel(level);
 	}
 	
+	/**
+	 * Creates the board from its compact representation using {@link Tile#fromFlag(int, int, int)} descriptions; {@link #level} and {@link #minMoves} are not known.
+	 * @param compact
+	 * @return
+	 */
+	public static Board fromBoardCompact(BoardCompact compact) {
+		Board board = new Board(compact.width(), compact.height());
+		
+		for (int x = 0; x < board.width; ++x) {
+			for (int y = 0; y < board.height; ++y) {
+				int flag = compact.tile(x, y);
+				Tile tile = board.tile(x, y);
+				tile.space = ESpace.fromFlag(flag);
+				tile.entity = EntityFactory.createEntity(EEntity.fromFlag(flag), tile);
+				tile.place = EPlace.fromFlag(flag);
+			}
+		}
+		
+		board.initEntities();
+		
+		return board;
+	}
+	
 	/**
 	 * Creates the board from {@link TextLevelS4JL} description.
 	 * @param level
@@ -364,11 +418,7 @@ public class Board implements Cloneable {
 			
         board.initEntities();
         
-        for (String comment : level.getComments()) {
-            String[] a = comment.split(":");
-            if (a[0].trim().equals("Moves") && a.length > 1)
-                board.minMoves = Integer.parseInt(a[1].trim());
-        }
+        board.minMoves = level.getMinMoves();
 			
 		return board;
 	}
@@ -1,19 +1,26 @@
 package game.board.slim;
 
+import game.board.Zobrist;
 import game.board.compact.BoardCompact;
 import game.board.oop.EEntity;
 import game.board.oop.EPlace;
 import game.board.oop.ESpace;
+import utils.TextLevelS4JL;
 
 /**
  * Even more compact board than {@link BoardCompact}. Ignores colors of boxes and places.
  * Can be used for levels with only one type of boxes and places.
  * <br/>
  * Roughly 50% memory-wiser representation then {@link BoardCompact}.
+ * <br/>
+ * {@link #hashCode()} is derived from {@link #getZobristKey()}, which is kept up-to-date incrementally by {@link #movePlayer(byte, byte, byte, byte)}
+ * and {@link #moveBox(byte, byte, byte, byte)}; call {@link #invalidateHash()} if you write into {@link #tiles} directly.
  */
 public class BoardSlim {
 	
-	private Integer hash = null;
+	private long zobrist;
+	
+	private boolean zobristValid = false;
 	
 	public byte[][] tiles;
 	
@@ -48,21 +55,48 @@ public class BoardSlim {
 		result.playerY = playerY;
 		result.boxCount = boxCount;
 		result.boxInPlaceCount = boxInPlaceCount;
-		result.hash = hash;
+		result.zobrist = zobrist;
+		result.zobristValid = zobristValid;
 		return result;
 	}
 	
 	@Override
 	public int hashCode() {
-		if (hash == null) {
-			hash = 0;
-			for (byte x = 0; x < width(); ++x) {
-				for (byte y = 0; y < height(); ++y) {
-					hash += (290317 * x + 97 * y) * tiles[x][y];
-				}			
+		return Zobrist.hash(getZobristKey());
+	}
+	
+	/**
+	 * 64-bit Zobrist key of the board (player + boxes positions), see {@link Zobrist}.
+	 * @return
+	 */
+	public long getZobristKey() {
+		if (!zobristValid) {
+			zobrist = computeZobristKey();
+			zobristValid = true;
+		}
+		return zobrist;
+	}
+	
+	/**
+	 * Computes the Zobrist key from scratch by scanning the whole board.
+	 * @return
+	 */
+	public long computeZobristKey() {
+		long result = 0;
+		for (int x = 0; x < width(); ++x) {
+			for (int y = 0; y < height(); ++y) {
+				if (STile.isPlayer(tiles[x][y])) result ^= Zobrist.key(x, y, Zobrist.PLAYER);
+				else if (STile.isBox(tiles[x][y])) result ^= Zobrist.key(x, y, Zobrist.BOX);
 			}
 		}
-		return hash;
+		return result;
+	}
+	
+	/**
+	 * Forces {@link #getZobristKey()} (and {@link #hashCode()}) to be recomputed; call after writing into {@link #tiles} directly.
+	 */
+	public void invalidateHash() {
+		zobristValid = false;
 	}
 	
 	@Override
@@ -108,6 +142,8 @@ public class BoardSlim {
 		
 		playerX = targetTileX;
 		playerY = targetTileY;
+		
+		if (zobristValid) zobrist ^= Zobrist.move(sourceTileX, sourceTileY, targetTileX, targetTileY, Zobrist.PLAYER);
 	}
 	
 	public void moveBox(byte sourceTileX, byte sourceTileY, byte targetTileX, byte targetTileY) {
@@ -124,6 +160,8 @@ public class BoardSlim {
 		}
 		tiles[sourceTileX][sourceTileY] &= STile.NULLIFY_ENTITY_FLAG;
 		tiles[sourceTileX][sourceTileY] |= STile.NONE_FLAG;
+		
+		if (zobristValid) zobrist ^= Zobrist.move(sourceTileX, sourceTileY, targetTileX, targetTileY, Zobrist.BOX);
 	}
 	
 	/**
@@ -135,6 +173,43 @@ public class BoardSlim {
 		return boxCount == boxInPlaceCount;
 	}
 	
+	/**
+	 * Creates the board straight from {@link TextLevelS4JL} description (using {@link STile#fromSymbol(char)}), i.e., without creating OOP or compact board.
+	 * Specific box/place numbers are lost as with {@link BoardCompact#makeBoardSlim()}.
+	 * @param level
+	 * @return
+	 */
+	public static BoardSlim fromTextLevel(TextLevelS4JL level) {
+		if (level == null) throw new RuntimeException("Passed level is null.");
+		level.validate();
+		if (level.getWidth() > Byte.MAX_VALUE || level.getHeight() > Byte.MAX_VALUE) {
+			throw new RuntimeException("Level too big for BoardSlim: " + level.getName());
+		}
+		
+		BoardSlim result = new BoardSlim((byte)level.getWidth(), (byte)level.getHeight());
+		result.boxCount = 0;
+		result.boxInPlaceCount = 0;
+		
+		for (int y = 0; y < level.getHeight(); ++y) {
+			String line = level.getMaze().get(y);
+			for (int x = 0; x < level.getWidth(); ++x) {
+				byte tile = STile.fromSymbol(line.charAt(x));
+				if (tile < 0) throw new RuntimeException("Unknown symbol '" + line.charAt(x) + "' at [" + x + ";" + y + "] in " + level.getName());
+				result.tiles[x][y] = tile;
+				if (STile.isPlayer(tile)) {
+					result.playerX = (byte)x;
+					result.playerY = (byte)y;
+				} else
+				if (STile.isBox(tile)) {
+					++result.boxCount;
+					if (STile.forBox(tile)) ++result.boxInPlaceCount;
+				}
+			}
+		}
+		
+		return result;
+	}
+	
 	public void debugPrint() {
 		for (int y = 0; y < height(); ++y) {
 			for (int x = 0; x < width(); ++x) {
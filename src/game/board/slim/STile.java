@@ -1,5 +1,9 @@
 package game.board.slim;
 
+import game.board.oop.EEntity;
+import game.board.oop.EPlace;
+import game.board.oop.ESpace;
+
 public class STile {
 
 	public static final byte NONE_FLAG = 0;
@@ -13,6 +17,31 @@ public class STile {
 	
 	public static final byte NULLIFY_ENTITY_FLAG = PLACE_FLAG | WALL_FLAG;
 	
+	/**
+	 * Level text symbol -> tileSlimFlag; -1 for unknown symbols.
+	 */
+	private static final byte[] symbolFlags;
+	
+	static {
+		symbolFlags = new byte[128];
+		for (char c = 0; c < symbolFlags.length; ++c) {
+			String symbol = String.valueOf(c);
+			ESpace space = ESpace.fromSymbol(symbol);
+			EEntity entity = EEntity.fromSymbol(symbol);
+			EPlace place = EPlace.fromSymbol(symbol);
+			symbolFlags[c] = space == null || place == null ? -1 : (byte)(space.getSlimFlag() | (entity == null ? NONE_FLAG : entity.getSlimFlag()) | place.getSlimFlag());
+		}
+	}
+	
+	/**
+	 * Returns 'tileSlimFlag' of the level text 'symbol'; -1 for unknown symbols.
+	 * @param symbol
+	 * @return
+	 */
+	public static byte fromSymbol(char symbol) {
+		return symbol < symbolFlags.length ? symbolFlags[symbol] : -1;
+	}
+	
 	private static boolean isThis(byte whatFlag, byte tileSlimFlag) {
 		return (whatFlag & tileSlimFlag) != 0;
 	}
@@ -0,0 +1,115 @@
+package tournament;
+
+import game.SokobanResult;
+import game.SokobanResultType;
+
+/**
+ * Figures of one level of {@link SokobanBenchmark}; a line of the baseline file, see {@link #HEADER}.
+ * 
+ * Levels are identified by the NAME of the level file and the level number, so baselines can be compared across machines.
+ *
+ * @author Jimmy
+ */
+public class BenchmarkRecord {
+
+	public static final String HEADER = "levelFile;levelNumber;result;steps;timeMillis;cpuTimeMillis;searchedNodes;nodesPerSecond;peakHeapBytes";
+	
+	public String levelFile;
+	
+	public int levelNumber;
+	
+	public SokobanResultType result;
+	
+	/**
+	 * Solution length; 0 if not solved.
+	 */
+	public int steps;
+	
+	/**
+	 * Time to solution (or to giving up).
+	 */
+	public long timeMillis;
+	
+	public long cpuTimeMillis;
+	
+	/**
+	 * -1 if the agent does not count them, see {@link game.IAgent#getSearchedNodes()}.
+	 */
+	public long searchedNodes = -1;
+	
+	/**
+	 * See {@link SokobanResult#getPeakHeapBytes()}.
+	 */
+	public long peakHeapBytes;
+	
+	public String getKey() {
+		return levelFile + ";" + levelNumber;
+	}
+	
+	public boolean isSolved() {
+		return result == SokobanResultType.VICTORY;
+	}
+	
+	/**
+	 * Searched nodes per second of {@link #timeMillis}; -1 if unknown.
+	 * @return
+	 */
+	public long getNodesPerSecond() {
+		if (searchedNodes < 0) return -1;
+		return searchedNodes * 1000 / Math.max(1, timeMillis);
+	}
+	
+	public String toLine() {
+		return levelFile + ";" + levelNumber + ";" + result + ";" + steps + ";" + timeMillis + ";" + cpuTimeMillis + ";" + searchedNodes + ";" + getNodesPerSecond() + ";" + peakHeapBytes;
+	}
+	
+	/**
+	 * Parses the line written by {@link #toLine()}.
+	 * @param line
+	 * @return
+	 */
+	public static BenchmarkRecord fromLine(String line) {
+		String[] parts = line.split(";");
+		if (parts.length != 9) {
+			throw new RuntimeException("Invalid benchmark record, expected " + HEADER + ": " + line);
+		}
+		BenchmarkRecord record = new BenchmarkRecord();
+		record.levelFile = parts[0];
+		record.levelNumber = Integer.parseInt(parts[1]);
+		record.result = SokobanResultType.valueOf(parts[2]);
+		record.steps = Integer.parseInt(parts[3]);
+		record.timeMillis = Long.parseLong(parts[4]);
+		record.cpuTimeMillis = Long.parseLong(parts[5]);
+		record.searchedNodes = Long.parseLong(parts[6]);
+		// parts[7] is derived
+		record.peakHeapBytes = Long.parseLong(parts[8]);
+		return record;
+	}
+	
+	/**
+	 * Parses the line of the result file, see {@link SokobanResult#RESULT_HEADER}.
+	 * @param line
+	 * @return null if the line is not a result line
+	 */
+	public static BenchmarkRecord fromResultLine(String line) {
+		if (line.length() == 0 || SokobanResult.isResultHeader(line)) return null;
+		String[] parts = line.split(";");
+		if (parts.length < 7) return null;
+		BenchmarkRecord record = new BenchmarkRecord();
+		record.levelFile = parts[1].substring(Math.max(parts[1].lastIndexOf('/'), parts[1].lastIndexOf('\\')) + 1);
+		record.levelNumber = Integer.parseInt(parts[2]);
+		record.result = SokobanResultType.valueOf(parts[4]);
+		record.steps = record.isSolved() ? Integer.parseInt(parts[5]) : 0;
+		record.timeMillis = Long.parseLong(parts[6]);
+		if (parts.length > 7) record.cpuTimeMillis = Long.parseLong(parts[7]);
+		if (parts.length > 9) record.searchedNodes = Long.parseLong(parts[9]);
+		if (parts.length > 10) record.peakHeapBytes = Long.parseLong(parts[10]);
+		return record;
+	}
+	
+	@Override
+	public String toString() {
+		return "BenchmarkRecord[" + toLine() + "]";
+	}
+	
+}
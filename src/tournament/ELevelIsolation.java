@@ -0,0 +1,47 @@
+package tournament;
+
+/**
+ * How are levels of a tournament isolated from each other.
+ * 
+ * @author Jimmy
+ */
+public enum ELevelIsolation {
+	
+	/**
+	 * All levels within THIS JVM, see {@link InProcessLevelRunner}.
+	 */
+	IN_PROCESS("in-process"),
+	
+	/**
+	 * Levels within long-lived worker JVMs that are recycled from time to time, see {@link WorkerLevelRunner}.
+	 */
+	WORKER("worker"),
+	
+	/**
+	 * Every level in fresh JVM, see {@link ForkedLevelRunner}.
+	 */
+	PROCESS("process");
+	
+	private String name;
+
+	private ELevelIsolation(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Returns {@link ELevelIsolation} of given {@link #getName()}.
+	 * @param name
+	 * @return
+	 */
+	public static ELevelIsolation getForName(String name) {
+		for (ELevelIsolation isolation : ELevelIsolation.values()) {
+			if (isolation.name.equalsIgnoreCase(name)) return isolation;
+		}
+		return null;
+	}
+	
+}
@@ -0,0 +1,137 @@
+package tournament;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import game.SokobanConfig;
+import game.SokobanResultType;
+
+/**
+ * Runs every level in SEPARATE JVM executing <code>SokobanMain</code>; the most isolated (and the slowest) way, as JVM startup,
+ * class loading and JIT warm-up are paid for every level.
+ *
+ * @author Jimmy
+ */
+public class ForkedLevelRunner implements ILevelRunner {
+
+	private SokobanConfig config;
+	private String agentClass;
+	private File resultFile;
+	private File outputFile;
+
+	public ForkedLevelRunner(SokobanConfig config, String agentClass, File resultFile) {
+		this(config, agentClass, resultFile, null);
+	}
+
+	/**
+	 * @param config
+	 * @param agentClass
+	 * @param resultFile
+	 * @param outputFile where to redirect the output of the JVM, null to inherit ours
+	 */
+	public ForkedLevelRunner(SokobanConfig config, String agentClass, File resultFile, File outputFile) {
+		this.config = config;
+		this.agentClass = agentClass;
+		this.resultFile = resultFile;
+		this.outputFile = outputFile;
+	}
+
+	@Override
+	public SokobanResultType runLevel(SokobanLevel level) {
+		Process p;
+
+		try {
+			p = forkLevel(level).start();
+			p.waitFor();
+		} catch (Exception e) { throw new RuntimeException(e); }
+
+		SokobanResultType result = SokobanResultType.getForExitValue(p.exitValue());
+		return result == null ? SokobanResultType.SIMULATION_EXCEPTION : result;
+	}
+
+	@Override
+	public boolean isHealthy() {
+		return true;
+	}
+
+	/**
+	 * Prepares the process running 'level' in separate JVM with the same classpath and JVM arguments as this one.
+	 * @param level
+	 * @return
+	 */
+	public ProcessBuilder forkLevel(SokobanLevel level) {
+		// CONFIGURE PROGRAM PARAMS
+		List<String> args = getJavaCommand();
+
+		args.add("SokobanMain");       // class to run
+
+		args.add(agentClass);
+
+		args.add("-levelset");
+		args.add(level.file.getAbsolutePath());
+
+		args.add("-level");
+		args.add("" + level.levelNumber);
+
+		if (resultFile != null) {
+			args.add("-resultfile");
+			args.add(resultFile.getAbsolutePath());
+		}
+
+		if (config.requireOptimal)
+			args.add("-optimal");
+
+		if (config.timeoutMillis > 0) {
+			args.add("-timeout");
+			args.add("" + config.timeoutMillis);
+		}
+
+		if (config.cpuTimeoutMillis > 0) {
+			args.add("-cputimeout");
+			args.add("" + config.cpuTimeoutMillis);
+		}
+
+		if (config.maxAllocatedBytes > 0) {
+			args.add("-maxalloc");
+			args.add("" + config.maxAllocatedBytes);
+		}
+
+		if (config.verbose)
+			args.add("-v");
+
+		ProcessBuilder pb = new ProcessBuilder(args);
+		pb.redirectOutput(outputFile == null ? ProcessBuilder.Redirect.INHERIT : ProcessBuilder.Redirect.to(outputFile));
+		pb.redirectErrorStream(true);
+
+		return pb;
+	}
+
+	/**
+	 * Command running 'java' with the same classpath and JVM arguments as this JVM; the main class and its arguments are to be appended.
+	 * @return
+	 */
+	public static List<String> getJavaCommand() {
+		List<String> args = new ArrayList<String>();
+		args.add("java");
+
+		args.add("-cp");
+		args.add(System.getProperty("java.class.path"));
+
+		// READ JAVA PARAMS
+		RuntimeMXBean runtimeMXBean = ManagementFactory.getRuntimeMXBean();
+		List<String> jvmArgs = runtimeMXBean.getInputArguments();
+		for (String arg : jvmArgs) {
+			if (arg.contains("agentlib") && arg.contains("suspend")) {
+				// ECLIPSE DEBUGGING, IGNORE
+				continue;
+			}
+			args.add(arg);
+		}
+
+		return args;
+	}
+
+}
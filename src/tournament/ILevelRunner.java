@@ -0,0 +1,27 @@
+package tournament;
+
+import game.SokobanResultType;
+
+/**
+ * Runs a single {@link SokobanLevel} with the agent of the tournament, outputs the result line into the result file (if any)
+ * and prints the progress line into {@link System#out}.
+ *
+ * @author Jimmy
+ */
+public interface ILevelRunner {
+
+	/**
+	 * Plays 'level'.
+	 * @param level
+	 * @return how the level ended; never null
+	 */
+	public SokobanResultType runLevel(SokobanLevel level);
+
+	/**
+	 * Whether the runner can be used for the next level; in-process runners report false once the agent misbehaved
+	 * (got stuck, leaked threads, ran out of memory), the caller should switch to process isolation then.
+	 * @return
+	 */
+	public boolean isHealthy();
+
+}
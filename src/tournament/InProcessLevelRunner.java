@@ -0,0 +1,358 @@
+package tournament;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import game.CompactLevel;
+import game.ELevelFormat;
+import game.IAgent;
+import game.Sokoban;
+import game.SokobanConfig;
+import game.SokobanResult;
+import game.SokobanResultType;
+import game.SolutionVerifier;
+
+/**
+ * Runs levels sequentially within THIS JVM, so JVM startup, class loading and JIT warm-up are paid only once per tournament.
+ * A fresh agent instance is created (by reflection) for every level.
+ *
+ * Every level is played in its own worker thread while the calling thread acts as a watchdog:
+ * <ul>
+ * <li>if the level does not finish within the timeout + {@link #WATCHDOG_GRACE_MILLIS}, it is reported as {@link SokobanResultType#TIMEOUT} and the worker is abandoned
+ *     (the result is written only once per level, the abandoned worker cannot append another line if it ever unblocks);</li>
+ * <li>if the agent leaves non-daemon threads running or threads burning CPU after the level ended, or the level ended with {@link Error} (e.g., {@link OutOfMemoryError}), the result of the level is kept as it is.</li>
+ * </ul>
+ * Threads of the level are told apart by their {@link ThreadGroup}: the worker runs in a fresh group per level, so every thread created
+ * by the simulation or the agent (unless it picks its group explicitly) belongs to it.
+ *
+ * In all these cases the runner stops being {@link #isHealthy()}, and {@link RunSokobanLevels} switches to {@link WorkerLevelRunner} for the remaining levels.
+ *
+ * @author Jimmy
+ */
+public class InProcessLevelRunner implements ILevelRunner {
+
+	/**
+	 * How long after the timeout do we wait for the simulation to end on its own.
+	 */
+	public static final long WATCHDOG_GRACE_MILLIS = 5000;
+
+	/**
+	 * How long do we wait for agent threads to finish after the level ended.
+	 */
+	public static final long THREAD_LEAK_GRACE_MILLIS = 1000;
+
+	/**
+	 * CPU time a daemon thread of the level may burn during {@link #THREAD_LEAK_GRACE_MILLIS} without being considered leaked
+	 * (idle helpers such as samplers or pool workers burn next to nothing).
+	 */
+	public static final long THREAD_LEAK_CPU_MILLIS = 50;
+
+	private SokobanConfig config;
+	private String agentClass;
+	private File resultFile;
+
+	private boolean healthy = true;
+
+	private SokobanResult lastResult;
+
+	public InProcessLevelRunner(SokobanConfig config, String agentClass, File resultFile) {
+		this.config = config;
+		this.agentClass = agentClass;
+		this.resultFile = resultFile;
+	}
+
+	@Override
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+	/**
+	 * Result of the last {@link #runLevel(SokobanLevel)}, including levels that timed out on the watchdog or failed outside the simulation
+	 * (their figures are zero then); see {@link SokobanWorker}.
+	 * @return
+	 */
+	public SokobanResult getLastResult() {
+		return lastResult;
+	}
+
+	@Override
+	public SokobanResultType runLevel(final SokobanLevel level) {
+		if (level.entry != null && !level.entry.isValid()) {
+			// FAILED TO PRELOAD
+			System.out.printf("solving level %d... FAILED (%s)\n", level.levelNumber, level.entry.getError().getMessage());
+			lastResult = failedResult(SokobanResultType.SIMULATION_EXCEPTION, 0);
+			lastResult.setException(level.entry.getError());
+			outputResult(level, lastResult);
+			return SokobanResultType.SIMULATION_EXCEPTION;
+		}
+
+		final IAgent agent;
+		try {
+			agent = (IAgent) Class.forName(agentClass).getConstructor().newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to instantiate agent: " + agentClass, e);
+		}
+
+		ThreadGroup levelThreads = new ThreadGroup("Level-" + level.levelNumber);
+
+		final SokobanResult[] result = new SokobanResult[1];
+		final Throwable[] error = new Throwable[1];
+		final AtomicBoolean resultWritten = new AtomicBoolean(false);
+
+		Thread worker = new Thread(levelThreads, "LevelRunner-" + level.levelNumber) {
+			@Override
+			public void run() {
+				try {
+					SokobanConfig levelConfig = config;
+					if (level.entry != null) {
+						levelConfig = config.copy();
+						levelConfig.preloadedLevel = level.entry.getLevel();
+					}
+					result[0] = playLevel(
+						agent, agentClass, level.file.getAbsolutePath(), level.levelNumber,
+						resultFile == null ? null : resultFile.getAbsolutePath(), levelConfig, resultWritten);
+				} catch (Throwable t) {
+					error[0] = t;
+				}
+			}
+		};
+		worker.start();
+
+		// WATCHDOG
+		try {
+			if (config.timeoutMillis > 0) {
+				worker.join(config.timeoutMillis + WATCHDOG_GRACE_MILLIS);
+			} else {
+				worker.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted while waiting for the level to finish.", e);
+		}
+
+		if (worker.isAlive()) {
+			System.out.println("TIMEOUT (watchdog, the agent does not respond)");
+			healthy = false;
+			try {
+				agent.stop();
+			} catch (Exception e) {
+			}
+			worker.interrupt();
+			lastResult = failedResult(SokobanResultType.TIMEOUT, config.timeoutMillis);
+			if (resultWritten.compareAndSet(false, true)) {
+				outputResult(level, lastResult);
+			}
+			return SokobanResultType.TIMEOUT;
+		}
+
+		if (error[0] != null) {
+			System.out.println("FAILED (" + error[0] + ")");
+			if (error[0] instanceof Error) healthy = false;
+			lastResult = failedResult(SokobanResultType.SIMULATION_EXCEPTION, 0);
+			lastResult.setException(error[0]);
+			if (resultWritten.compareAndSet(false, true)) {
+				outputResult(level, lastResult);
+			}
+			return SokobanResultType.SIMULATION_EXCEPTION;
+		}
+
+		lastResult = result[0];
+
+		if (result[0].getException() instanceof Error) {
+			healthy = false;
+		}
+
+		if (result[0].getAbandonedThreads() > 0) {
+			System.out.println("WARNING: agent left " + result[0].getAbandonedThreads() + " thread(s) computing, switching to worker JVMs.");
+			healthy = false;
+			return result[0].getResult();
+		}
+
+		checkLeakedThreads(levelThreads, worker);
+
+		return result[0].getResult();
+	}
+
+	/**
+	 * Threads of 'levelThreads' (except the finished 'worker') that are still alive after {@link #THREAD_LEAK_GRACE_MILLIS} are leaked if they
+	 * are non-daemon or if they burned more than {@link #THREAD_LEAK_CPU_MILLIS} of CPU meanwhile (e.g., a daemon think thread ignoring stop()).
+	 * @param levelThreads
+	 * @param worker
+	 */
+	private void checkLeakedThreads(ThreadGroup levelThreads, Thread worker) {
+		Thread[] all = new Thread[levelThreads.activeCount() + 16];
+		int count = levelThreads.enumerate(all, true);
+
+		ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		boolean cpuTime = mx.isThreadCpuTimeSupported() && mx.isThreadCpuTimeEnabled();
+
+		List<Thread> threads = new ArrayList<Thread>(count);
+		List<Long> cpuBefore = new ArrayList<Long>(count);
+		for (int i = 0; i < count; ++i) {
+			if (all[i] == worker) continue;
+			threads.add(all[i]);
+			cpuBefore.add(cpuTime ? mx.getThreadCpuTime(all[i].getId()) : -1);
+		}
+
+		long deadline = System.currentTimeMillis() + THREAD_LEAK_GRACE_MILLIS;
+		int alive = 0;
+		for (int i = 0; i < threads.size(); ++i) {
+			Thread thread = threads.get(i);
+			try {
+				thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+			} catch (InterruptedException e) {
+				throw new RuntimeException("Interrupted while waiting for agent threads.", e);
+			}
+			if (!thread.isAlive()) continue;
+			if (!thread.isDaemon()) {
+				++alive;
+				continue;
+			}
+			long before = cpuBefore.get(i);
+			long after = cpuTime ? mx.getThreadCpuTime(thread.getId()) : -1;
+			if (before >= 0 && after >= 0 && after - before > THREAD_LEAK_CPU_MILLIS * 1000000) ++alive;
+		}
+
+		if (alive > 0) {
+			System.out.println("WARNING: agent left " + alive + " thread(s) running, switching to worker JVMs.");
+			healthy = false;
+		}
+	}
+
+	/**
+	 * Result of the level that did not end within the simulation; it took 'durationMillis'.
+	 */
+	private SokobanResult failedResult(SokobanResultType resultType, long durationMillis) {
+		SokobanResult result = new SokobanResult();
+		result.setId(agentClass.substring(agentClass.lastIndexOf('.') + 1));
+		result.setResult(resultType);
+		result.setSimStartMillis(0);
+		result.setSimEndMillis(durationMillis);
+		return result;
+	}
+
+	private void outputResult(SokobanLevel level, SokobanResult result) {
+		if (resultFile == null) return;
+		result.outputResult(resultFile, level.file.getAbsolutePath(), level.levelNumber, agentClass);
+	}
+
+	// ==========
+	// SINGLE RUN
+	// ==========
+
+	static String describe(SokobanResultType type) {
+		switch (type) {
+			case VICTORY: return "solved";
+			case TIMEOUT: return "TIMEOUT";
+			default: return "FAILED";
+		}
+	}
+
+	/**
+	 * Plays 'level' from 'levelset' by 'agent' within this thread, prints the progress and appends the result to 'resultFile' (if not null).
+	 * @param agent
+	 * @param agentName
+	 * @param levelset
+	 * @param level 1-based
+	 * @param resultFile
+	 * @param timeout
+	 * @param verbose
+	 * @param optimal
+	 * @return
+	 */
+	public static SokobanResult playLevel(
+		IAgent agent, String agentName, String levelset, int level,
+		String resultFile, int timeout, boolean verbose, boolean optimal) {
+
+		SokobanConfig config = new SokobanConfig();
+		config.timeoutMillis = timeout;
+		config.verbose = verbose;
+		config.requireOptimal = optimal;
+
+		return playLevel(agent, agentName, levelset, level, resultFile, config);
+	}
+
+	/**
+	 * Plays 'level' from 'levelset' by 'agent' within this thread obeying limits of 'config' (which is not modified),
+	 * prints the progress and appends the result to 'resultFile' (if not null).
+	 * @param agent
+	 * @param agentName
+	 * @param levelset
+	 * @param level 1-based
+	 * @param resultFile
+	 * @param config
+	 * @return
+	 */
+	public static SokobanResult playLevel(
+		IAgent agent, String agentName, String levelset, int level,
+		String resultFile, SokobanConfig config) {
+		return playLevel(agent, agentName, levelset, level, resultFile, config, new AtomicBoolean(false));
+	}
+
+	/**
+	 * {@link #playLevel(IAgent, String, String, int, String, SokobanConfig)} that appends the result to 'resultFile' only if it manages to set 'resultWritten';
+	 * whoever else reports the level (e.g., the watchdog) sets it first so the level is never written twice.
+	 * @param agent
+	 * @param agentName
+	 * @param levelset
+	 * @param level 1-based
+	 * @param resultFile
+	 * @param config
+	 * @param resultWritten one-shot guard of the result line of this level
+	 * @return
+	 */
+	public static SokobanResult playLevel(
+		IAgent agent, String agentName, String levelset, int level,
+		String resultFile, SokobanConfig config, AtomicBoolean resultWritten) {
+
+		boolean verbose = config.verbose;
+		agent.init(config.requireOptimal, verbose);
+
+		if (verbose)
+			System.out.println("====================");
+		System.out.printf("solving level %d... ", level);
+		if (verbose)
+			System.out.println();
+
+		SokobanConfig levelConfig = config.copy();
+		levelConfig.id = null;
+		levelConfig.agent = agent;
+		if (levelConfig.preloadedLevel == null) {
+			// load the level here so the solution is re-verified against the very level the simulation played
+			File levelFile = Sokoban.findFile(levelset);
+			if (levelFile.isFile()) {
+				levelConfig.preloadedLevel = CompactLevel.fromFile(levelFile, ELevelFormat.getExpectedLevelFormat(levelFile), level).validate();
+			}
+		}
+
+		SokobanResult result = Sokoban.simAgentLevel(levelset, level, levelConfig);
+		
+		// RE-VERIFY THE SOLUTION THAT GOES INTO THE RESULT FILE
+		if (result.getResult() == SokobanResultType.VICTORY && levelConfig.preloadedLevel != null) {
+			SolutionVerifier.verifyVictory(result, levelConfig.preloadedLevel.board);
+		}
+
+		SokobanResultType resultType = result.getResult();
+		System.out.printf("%s in %.1f ms",
+			describe(resultType), (double) result.getSimDurationMillis());
+
+		if (resultType == SokobanResultType.VICTORY)
+			System.out.printf(" (%d steps)", result.getSteps());
+		if (result.message != null)
+			System.out.printf(" (%s)", result.message);
+
+		System.out.println();
+
+		if (verbose && result.getMetrics() != null)
+			System.out.println("METRICS: " + result.getMetrics());
+
+		if (resultFile != null && resultWritten.compareAndSet(false, true))
+			result.outputResult(new File(resultFile), levelset, level, agentName);
+
+		return result;
+	}
+
+}
@@ -0,0 +1,344 @@
+package tournament;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import game.CompactLevel;
+import game.ELevelFormat;
+import game.board.compact.BoardCompact;
+import game.board.oop.Board;
+import utils.LevelPack;
+import utils.S4JLReader;
+import utils.SokReader;
+import utils.TextLevelS4JL;
+
+/**
+ * Immutable in-memory catalogue of levels: every level file is parsed and every level validated up front,
+ * files in parallel (fork-join over files), and kept as {@link BoardCompact} together with its stats.
+ *
+ * Levels are then played from the catalogue via {@link Entry#getLevel()} without any further I/O, see {@link SokobanLevels#preload()}.
+ *
+ * A level that fails to parse or validate does not fail the load: its {@link Entry} keeps the {@link Entry#getError()} instead,
+ * so only that level fails once it is played. A file that cannot be read at all has no entries.
+ *
+ * @author Jimmy
+ */
+public class LevelCatalogue {
+
+	/**
+	 * One level; either validated or holding the {@link #getError()} it failed with.
+	 */
+	public static class Entry {
+
+		public final File file;
+
+		/**
+		 * 1-based.
+		 */
+		public final int levelNumber;
+
+		public final String name;
+
+		/**
+		 * Initial state of the level; do not modify, clone it. Null if the level failed to parse.
+		 */
+		public final BoardCompact board;
+
+		public final int width;
+
+		public final int height;
+
+		public final int boxCount;
+
+		/**
+		 * Known length of the optimal solution; 0 if not known.
+		 */
+		public final int minMoves;
+
+		private final CompactLevel level;
+
+		private final RuntimeException error;
+
+		private Entry(File file, int levelNumber, CompactLevel level, RuntimeException error) {
+			this.file = file;
+			this.levelNumber = levelNumber;
+			this.level = level;
+			this.error = error;
+			this.name = level == null ? file.getName() + " / " + levelNumber : level.name;
+			this.board = level == null ? null : level.board;
+			this.width = board == null ? 0 : board.width();
+			this.height = board == null ? 0 : board.height();
+			this.boxCount = board == null ? 0 : board.boxCount;
+			this.minMoves = level == null ? 0 : level.minMoves;
+		}
+
+		public boolean isValid() {
+			return error == null;
+		}
+
+		/**
+		 * Why the level failed to parse or validate; null if it is valid.
+		 * @return
+		 */
+		public RuntimeException getError() {
+			return error;
+		}
+
+		/**
+		 * The level to be played, see {@link game.SokobanConfig#preloadedLevel}; throws {@link #getError()} if the level is not valid.
+		 * @return
+		 */
+		public CompactLevel getLevel() {
+			if (error != null) throw error;
+			return level;
+		}
+
+		/**
+		 * Fresh OOP {@link Board} of the level.
+		 * @return
+		 */
+		public Board makeBoard() {
+			return getLevel().makeBoard();
+		}
+
+		@Override
+		public String toString() {
+			if (error != null) return "LevelCatalogue.Entry[" + name + ", INVALID: " + error.getMessage() + "]";
+			return "LevelCatalogue.Entry[" + name + ", " + width + "x" + height + ", boxes=" + boxCount + ", minMoves=" + minMoves + "]";
+		}
+
+	}
+
+	/**
+	 * Absolute file -> its levels in order.
+	 */
+	private final Map<File, List<Entry>> files;
+
+	private final List<Entry> entries;
+
+	private final int invalidCount;
+
+	private final long loadMillis;
+
+	private LevelCatalogue(Map<File, List<Entry>> files, long loadMillis) {
+		this.files = Collections.unmodifiableMap(files);
+		List<Entry> entries = new ArrayList<Entry>();
+		int invalidCount = 0;
+		for (List<Entry> levels : files.values()) {
+			entries.addAll(levels);
+			for (Entry entry : levels) {
+				if (!entry.isValid()) ++invalidCount;
+			}
+		}
+		this.entries = Collections.unmodifiableList(entries);
+		this.invalidCount = invalidCount;
+		this.loadMillis = loadMillis;
+	}
+
+	/**
+	 * All levels (including invalid ones) in the order of files given to {@link #load(Collection)}.
+	 * @return
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * How many of {@link #getEntries()} are not {@link Entry#isValid()}.
+	 * @return
+	 */
+	public int getInvalidCount() {
+		return invalidCount;
+	}
+
+	public int getFileCount() {
+		return files.size();
+	}
+
+	public boolean contains(File file) {
+		return files.containsKey(file.getAbsoluteFile());
+	}
+
+	/**
+	 * @param file
+	 * @return number of levels; -1 if 'file' is not within the catalogue
+	 */
+	public int getLevelCount(File file) {
+		List<Entry> levels = files.get(file.getAbsoluteFile());
+		return levels == null ? -1 : levels.size();
+	}
+
+	/**
+	 * @param file
+	 * @param levelNumber 1-based
+	 * @return null if not within the catalogue
+	 */
+	public Entry get(File file, int levelNumber) {
+		List<Entry> levels = files.get(file.getAbsoluteFile());
+		if (levels == null || levelNumber < 1 || levelNumber > levels.size()) return null;
+		return levels.get(levelNumber - 1);
+	}
+
+	public Entry get(SokobanLevel level) {
+		return get(level.file, level.levelNumber);
+	}
+
+	/**
+	 * How long {@link #load(Collection)} took.
+	 * @return
+	 */
+	public long getLoadMillis() {
+		return loadMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "LevelCatalogue[" + entries.size() + " levels (" + invalidCount + " invalid) from " + files.size() + " files, loaded in " + loadMillis + " ms]";
+	}
+
+	// =======
+	// LOADING
+	// =======
+
+	/**
+	 * Parses and validates all levels of 'levelFiles' in parallel using {@link ForkJoinPool#commonPool()}.
+	 * Invalid levels are recorded in their {@link Entry}, see {@link Entry#getError()}.
+	 * @param levelFiles files of any {@link ELevelFormat}; duplicates are ignored
+	 * @return
+	 */
+	public static LevelCatalogue load(Collection<File> levelFiles) {
+		long start = System.currentTimeMillis();
+
+		List<File> unique = new ArrayList<File>(new LinkedHashSet<File>(absolute(levelFiles)));
+
+		List<List<Entry>> levels = ForkJoinPool.commonPool().invoke(new LoadFiles(unique, 0, unique.size()));
+
+		Map<File, List<Entry>> files = new LinkedHashMap<File, List<Entry>>();
+		for (int i = 0; i < unique.size(); ++i) {
+			files.put(unique.get(i), levels.get(i));
+		}
+
+		return new LevelCatalogue(files, System.currentTimeMillis() - start);
+	}
+
+	private static List<File> absolute(Collection<File> files) {
+		List<File> result = new ArrayList<File>(files.size());
+		for (File file : files) result.add(file.getAbsoluteFile());
+		return result;
+	}
+
+	/**
+	 * Splits files in halves until a single file is left, which is then loaded.
+	 */
+	private static class LoadFiles extends RecursiveTask<List<List<Entry>>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<File> files;
+		private final int from;
+		private final int to;
+
+		public LoadFiles(List<File> files, int from, int to) {
+			this.files = files;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<List<Entry>> compute() {
+			if (to - from <= 1) {
+				List<List<Entry>> result = new ArrayList<List<Entry>>(1);
+				if (to > from) result.add(loadFile(files.get(from)));
+				return result;
+			}
+			int middle = (from + to) / 2;
+			LoadFiles right = new LoadFiles(files, middle, to);
+			right.fork();
+			List<List<Entry>> result = new LoadFiles(files, from, middle).compute();
+			result.addAll(right.join());
+			return result;
+		}
+
+	}
+
+	/**
+	 * Loads all levels of the 'file'; a level that fails to parse or validate becomes an invalid {@link Entry}.
+	 * @param file
+	 * @return empty list if the file cannot be read at all
+	 */
+	private static List<Entry> loadFile(File file) {
+		List<Entry> result = new ArrayList<Entry>();
+		try {
+			ELevelFormat format = ELevelFormat.getExpectedLevelFormat(file);
+			if (format == null) throw new RuntimeException("Unexpected file extension: " + file.getAbsolutePath());
+
+			// LEVELS ARE PARSED STRAIGHT INTO BoardCompact
+			switch (format) {
+			case SOK: {
+				SokReader reader = new SokReader(file);
+				for (int i = 1; i <= reader.getLevelCount(); ++i) {
+					try {
+						result.add(validated(file, i, CompactLevel.fromTextLevel(reader.readLevel(i))));
+					} catch (RuntimeException e) {
+						result.add(invalid(file, i, e));
+					}
+				}
+				reader.close();
+				break;
+			}
+			case S4JL: {
+				S4JLReader reader = new S4JLReader(file);
+				TextLevelS4JL level;
+				// the reader cannot skip a level it failed to read, the rest of the file is lost then
+				while ((level = reader.readNext()) != null) {
+					try {
+						result.add(validated(file, result.size() + 1, CompactLevel.fromTextLevel(level)));
+					} catch (RuntimeException e) {
+						result.add(invalid(file, result.size() + 1, e));
+					}
+				}
+				reader.close();
+				break;
+			}
+			case S4JP: {
+				LevelPack pack = new LevelPack(file);
+				for (int i = 1; i <= pack.getLevelCount(); ++i) {
+					try {
+						result.add(validated(file, i, new CompactLevel(pack.getLevelName(i), pack.getBoardCompact(i), pack.getMinMoves(i))));
+					} catch (RuntimeException e) {
+						result.add(invalid(file, i, e));
+					}
+				}
+				break;
+			}
+			default:
+				throw new RuntimeException("Unsupported level format " + format + " of: " + file.getAbsolutePath());
+			}
+		} catch (RuntimeException e) {
+			System.out.println("WARNING: failed to preload " + file.getAbsolutePath() + " after " + result.size() + " levels: " + e);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private static Entry validated(File file, int levelNumber, CompactLevel level) {
+		try {
+			level.validate();
+		} catch (RuntimeException e) {
+			return invalid(file, levelNumber, e);
+		}
+		return new Entry(file, levelNumber, level, null);
+	}
+
+	private static Entry invalid(File file, int levelNumber, RuntimeException cause) {
+		return new Entry(file, levelNumber, null, new RuntimeException("Invalid level " + levelNumber + " in " + file.getAbsolutePath() + ": " + cause.getMessage(), cause));
+	}
+
+}
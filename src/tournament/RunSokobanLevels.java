@@ -1,16 +1,15 @@
 package tournament;
 
 import java.io.File;
-import java.lang.management.ManagementFactory;
-import java.lang.management.RuntimeMXBean;
-import java.util.ArrayList;
-import java.util.List;
 
 import game.*;
 
 /**
- * Runs {@link SokobanLevels} executing SEPARATE JVM for every {@link SokobanLevels#levels} sequentially.
- * Stops executing levels once an agent fails to solve the level.
+ * Runs {@link SokobanLevels} sequentially, stops executing levels once an agent fails to solve 'maxFail' levels.
+ * 
+ * How levels are isolated from each other is given by {@link ELevelIsolation}; by default, all levels are played within THIS JVM via {@link InProcessLevelRunner}.
+ * Once the agent misbehaves there (gets stuck, leaks threads, runs out of memory), remaining levels are played in worker JVMs via {@link WorkerLevelRunner}.
+ * Levels played within THIS JVM are {@link SokobanLevels#preload()}ed first.
  *  
  * @author Jimmy
  */
@@ -20,83 +19,62 @@ public class RunSokobanLevels {
 	private File resultFile;
 	private SokobanConfig config;
     private int maxFail;
+    private ELevelIsolation isolation;
 	
 	public RunSokobanLevels(SokobanConfig config, String agentClass, SokobanLevels levels,
 			                File resultFile, int maxFail) {
+		this(config, agentClass, levels, resultFile, maxFail, ELevelIsolation.IN_PROCESS);
+	}
+
+	public RunSokobanLevels(SokobanConfig config, String agentClass, SokobanLevels levels,
+			                File resultFile, int maxFail, ELevelIsolation isolation) {
 		this.config = config;
 		this.agentClass = agentClass;
 		this.levels = levels;
 		this.resultFile = resultFile;
         this.maxFail = maxFail;
+        this.isolation = isolation;
 	}
 
 	public void run() {
         System.setProperty("java.util.logging.SimpleFormatter.format", "[%4$s] %1$tT.%1$tL %5$s%n");
 		
+        if (isolation == ELevelIsolation.IN_PROCESS && levels.catalogue == null) {
+        	// levels are played in THIS JVM, parse and validate them all at once
+        	levels.preload();
+        	System.out.println("Preloaded " + levels.catalogue);
+        }
+        
+        ILevelRunner runner = createRunner(isolation);
+        
 		int failed = 0;
 		
 		for (int i = 0; i < levels.levels.size(); ++i) {			
 	    	SokobanLevel level = levels.levels.get(i);
 	    	
-			// CONFIGURE PROGRAM PARAMS
-            List<String> args = new ArrayList<String>();
-            args.add("java");
-
-            args.add("-cp");
-            args.add(System.getProperty("java.class.path"));
-
-			// READ JAVA PARAMS
-			RuntimeMXBean runtimeMXBean = ManagementFactory.getRuntimeMXBean();
-	    	List<String> jvmArgs = runtimeMXBean.getInputArguments();
-	    	for (String arg : jvmArgs) {
-	    		if (arg.contains("agentlib") && arg.contains("suspend")) {
-	    			// ECLIPSE DEBUGGING, IGNORE
-	    			continue;
-	    		}
-	    	    args.add(arg);
+	    	if (!runner.isHealthy()) {
+	    		System.out.println("WARNING: running remaining levels in worker JVMs.");
+	    		runner = createRunner(ELevelIsolation.WORKER);
 	    	}
 	    	
-	    	args.add("SokobanMain");       // class to run
-	    	
-            args.add(agentClass);
-
-            args.add("-levelset");
-            args.add(level.file.getAbsolutePath());
-
-            args.add("-level");
-            args.add("" + level.levelNumber);
-
-            if (resultFile != null) {
-                args.add("-resultfile");
-                args.add(resultFile.getAbsolutePath());
-            }
-
-            if (config.requireOptimal)
-                args.add("-optimal");
-
-            if (config.timeoutMillis > 0) {
-                args.add("-timeout");
-                args.add("" + config.timeoutMillis);
-            }
-
-            if (config.verbose)
-                args.add("-v");
-            
-            ProcessBuilder pb = new ProcessBuilder(args);
-            pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-            pb.redirectErrorStream(true);
-
-            Process p;
-
-            try {
-                p = pb.start();
-                p.waitFor();
-            } catch (Exception e) { throw new RuntimeException(e); }
+	    	SokobanResultType result = runner.runLevel(level);
             
-            if (p.exitValue() != 0 && ++failed == maxFail)
+            if (result != SokobanResultType.VICTORY && ++failed == maxFail)
 	    		break;
 		}
 		
+		if (runner instanceof WorkerLevelRunner) {
+			((WorkerLevelRunner)runner).stopWorker();
+		}
+	}
+	
+	private ILevelRunner createRunner(ELevelIsolation isolation) {
+		switch (isolation) {
+			case IN_PROCESS: return new InProcessLevelRunner(config, agentClass, resultFile);
+			case WORKER:     return new WorkerLevelRunner(config, agentClass, resultFile);
+			case PROCESS:    return new ForkedLevelRunner(config, agentClass, resultFile);
+			default:         throw new RuntimeException("Unsupported isolation: " + isolation);
+		}
 	}
 	
 }
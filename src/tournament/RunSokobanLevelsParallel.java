@@ -0,0 +1,339 @@
+package tournament;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import game.*;
+
+/**
+ * Runs {@link SokobanLevels} using 'threads' workers, each playing one level at a time with its own timeout in its own long-lived worker JVM
+ * via {@link WorkerLevelRunner} or, with {@link ELevelIsolation#PROCESS}, in fresh JVM via {@link ForkedLevelRunner}.
+ * Levels are never played within THIS JVM, so {@link ELevelIsolation#IN_PROCESS} falls back to worker JVMs.
+ *
+ * Levels are scheduled longest-expected-first according to 'historyFile' (result file of some previous run): solved levels are expected
+ * to take as long as they took back then, unsolved and unknown levels are expected to take the whole timeout.
+ *
+ * Output of every level is printed as a whole once the level ends. Results (sent back by workers, see {@link WorkerLevelRunner#getLastResultLine()})
+ * are appended into 'resultFile' in the order of {@link SokobanLevels#levels} no matter the order they were played in.
+ *
+ * Once 'maxFail' levels fail, no more levels are scheduled (running levels are let to finish).
+ *
+ * Note that levels compete for cores and memory bandwidth, use 'threads' up to the number of PHYSICAL cores to keep timing comparable.
+ *
+ * @author Jimmy
+ */
+public class RunSokobanLevelsParallel {
+
+	private SokobanLevels levels;
+	private String agentClass;
+	private File resultFile;
+	private SokobanConfig config;
+	private int maxFail;
+	private int threads;
+	private File historyFile;
+	private ELevelIsolation isolation;
+
+	// SCHEDULE
+
+	private List<Integer> schedule;
+	private int nextScheduled;
+	private int failed;
+	private boolean stopped;
+
+	// RESULTS
+
+	private String[] resultLines;
+	private int nextToWrite;
+
+	/**
+	 * @param config
+	 * @param agentClass
+	 * @param levels
+	 * @param resultFile may be null
+	 * @param maxFail
+	 * @param threads number of levels to play at once, 0 for {@link Runtime#availableProcessors()}
+	 * @param historyFile previous result file to order the levels by, may be null
+	 * @param isolation
+	 */
+	public RunSokobanLevelsParallel(SokobanConfig config, String agentClass, SokobanLevels levels,
+			                        File resultFile, int maxFail, int threads, File historyFile, ELevelIsolation isolation) {
+		this.config = config;
+		this.agentClass = agentClass;
+		this.levels = levels;
+		this.resultFile = resultFile;
+		this.maxFail = maxFail;
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.historyFile = historyFile;
+		this.isolation = isolation;
+	}
+
+	public void run() {
+		System.setProperty("java.util.logging.SimpleFormatter.format", "[%4$s] %1$tT.%1$tL %5$s%n");
+
+		schedule = getSchedule();
+		nextScheduled = 0;
+		failed = 0;
+		stopped = false;
+		resultLines = new String[levels.levels.size()];
+		nextToWrite = 0;
+
+		System.out.println("Playing " + levels.levels.size() + " levels using " + threads + " workers.");
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int i = 0; i < threads; ++i) {
+			Thread worker = new Thread("LevelWorker-" + i) {
+				@Override
+				public void run() {
+					work();
+				}
+			};
+			workers.add(worker);
+			worker.start();
+		}
+
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException("Interrupted while waiting for workers.", e);
+			}
+		}
+
+		// levels skipped due to 'maxFail' leave gaps
+		writeResults(true);
+	}
+
+	// ========
+	// WORKERS
+	// ========
+
+	private synchronized int nextLevel() {
+		if (stopped || nextScheduled >= schedule.size()) return -1;
+		return schedule.get(nextScheduled++);
+	}
+
+	private void work() {
+		WorkerLevelRunner worker = isolation == ELevelIsolation.PROCESS
+			? null
+			: new WorkerLevelRunner(config, agentClass, null, null, WorkerLevelRunner.DEFAULT_MAX_LEVELS, WorkerLevelRunner.DEFAULT_MAX_HEAP_PORTION);
+		try {
+			while (true) {
+				int index = nextLevel();
+				if (index < 0) return;
+				playLevel(worker, index);
+			}
+		} finally {
+			if (worker != null) worker.stopWorker();
+		}
+	}
+
+	private void playLevel(WorkerLevelRunner worker, int index) {
+		SokobanLevel level = levels.levels.get(index);
+
+		File levelOutputFile;
+		try {
+			levelOutputFile = File.createTempFile("sokoban-output-", ".txt");
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to create temporary output file for the level " + level.levelNumber + " of " + level.file.getAbsolutePath(), e);
+		}
+
+		try {
+			if (worker != null) {
+				// the worker sends the result line back
+				SokobanResultType result = worker.runLevel(level, levelOutputFile);
+				levelDone(index, level, result, worker.getLastResultLine(), levelOutputFile);
+			} else {
+				playForkedLevel(index, level, levelOutputFile);
+			}
+		} finally {
+			levelOutputFile.delete();
+		}
+	}
+
+	/**
+	 * Plays 'level' in fresh JVM, which can report its result only through a result file;
+	 * the file is always passed to the JVM as the result line is needed even if {@link #resultFile} is not set.
+	 */
+	private void playForkedLevel(int index, SokobanLevel level, File levelOutputFile) {
+		File levelResultFile;
+		try {
+			levelResultFile = File.createTempFile("sokoban-result-", ".csv");
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to create temporary result file for the level " + level.levelNumber + " of " + level.file.getAbsolutePath(), e);
+		}
+		// we want the header to be written
+		levelResultFile.delete();
+
+		try {
+			SokobanResultType result = new ForkedLevelRunner(config, agentClass, levelResultFile, levelOutputFile).runLevel(level);
+			String line = readResultLine(levelResultFile);
+			if (line == null) {
+				// the JVM died before outputting the result
+				SokobanResult dead = new SokobanResult();
+				dead.setId(agentClass.substring(agentClass.lastIndexOf('.') + 1));
+				dead.setResult(result);
+				line = dead.getResultLine(level.file.getAbsolutePath(), level.levelNumber, agentClass);
+			}
+			levelDone(index, level, result, line, levelOutputFile);
+		} finally {
+			levelResultFile.delete();
+		}
+	}
+
+	/**
+	 * @param index
+	 * @param level
+	 * @param result
+	 * @param line result line of the level; VICTORY has already been re-verified by the JVM that played the level
+	 * @param levelOutputFile
+	 */
+	private synchronized void levelDone(int index, SokobanLevel level, SokobanResultType result, String line, File levelOutputFile) {
+		System.out.println("--- " + level.file.getName() + " #" + level.levelNumber + " ---");
+		try {
+			System.out.print(new String(Files.readAllBytes(levelOutputFile.toPath())));
+		} catch (IOException e) {
+			System.out.println("Failed to read the output of the level: " + e);
+		}
+		System.out.flush();
+
+		if (resultFile != null) {
+			resultLines[index] = line;
+			writeResults(false);
+		}
+
+		if (result != SokobanResultType.VICTORY && ++failed == maxFail) {
+			stopped = true;
+		}
+	}
+
+	// =======
+	// RESULTS
+	// =======
+
+	/**
+	 * The last result line of the 'levelResultFile' written by {@link ForkedLevelRunner}.
+	 * @param levelResultFile
+	 * @return null if there is none
+	 */
+	private String readResultLine(File levelResultFile) {
+		if (!levelResultFile.exists()) return null;
+		try (BufferedReader reader = new BufferedReader(new FileReader(levelResultFile))) {
+			String line;
+			String result = null;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0 || SokobanResult.isResultHeader(line)) continue;
+				result = line;
+			}
+			return result;
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read the result file: " + levelResultFile.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Appends results into {@link #resultFile} in the order of {@link SokobanLevels#levels}.
+	 * @param all false to append only the prefix of finished levels, true to append all remaining results
+	 */
+	private synchronized void writeResults(boolean all) {
+		if (resultFile == null) return;
+
+		int end = nextToWrite;
+		if (all) {
+			end = resultLines.length;
+		} else {
+			while (end < resultLines.length && resultLines[end] != null) ++end;
+		}
+		if (end == nextToWrite) return;
+
+		boolean header = !resultFile.exists();
+		try (PrintWriter writer = new PrintWriter(new FileOutputStream(resultFile, true))) {
+			if (header) writer.println(SokobanResult.RESULT_HEADER);
+			for (; nextToWrite < end; ++nextToWrite) {
+				if (resultLines[nextToWrite] != null) writer.println(resultLines[nextToWrite]);
+			}
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException("Failed to append to the result file: " + resultFile.getAbsolutePath());
+		}
+	}
+
+	// ==========
+	// SCHEDULING
+	// ==========
+
+	private static String getKey(String levelFile, int levelNumber) {
+		return new File(levelFile).getAbsoluteFile().toPath().normalize() + ";" + levelNumber;
+	}
+
+	/**
+	 * Reads expected play times of levels from the result file of a previous run; the last result of the level counts.
+	 * @param historyFile
+	 * @param timeoutMillis what to expect for unsolved levels
+	 * @return "normalized-level-file;level-number" -> expected millis
+	 */
+	public static Map<String, Long> readExpectedMillis(File historyFile, long timeoutMillis) {
+		Map<String, Long> result = new HashMap<String, Long>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(historyFile))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0 || SokobanResult.isResultHeader(line)) continue;
+				String[] parts = line.split(";");
+				if (parts.length < 7) continue;
+				long millis;
+				try {
+					millis = SokobanResultType.VICTORY.toString().equals(parts[4])
+						? Long.parseLong(parts[6])
+						: timeoutMillis;
+					result.put(getKey(parts[1], Integer.parseInt(parts[2])), millis);
+				} catch (NumberFormatException e) {
+					// SKIP MALFORMED LINE
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read the history file: " + historyFile.getAbsolutePath(), e);
+		}
+		return result;
+	}
+
+	/**
+	 * Indices of {@link SokobanLevels#levels} ordered longest-expected-first; levels with the same expectation keep their order.
+	 * @return
+	 */
+	private List<Integer> getSchedule() {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i = 0; i < levels.levels.size(); ++i) result.add(i);
+
+		if (historyFile == null || !historyFile.exists()) return result;
+
+		long unknownMillis = config.timeoutMillis > 0 ? config.timeoutMillis : Long.MAX_VALUE;
+		Map<String, Long> history = readExpectedMillis(historyFile, unknownMillis);
+
+		final long[] expected = new long[levels.levels.size()];
+		for (int i = 0; i < expected.length; ++i) {
+			SokobanLevel level = levels.levels.get(i);
+			Long millis = history.get(getKey(level.file.getAbsolutePath(), level.levelNumber));
+			expected[i] = millis == null ? unknownMillis : millis;
+		}
+
+		Collections.sort(result, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(expected[b], expected[a]);
+			}
+		});
+
+		return result;
+	}
+
+}
@@ -0,0 +1,329 @@
+package tournament;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import game.SokobanConfig;
+
+/**
+ * Plays a fixed corpus of levels by an agent and records {@link BenchmarkRecord} per level (nodes, nodes/sec, peak heap, time, solution length);
+ * records can be saved as a baseline and later runs compared against it.
+ *
+ * Usage: <code>SokobanBenchmark &lt;agent-classname&gt; [-corpus &lt;levels&gt;] [-timeout &lt;num&gt;] [-isolation &lt;name&gt;] [-baseline &lt;file&gt;] [-save &lt;file&gt;]
+ * [-time-threshold &lt;portion&gt;] [-nodes-threshold &lt;portion&gt;] [-heap-threshold &lt;portion&gt;]</code>
+ *
+ * Level is reported as regressed if it is no longer solved, its solution got longer or any of its figures grew over the threshold
+ * (time and heap must also grow by at least {@link #MIN_TIME_DELTA_MILLIS} / {@link #MIN_HEAP_DELTA_BYTES} to filter out noise).
+ * Exits with 1 if there is any regression.
+ *
+ * Levels are played in worker JVMs by default ({@link WorkerLevelRunner}), which are garbage collected between levels, so peak heap of one level
+ * is not inflated by garbage of the previous one.
+ *
+ * @author Jimmy
+ */
+public class SokobanBenchmark {
+
+	/**
+	 * Default corpus in the format of {@link SokobanLevels#fromString(String)}.
+	 */
+	public static final String DEFAULT_CORPUS = "easy.sok;all;Aymeric_Medium.sok;1-5;DavidWSkinner_Microban.sok;1-10";
+
+	public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+	public static final double DEFAULT_TIME_THRESHOLD = 0.25;
+
+	public static final double DEFAULT_NODES_THRESHOLD = 0.10;
+
+	public static final double DEFAULT_HEAP_THRESHOLD = 0.25;
+
+	public static final long MIN_TIME_DELTA_MILLIS = 100;
+
+	public static final long MIN_HEAP_DELTA_BYTES = 16 * 1024 * 1024;
+
+	public double timeThreshold = DEFAULT_TIME_THRESHOLD;
+
+	public double nodesThreshold = DEFAULT_NODES_THRESHOLD;
+
+	public double heapThreshold = DEFAULT_HEAP_THRESHOLD;
+
+	// ===
+	// RUN
+	// ===
+
+	/**
+	 * Plays 'corpus' by 'agentClass'.
+	 * @param config
+	 * @param agentClass
+	 * @param corpus
+	 * @param isolation
+	 * @return records in the order of the corpus
+	 */
+	public List<BenchmarkRecord> run(SokobanConfig config, String agentClass, SokobanLevels corpus, ELevelIsolation isolation) {
+		File resultFile;
+		try {
+			resultFile = File.createTempFile("sokoban-benchmark-", ".csv");
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to create temporary result file.", e);
+		}
+		// we want the header to be written
+		resultFile.delete();
+
+		try {
+			new RunSokobanLevels(config, agentClass, corpus, resultFile, 0, isolation).run();
+			return readResultFile(resultFile);
+		} finally {
+			resultFile.delete();
+		}
+	}
+
+	private static List<BenchmarkRecord> readResultFile(File resultFile) {
+		List<BenchmarkRecord> result = new ArrayList<BenchmarkRecord>();
+		if (!resultFile.exists()) return result;
+		try (BufferedReader reader = new BufferedReader(new FileReader(resultFile))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				BenchmarkRecord record = BenchmarkRecord.fromResultLine(line);
+				if (record != null) result.add(record);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read the result file: " + resultFile.getAbsolutePath(), e);
+		}
+		return result;
+	}
+
+	// ========
+	// BASELINE
+	// ========
+
+	public static void writeBaseline(File file, List<BenchmarkRecord> records) {
+		try (PrintWriter writer = new PrintWriter(file)) {
+			writer.println(BenchmarkRecord.HEADER);
+			for (BenchmarkRecord record : records) {
+				writer.println(record.toLine());
+			}
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException("Failed to write the baseline: " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * @param file
+	 * @return key ({@link BenchmarkRecord#getKey()}) -> record
+	 */
+	public static Map<String, BenchmarkRecord> readBaseline(File file) {
+		Map<String, BenchmarkRecord> result = new LinkedHashMap<String, BenchmarkRecord>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0 || line.equals(BenchmarkRecord.HEADER)) continue;
+				BenchmarkRecord record = BenchmarkRecord.fromLine(line);
+				result.put(record.getKey(), record);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read the baseline: " + file.getAbsolutePath(), e);
+		}
+		return result;
+	}
+
+	// =======
+	// COMPARE
+	// =======
+
+	/**
+	 * Reasons why 'current' is worse than 'baseline'.
+	 * @param baseline
+	 * @param current
+	 * @return empty if not regressed
+	 */
+	public List<String> getRegressions(BenchmarkRecord baseline, BenchmarkRecord current) {
+		List<String> result = new ArrayList<String>();
+		if (baseline.isSolved() && !current.isSolved()) {
+			result.add("not solved (" + current.result + ")");
+			return result;
+		}
+		if (!baseline.isSolved()) return result;
+
+		if (current.steps > baseline.steps) {
+			result.add("steps " + baseline.steps + " -> " + current.steps);
+		}
+		if (current.timeMillis - baseline.timeMillis >= MIN_TIME_DELTA_MILLIS && isOver(baseline.timeMillis, current.timeMillis, timeThreshold)) {
+			result.add("time " + baseline.timeMillis + " -> " + current.timeMillis + " ms");
+		}
+		if (baseline.searchedNodes >= 0 && current.searchedNodes >= 0 && isOver(baseline.searchedNodes, current.searchedNodes, nodesThreshold)) {
+			result.add("nodes " + baseline.searchedNodes + " -> " + current.searchedNodes);
+		}
+		if (current.peakHeapBytes - baseline.peakHeapBytes >= MIN_HEAP_DELTA_BYTES && isOver(baseline.peakHeapBytes, current.peakHeapBytes, heapThreshold)) {
+			result.add("peak heap " + (baseline.peakHeapBytes >> 20) + " -> " + (current.peakHeapBytes >> 20) + " MB");
+		}
+		return result;
+	}
+
+	/**
+	 * Reasons why 'current' is better than 'baseline', mirrors {@link #getRegressions(BenchmarkRecord, BenchmarkRecord)}.
+	 * @param baseline
+	 * @param current
+	 * @return empty if not improved
+	 */
+	public List<String> getImprovements(BenchmarkRecord baseline, BenchmarkRecord current) {
+		List<String> result = new ArrayList<String>();
+		if (!baseline.isSolved() && current.isSolved()) {
+			result.add("solved in " + current.timeMillis + " ms");
+			return result;
+		}
+		if (!current.isSolved()) return result;
+
+		if (current.steps < baseline.steps) {
+			result.add("steps " + baseline.steps + " -> " + current.steps);
+		}
+		if (baseline.timeMillis - current.timeMillis >= MIN_TIME_DELTA_MILLIS && isOver(current.timeMillis, baseline.timeMillis, timeThreshold)) {
+			result.add("time " + baseline.timeMillis + " -> " + current.timeMillis + " ms");
+		}
+		if (baseline.searchedNodes >= 0 && current.searchedNodes >= 0 && isOver(current.searchedNodes, baseline.searchedNodes, nodesThreshold)) {
+			result.add("nodes " + baseline.searchedNodes + " -> " + current.searchedNodes);
+		}
+		if (baseline.peakHeapBytes - current.peakHeapBytes >= MIN_HEAP_DELTA_BYTES && isOver(current.peakHeapBytes, baseline.peakHeapBytes, heapThreshold)) {
+			result.add("peak heap " + (baseline.peakHeapBytes >> 20) + " -> " + (current.peakHeapBytes >> 20) + " MB");
+		}
+		return result;
+	}
+
+	private static boolean isOver(long baseline, long current, double threshold) {
+		return current > baseline * (1 + threshold);
+	}
+
+	/**
+	 * Prints comparison of 'records' with 'baseline'.
+	 * @param baseline
+	 * @param records
+	 * @return number of regressed levels
+	 */
+	public int compare(Map<String, BenchmarkRecord> baseline, List<BenchmarkRecord> records) {
+		int regressed = 0, improved = 0, unknown = 0;
+		for (BenchmarkRecord current : records) {
+			BenchmarkRecord base = baseline.get(current.getKey());
+			if (base == null) {
+				++unknown;
+				System.out.println("NEW        " + current.getKey() + ": " + current.result);
+				continue;
+			}
+			List<String> regressions = getRegressions(base, current);
+			if (regressions.size() > 0) {
+				++regressed;
+				System.out.println("REGRESSED  " + current.getKey() + ": " + String.join(", ", regressions));
+				continue;
+			}
+			List<String> improvements = getImprovements(base, current);
+			if (improvements.size() > 0) {
+				++improved;
+				System.out.println("IMPROVED   " + current.getKey() + ": " + String.join(", ", improvements));
+			}
+		}
+		System.out.printf("Compared %d levels with the baseline: %d regressed, %d improved, %d not in the baseline.\n",
+			records.size() - unknown, regressed, improved, unknown);
+		return regressed;
+	}
+
+	private static void printRecords(List<BenchmarkRecord> records) {
+		System.out.printf("%-32s %6s %-12s %6s %9s %12s %12s %8s\n", "level", "#", "result", "steps", "time [ms]", "nodes", "nodes/s", "heap [MB]");
+		for (BenchmarkRecord record : records) {
+			System.out.printf("%-32s %6d %-12s %6d %9d %12d %12d %8d\n",
+				record.levelFile, record.levelNumber, record.result, record.steps, record.timeMillis,
+				record.searchedNodes, record.getNodesPerSecond(), record.peakHeapBytes >> 20);
+		}
+	}
+
+	// ==========
+	// STANDALONE
+	// ==========
+
+	static void usage() {
+		System.out.println("usage: SokobanBenchmark <agent-classname> [<option>...]");
+		System.out.println("options:");
+		System.out.println("  -baseline <filename> : baseline to compare with, exits with 1 on regression");
+		System.out.println("  -corpus <levels> : levels to play as file;levels;file;levels;... where levels is all, a number or from-to (default: " + DEFAULT_CORPUS + ")");
+		System.out.println("  -heap-threshold <portion> : allowed growth of peak heap (default: " + DEFAULT_HEAP_THRESHOLD + ")");
+		System.out.println("  -isolation in-process|worker|process : where to run levels (default: worker)");
+		System.out.println("  -nodes-threshold <portion> : allowed growth of searched nodes (default: " + DEFAULT_NODES_THRESHOLD + ")");
+		System.out.println("  -save <filename> : file to save the records to as a new baseline");
+		System.out.println("  -time-threshold <portion> : allowed growth of time to solution (default: " + DEFAULT_TIME_THRESHOLD + ")");
+		System.out.println("  -timeout <num> : maximum thinking time in milliseconds (default: " + DEFAULT_TIMEOUT_MILLIS + ")");
+		System.exit(1);
+	}
+
+	public static void main(String[] args) {
+		String agentClass = null;
+		String corpus = DEFAULT_CORPUS;
+		File baselineFile = null;
+		File saveFile = null;
+		ELevelIsolation isolation = ELevelIsolation.WORKER;
+		SokobanConfig config = new SokobanConfig();
+		config.timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+		SokobanBenchmark benchmark = new SokobanBenchmark();
+
+		for (int i = 0; i < args.length; ++i) {
+			switch (args[i]) {
+				case "-baseline":
+					baselineFile = new File(args[++i]);
+					break;
+				case "-corpus":
+					corpus = args[++i];
+					break;
+				case "-heap-threshold":
+					benchmark.heapThreshold = Double.parseDouble(args[++i]);
+					break;
+				case "-isolation":
+					isolation = ELevelIsolation.getForName(args[++i]);
+					if (isolation == null) usage();
+					break;
+				case "-nodes-threshold":
+					benchmark.nodesThreshold = Double.parseDouble(args[++i]);
+					break;
+				case "-save":
+					saveFile = new File(args[++i]);
+					break;
+				case "-time-threshold":
+					benchmark.timeThreshold = Double.parseDouble(args[++i]);
+					break;
+				case "-timeout":
+					config.timeoutMillis = Long.parseLong(args[++i]);
+					break;
+				default:
+					if (args[i].startsWith("-")) usage();
+					agentClass = args[i];
+			}
+		}
+
+		if (agentClass == null) usage();
+
+		SokobanLevels levels = SokobanLevels.fromString(corpus);
+		levels.validate();
+
+		List<BenchmarkRecord> records = benchmark.run(config, agentClass, levels, isolation);
+
+		System.out.println();
+		printRecords(records);
+
+		if (saveFile != null) {
+			writeBaseline(saveFile, records);
+			System.out.println("Baseline saved into: " + saveFile.getAbsolutePath());
+		}
+
+		int regressed = 0;
+		if (baselineFile != null) {
+			System.out.println();
+			regressed = benchmark.compare(readBaseline(baselineFile), records);
+		}
+
+		// do not wait for threads of agents abandoned by the watchdog
+		System.exit(regressed == 0 ? 0 : 1);
+	}
+
+}
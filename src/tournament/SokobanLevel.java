@@ -3,6 +3,7 @@ package tournament;
 import java.io.File;
 
 import game.ELevelFormat;
+import utils.LevelPack;
 import utils.S4JLReader;
 import utils.SokReader;
 
@@ -11,6 +12,11 @@ public class SokobanLevel {
 	public File file;
 	
 	public int levelNumber;
+	
+	/**
+	 * Preloaded level, see {@link SokobanLevels#preload()}; null if the level is to be read from {@link #file}.
+	 */
+	public LevelCatalogue.Entry entry;
 
 	public SokobanLevel(File file, int levelNumber) {
 		super();
@@ -32,6 +38,7 @@ public class SokobanLevel {
 		switch (format) {
 		case S4JL: return S4JLReader.getLevelNumber(file);
 		case SOK: return SokReader.getLevelNumber(file);
+		case S4JP: return LevelPack.getLevelNumber(file);
 		default:
 			throw new RuntimeException("Unexpected file extension: " + file.getAbsolutePath());
 		}
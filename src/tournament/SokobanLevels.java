@@ -10,10 +10,44 @@ public class SokobanLevels {
 
 	public List<SokobanLevel> levels = new ArrayList<SokobanLevel>();
 	
+	/**
+	 * Filled by {@link #preload()}.
+	 */
+	public LevelCatalogue catalogue;
+	
 	public void validate() {
 		for (SokobanLevel level : levels) level.validate();
 	}
 	
+	/**
+	 * Parses and validates all files of {@link #levels} in parallel into {@link #catalogue} and binds {@link SokobanLevel#entry} of every level,
+	 * so they are played without any further I/O.
+	 *
+	 * Never fails because of a single level: invalid levels get an invalid {@link SokobanLevel#entry} and levels missing in the catalogue
+	 * (unreadable file, level number out of range) no entry, so they fail only once they are played.
+	 * @return this
+	 */
+	public SokobanLevels preload() {
+		Set<File> files = new LinkedHashSet<File>();
+		for (SokobanLevel level : levels) files.add(level.file);
+		catalogue = LevelCatalogue.load(files);
+		for (SokobanLevel level : levels) {
+			level.entry = catalogue.get(level);
+			if (level.entry == null) {
+				System.out.println("WARNING: level is not within the catalogue, it will be read when played: " + level);
+			} else if (!level.entry.isValid()) {
+				System.out.println("WARNING: " + level.entry.getError().getMessage());
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Parses "file;levels;file;levels;..." where 'levels' is "all", a level number or a range "from-to" (1-based, inclusive);
+	 * 'file' may be a directory for "all".
+	 * @param string
+	 * @return
+	 */
 	public static SokobanLevels fromString(String string) {
 		SokobanLevels results = new SokobanLevels();
 		
@@ -53,6 +87,14 @@ public class SokobanLevels {
 				} else {
 					throw new RuntimeException("Invalid file, neither file nor directory: " + file.getAbsolutePath());
 				}
+			} else
+			if (level.indexOf('-') > 0) {
+				// RANGE: from-to
+				int from = Integer.parseInt(level.substring(0, level.indexOf('-')));
+				int to = Integer.parseInt(level.substring(level.indexOf('-') + 1));
+				for (int i = from; i <= to; ++i) {
+					results.levels.add(new SokobanLevel(file, i));
+				}
 			} else {
 				int levelNumber = Integer.parseInt(level);
 				results.levels.add(new SokobanLevel(file, levelNumber));
@@ -0,0 +1,122 @@
+package tournament;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+import game.SokobanConfig;
+import game.SokobanResult;
+import game.SokobanResultType;
+
+/**
+ * Long-lived worker JVM playing levels one by one on request of {@link WorkerLevelRunner} using {@link InProcessLevelRunner}.
+ *
+ * Usage: <code>SokobanWorker &lt;agent-classname&gt; [-optimal] [-timeout &lt;num&gt;] [-cputimeout &lt;num&gt;] [-maxalloc &lt;bytes&gt;] [-v]</code>
+ *
+ * The protocol is line based over stdin/stdout (the output of levels goes to stderr or the requested file), fields are separated by {@link #SEPARATOR}:
+ * <ul>
+ * <li>request: <code>PLAY levelFile levelNumber outputFile</code>, the file may be empty</li>
+ * <li>response: <code>RESULT resultType healthy usedHeapBytes maxHeapBytes resultLine</code>, where 'resultLine' is the whole {@link SokobanResult#getResultLine(String, int, String)}
+ *     (steps, times, CPU, allocation, nodes, peak heap, solution) for the caller to store</li>
+ * </ul>
+ * The worker quits on the end of stdin or once the agent left it unhealthy.
+ *
+ * @author Jimmy
+ */
+public class SokobanWorker {
+
+	public static final String SEPARATOR = "\t";
+
+	public static final String REQUEST_PLAY = "PLAY";
+
+	public static final String RESPONSE_RESULT = "RESULT";
+
+	public static void main(String[] args) throws Exception {
+		// stdout is reserved for the protocol
+		PrintStream protocol = System.out;
+		PrintStream log = System.err;
+		System.setOut(log);
+
+		String agentClass = null;
+		SokobanConfig config = new SokobanConfig();
+
+		for (int i = 0; i < args.length; ++i) {
+			switch (args[i]) {
+				case "-optimal":
+					config.requireOptimal = true;
+					break;
+				case "-timeout":
+					config.timeoutMillis = Long.parseLong(args[++i]);
+					break;
+				case "-cputimeout":
+					config.cpuTimeoutMillis = Long.parseLong(args[++i]);
+					break;
+				case "-maxalloc":
+					config.maxAllocatedBytes = Long.parseLong(args[++i]);
+					break;
+				case "-v":
+					config.verbose = true;
+					break;
+				default:
+					agentClass = args[i];
+			}
+		}
+
+		if (agentClass == null) {
+			throw new RuntimeException("Agent class not specified.");
+		}
+
+		BufferedReader requests = new BufferedReader(new InputStreamReader(System.in));
+		String line;
+		while ((line = requests.readLine()) != null) {
+			String[] parts = line.split(SEPARATOR, -1);
+			if (parts.length != 4 || !parts[0].equals(REQUEST_PLAY)) {
+				throw new RuntimeException("Invalid request: " + line);
+			}
+
+			SokobanLevel level = new SokobanLevel(new File(parts[1]), Integer.parseInt(parts[2]));
+			File outputFile = parts[3].length() == 0 ? null : new File(parts[3]);
+
+			// the result goes back over the protocol
+			InProcessLevelRunner runner = new InProcessLevelRunner(config, agentClass, null);
+
+			PrintStream levelLog = log;
+			if (outputFile != null) {
+				try {
+					levelLog = new PrintStream(new FileOutputStream(outputFile, true), true);
+				} catch (FileNotFoundException e) {
+					throw new RuntimeException("Failed to open the output file: " + outputFile.getAbsolutePath(), e);
+				}
+			}
+			System.setOut(levelLog);
+
+			SokobanResultType result;
+			try {
+				result = runner.runLevel(level);
+			} finally {
+				System.setOut(log);
+				if (levelLog != log) levelLog.close();
+			}
+
+			// measure what survives the level
+			System.gc();
+			MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+			String resultLine = runner.getLastResult().getResultLine(level.file.getAbsolutePath(), level.levelNumber, agentClass);
+
+			protocol.println(RESPONSE_RESULT + SEPARATOR + result + SEPARATOR + runner.isHealthy() + SEPARATOR + heap.getUsed() + SEPARATOR + Runtime.getRuntime().maxMemory() + SEPARATOR + resultLine);
+			protocol.flush();
+
+			if (!runner.isHealthy()) break;
+		}
+
+		// do not wait for threads of agents abandoned by the watchdog
+		System.exit(0);
+	}
+
+}
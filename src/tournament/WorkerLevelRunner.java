@@ -0,0 +1,255 @@
+package tournament;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import game.SokobanConfig;
+import game.SokobanResult;
+import game.SokobanResultType;
+
+/**
+ * Runs levels within a long-lived {@link SokobanWorker} JVM, so JVM startup is paid only once per {@link #maxLevels} levels
+ * while a misbehaving agent still cannot poison THIS JVM.
+ *
+ * The worker is recycled (a fresh one is started for the next level) after {@link #maxLevels} levels, once its heap
+ * (measured after GC) exceeds {@link #maxHeapPortion} of its max heap, once the agent left it unhealthy, or when it does not respond
+ * within the timeout + {@link #WATCHDOG_GRACE_MILLIS} (reported as {@link SokobanResultType#TIMEOUT}).
+ *
+ * Output of the worker goes to our stderr unless 'outputFile' is given. The worker sends the whole result line back, see {@link SokobanWorker},
+ * which is appended to 'resultFile' (if any) by THIS JVM and available via {@link #getLastResultLine()}.
+ *
+ * @author Jimmy
+ */
+public class WorkerLevelRunner implements ILevelRunner {
+
+	public static final int DEFAULT_MAX_LEVELS = 100;
+
+	public static final double DEFAULT_MAX_HEAP_PORTION = 0.5;
+
+	/**
+	 * How long after the timeout do we wait for the worker; must be greater than {@link InProcessLevelRunner#WATCHDOG_GRACE_MILLIS}
+	 * so the watchdog of the worker fires first.
+	 */
+	public static final long WATCHDOG_GRACE_MILLIS = 2 * InProcessLevelRunner.WATCHDOG_GRACE_MILLIS;
+
+	private static final String END_OF_STREAM = "";
+
+	private SokobanConfig config;
+	private String agentClass;
+	private File resultFile;
+	private File outputFile;
+
+	private int maxLevels;
+	private double maxHeapPortion;
+
+	// CURRENT WORKER
+
+	private Process process;
+	private PrintWriter requests;
+	private BlockingQueue<String> responses;
+	private int levelsPlayed;
+
+	private String lastResultLine;
+
+	public WorkerLevelRunner(SokobanConfig config, String agentClass, File resultFile) {
+		this(config, agentClass, resultFile, null, DEFAULT_MAX_LEVELS, DEFAULT_MAX_HEAP_PORTION);
+	}
+
+	/**
+	 * @param config
+	 * @param agentClass
+	 * @param resultFile
+	 * @param outputFile where the output of levels goes, null for our stderr
+	 * @param maxLevels how many levels a worker plays before it is recycled
+	 * @param maxHeapPortion portion of the max heap of the worker still in use after a level that gets the worker recycled
+	 */
+	public WorkerLevelRunner(SokobanConfig config, String agentClass, File resultFile, File outputFile, int maxLevels, double maxHeapPortion) {
+		this.config = config;
+		this.agentClass = agentClass;
+		this.resultFile = resultFile;
+		this.outputFile = outputFile;
+		this.maxLevels = maxLevels;
+		this.maxHeapPortion = maxHeapPortion;
+	}
+
+	@Override
+	public boolean isHealthy() {
+		// broken workers are recycled
+		return true;
+	}
+
+	@Override
+	public SokobanResultType runLevel(SokobanLevel level) {
+		return runLevel(level, outputFile);
+	}
+
+	/**
+	 * Result line (see {@link SokobanResult#RESULT_HEADER}) of the last {@link #runLevel(SokobanLevel)} as reported by the worker;
+	 * if the worker did not respond or died, the line has the result type only.
+	 * @return
+	 */
+	public String getLastResultLine() {
+		return lastResultLine;
+	}
+
+	/**
+	 * Plays 'level' outputting into given 'outputFile' instead of the one given in the constructor.
+	 * @param level
+	 * @param outputFile
+	 * @return
+	 */
+	public SokobanResultType runLevel(SokobanLevel level, File outputFile) {
+		if (process == null) startWorker();
+
+		lastResultLine = null;
+
+		requests.println(
+			SokobanWorker.REQUEST_PLAY + SokobanWorker.SEPARATOR
+			+ level.file.getAbsolutePath() + SokobanWorker.SEPARATOR
+			+ level.levelNumber + SokobanWorker.SEPARATOR
+			+ (outputFile == null ? "" : outputFile.getAbsolutePath())
+		);
+		requests.flush();
+		++levelsPlayed;
+
+		String response;
+		try {
+			if (config.timeoutMillis > 0) {
+				response = responses.poll(config.timeoutMillis + WATCHDOG_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+			} else {
+				response = responses.take();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted while waiting for the worker.", e);
+		}
+
+		if (response == null) {
+			System.out.println("TIMEOUT (watchdog, the worker does not respond)");
+			stopWorker();
+			outputResult(level, SokobanResultType.TIMEOUT);
+			return SokobanResultType.TIMEOUT;
+		}
+
+		if (END_OF_STREAM.equals(response)) {
+			System.out.println("FAILED (the worker died)");
+			stopWorker();
+			outputResult(level, SokobanResultType.SIMULATION_EXCEPTION);
+			return SokobanResultType.SIMULATION_EXCEPTION;
+		}
+
+		String[] parts = response.split(SokobanWorker.SEPARATOR, -1);
+		SokobanResultType result = SokobanResultType.valueOf(parts[1]);
+		boolean healthy = Boolean.parseBoolean(parts[2]);
+		long usedHeap = Long.parseLong(parts[3]);
+		long maxHeap = Long.parseLong(parts[4]);
+
+		lastResultLine = parts[5];
+		if (resultFile != null) {
+			SokobanResult.outputResultLine(resultFile, lastResultLine);
+		}
+
+		if (!healthy || levelsPlayed >= maxLevels || usedHeap > maxHeap * maxHeapPortion) {
+			stopWorker();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Stops the worker (if any); call once you are done with the runner.
+	 */
+	public void stopWorker() {
+		if (process == null) return;
+
+		requests.close();
+		try {
+			if (!process.waitFor(1000, TimeUnit.MILLISECONDS)) {
+				process.destroyForcibly();
+			}
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+		}
+
+		process = null;
+		requests = null;
+		responses = null;
+	}
+
+	private void startWorker() {
+		List<String> args = ForkedLevelRunner.getJavaCommand();
+
+		args.add(SokobanWorker.class.getName());
+
+		args.add(agentClass);
+
+		if (config.requireOptimal)
+			args.add("-optimal");
+
+		if (config.timeoutMillis > 0) {
+			args.add("-timeout");
+			args.add("" + config.timeoutMillis);
+		}
+
+		if (config.cpuTimeoutMillis > 0) {
+			args.add("-cputimeout");
+			args.add("" + config.cpuTimeoutMillis);
+		}
+
+		if (config.maxAllocatedBytes > 0) {
+			args.add("-maxalloc");
+			args.add("" + config.maxAllocatedBytes);
+		}
+
+		if (config.verbose)
+			args.add("-v");
+
+		ProcessBuilder pb = new ProcessBuilder(args);
+		pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+		try {
+			process = pb.start();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to start the worker JVM.", e);
+		}
+
+		requests = new PrintWriter(process.getOutputStream());
+		final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+		responses = queue;
+		levelsPlayed = 0;
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		Thread readerThread = new Thread("WorkerReader") {
+			@Override
+			public void run() {
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (line.startsWith(SokobanWorker.RESPONSE_RESULT + SokobanWorker.SEPARATOR)) queue.add(line);
+					}
+				} catch (IOException e) {
+				}
+				queue.add(END_OF_STREAM);
+			}
+		};
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+	private void outputResult(SokobanLevel level, SokobanResultType resultType) {
+		SokobanResult result = new SokobanResult();
+		result.setId(agentClass.substring(agentClass.lastIndexOf('.') + 1));
+		result.setResult(resultType);
+		lastResultLine = result.getResultLine(level.file.getAbsolutePath(), level.levelNumber, agentClass);
+		if (resultFile != null) {
+			SokobanResult.outputResultLine(resultFile, lastResultLine);
+		}
+	}
+
+}
@@ -0,0 +1,300 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import game.ELevelFormat;
+import game.board.compact.BoardCompact;
+import game.board.oop.Board;
+import game.board.oop.EEntity;
+import game.board.oop.EPlace;
+import game.board.oop.ESpace;
+import game.board.oop.Tile;
+
+/**
+ * Compiled binary level pack (.s4jp) that is read via {@link MappedByteBuffer}; any level is found in O(1) through the offset index
+ * and decoded straight into {@link BoardCompact} without any text parsing.
+ *
+ * Layout (big-endian):
+ * <ul>
+ * <li>header: int {@link #MAGIC}, int {@link #VERSION}, int levelCount</li>
+ * <li>index: int offset of every level record (from the start of the file)</li>
+ * <li>level record: short width, short height, short playerX, short playerY, int minMoves, short nameLength, UTF-8 name,
+ *     followed by three width*height byte planes (row-major, index y*width+x):
+ *     walls (0/1), goals ({@link EPlace#ordinal()}, 0 for none) and boxes ({@link EEntity#ordinal()}, 0 for none)</li>
+ * </ul>
+ *
+ * Compile a pack: <code>LevelPack &lt;source .sok/.s4jl&gt; [&lt;target .s4jp&gt;]</code>.
+ *
+ * @author Jimmy
+ */
+public class LevelPack {
+
+	public static final int MAGIC = 0x53344A50; // "S4JP"
+
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 12;
+
+	private static final int RECORD_FIXED_BYTES = 14;
+
+	private final File file;
+
+	private final MappedByteBuffer buffer;
+
+	private final int levelCount;
+
+	/**
+	 * Maps the whole 'packFile' into memory.
+	 * @param packFile
+	 */
+	public LevelPack(File packFile) {
+		if (packFile == null) throw new RuntimeException("packFile is null");
+		if (!packFile.isFile()) throw new RuntimeException("Level pack is not a file: " + packFile.getAbsolutePath());
+		this.file = packFile;
+		try (RandomAccessFile raf = new RandomAccessFile(packFile, "r"); FileChannel channel = raf.getChannel()) {
+			// the mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to map level pack: " + packFile.getAbsolutePath(), e);
+		}
+		if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new RuntimeException("Not a level pack: " + packFile.getAbsolutePath());
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new RuntimeException("Unsupported level pack version " + buffer.getInt(4) + ": " + packFile.getAbsolutePath());
+		}
+		levelCount = buffer.getInt(8);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getLevelCount() {
+		return levelCount;
+	}
+
+	// =======
+	// READING
+	// =======
+
+	public int getWidth(int levelNumber) {
+		return buffer.getShort(offset(levelNumber));
+	}
+
+	public int getHeight(int levelNumber) {
+		return buffer.getShort(offset(levelNumber) + 2);
+	}
+
+	public int getMinMoves(int levelNumber) {
+		return buffer.getInt(offset(levelNumber) + 8);
+	}
+
+	public String getLevelName(int levelNumber) {
+		int offset = offset(levelNumber);
+		byte[] name = new byte[buffer.getShort(offset + 12)];
+		for (int i = 0; i < name.length; ++i) {
+			name[i] = buffer.get(offset + RECORD_FIXED_BYTES + i);
+		}
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Decodes 'levelNumber'-th level (1-based) from the planes.
+	 * @param levelNumber
+	 * @return
+	 */
+	public BoardCompact getBoardCompact(int levelNumber) {
+		int offset = offset(levelNumber);
+		int width = buffer.getShort(offset);
+		int height = buffer.getShort(offset + 2);
+		int playerX = buffer.getShort(offset + 4);
+		int playerY = buffer.getShort(offset + 6);
+
+		int planeSize = width * height;
+		int walls = offset + RECORD_FIXED_BYTES + buffer.getShort(offset + 12);
+		int goals = walls + planeSize;
+		int boxes = goals + planeSize;
+
+		EPlace[] places = EPlace.values();
+		EEntity[] entities = EEntity.values();
+
+		BoardCompact result = new BoardCompact(width, height);
+		result.boxCount = 0;
+		result.boxInPlaceCount = 0;
+
+		for (int y = 0; y < height; ++y) {
+			int row = y * width;
+			for (int x = 0; x < width; ++x) {
+				int i = row + x;
+				EPlace place = places[buffer.get(goals + i)];
+				EEntity entity = entities[buffer.get(boxes + i)];
+				if (x == playerX && y == playerY) {
+					entity = EEntity.PLAYER;
+				} else
+				if (entity.isSomeBox()) {
+					++result.boxCount;
+					if (place.forBox(entity)) ++result.boxInPlaceCount;
+				}
+				result.tiles[x][y] = (buffer.get(walls + i) != 0 ? ESpace.WALL : ESpace.FREE).getFlag() | place.getFlag() | entity.getFlag();
+			}
+		}
+
+		result.playerX = playerX;
+		result.playerY = playerY;
+
+		return result;
+	}
+
+	/**
+	 * Decodes 'levelNumber'-th level (1-based) into OOP {@link Board}, see {@link Board#fromBoardCompact(BoardCompact)}.
+	 * @param levelNumber
+	 * @return
+	 */
+	public Board getBoard(int levelNumber) {
+		Board result = Board.fromBoardCompact(getBoardCompact(levelNumber));
+		result.level = getLevelName(levelNumber);
+		result.minMoves = getMinMoves(levelNumber);
+		return result;
+	}
+
+	private int offset(int levelNumber) {
+		if (levelNumber < 1 || levelNumber > levelCount) {
+			throw new RuntimeException("Level " + levelNumber + " out of range [1;" + levelCount + "] in " + file.getAbsolutePath());
+		}
+		return buffer.getInt(HEADER_BYTES + 4 * (levelNumber - 1));
+	}
+
+	/**
+	 * Returns how many levels are within 'packFile'; reads the header only.
+	 * @param packFile
+	 * @return
+	 */
+	public static int getLevelNumber(File packFile) {
+		return new LevelPack(packFile).getLevelCount();
+	}
+
+	// =======
+	// WRITING
+	// =======
+
+	/**
+	 * Compiles all levels of 'source' (.sok or .s4jl) into 'target' level pack.
+	 * @param source
+	 * @param target
+	 */
+	public static void compile(File source, File target) {
+		ELevelFormat format = ELevelFormat.getExpectedLevelFormat(source);
+		List<Board> boards = new ArrayList<Board>();
+		if (format == ELevelFormat.SOK) {
+			SokReader reader = new SokReader(source);
+			TextLevelS4JL level;
+			while ((level = reader.readNext()) != null) boards.add(Board.fromTextLevel(level));
+			reader.close();
+		} else
+		if (format == ELevelFormat.S4JL) {
+			S4JLReader reader = new S4JLReader(source);
+			TextLevelS4JL level;
+			while ((level = reader.readNext()) != null) boards.add(Board.fromTextLevel(level));
+			reader.close();
+		} else {
+			throw new RuntimeException("Cannot compile level pack from: " + source.getAbsolutePath());
+		}
+		write(boards, target);
+	}
+
+	/**
+	 * Writes 'boards' into 'target' level pack.
+	 * @param boards
+	 * @param target
+	 */
+	public static void write(List<Board> boards, File target) {
+		try {
+			ByteArrayOutputStream records = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(records);
+			int[] offsets = new int[boards.size()];
+			int indexEnd = HEADER_BYTES + 4 * boards.size();
+
+			for (int i = 0; i < boards.size(); ++i) {
+				offsets[i] = indexEnd + out.size();
+				writeRecord(out, boards.get(i));
+			}
+			out.flush();
+
+			try (DataOutputStream file = new DataOutputStream(new FileOutputStream(target))) {
+				file.writeInt(MAGIC);
+				file.writeInt(VERSION);
+				file.writeInt(boards.size());
+				for (int offset : offsets) file.writeInt(offset);
+				records.writeTo(file);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to write level pack: " + target.getAbsolutePath(), e);
+		}
+	}
+
+	private static void writeRecord(DataOutputStream out, Board board) throws IOException {
+		if (board.width > Short.MAX_VALUE || board.height > Short.MAX_VALUE) {
+			throw new RuntimeException("Level too big for level pack: " + board.level);
+		}
+		byte[] name = (board.level == null ? "" : board.level).getBytes(StandardCharsets.UTF_8);
+
+		out.writeShort(board.width);
+		out.writeShort(board.height);
+		out.writeShort(board.player.getTileX());
+		out.writeShort(board.player.getTileY());
+		out.writeInt(board.minMoves);
+		out.writeShort(name.length);
+		out.write(name);
+
+		byte[] walls = new byte[board.width * board.height];
+		byte[] goals = new byte[walls.length];
+		byte[] boxes = new byte[walls.length];
+		for (int y = 0; y < board.height; ++y) {
+			for (int x = 0; x < board.width; ++x) {
+				Tile tile = board.tile(x, y);
+				int i = y * board.width + x;
+				walls[i] = (byte)(tile.space == ESpace.WALL ? 1 : 0);
+				goals[i] = (byte)tile.place.ordinal();
+				boxes[i] = (byte)(tile.isSomeBox() ? tile.entity.getType().ordinal() : 0);
+			}
+		}
+		out.write(walls);
+		out.write(goals);
+		out.write(boxes);
+	}
+
+	// ==========
+	// STANDALONE
+	// ==========
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.out.println("usage: LevelPack <source .sok/.s4jl> [<target .s4jp>]");
+			System.exit(1);
+		}
+		File source = new File(args[0]);
+		File target;
+		if (args.length == 2) {
+			target = new File(args[1]);
+		} else {
+			String name = source.getName();
+			int dot = name.lastIndexOf('.');
+			target = new File(source.getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + ELevelFormat.S4JP.getExtension());
+		}
+		long startNanos = System.nanoTime();
+		compile(source, target);
+		System.out.printf("Compiled %d levels into %s in %.1f ms.\n", getLevelNumber(target), target.getPath(), (System.nanoTime() - startNanos) / 1000000.0);
+	}
+
+}
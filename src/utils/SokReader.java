@@ -1,47 +1,142 @@
 package utils;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Reads levels of .sok files.
+ *
+ * The whole text is tokenized in a single pass over a {@link CharBuffer} into {@link Index} of level offsets and metadata;
+ * levels are then cut out of the text directly, i.e., reading n-th level does not parse levels before it.
+ *
+ * Indices of files are cached per file (invalidated by size / last modification), so counting levels via {@link #getLevelNumber(File)}
+ * reads the file only once.
+ *
+ * A level is a block of consecutive maze lines (made of {@link #MAZE_SYMBOLS}, containing a wall); non-blank lines after the maze are its comments
+ * up to the next level (the line right before the maze being its header) or up to a line with the level number only.
+ * Text before the first level is ignored.
+ *
+ * @author Jimmy
+ */
 public class SokReader {
 
-	private static final String NUMBERS = "0123456789";
-	
 	private static final String MAZE_SYMBOLS = " #.*@$+";
-		
-	private BufferedReader reader;
-	
-	private String name;
-	
+
+	private static final Map<String, Index> INDEX_CACHE = new ConcurrentHashMap<String, Index>();
+
+	/**
+	 * Offsets and metadata of one level within the text.
+	 */
+	public static class LevelEntry {
+
+		/**
+		 * Offset of the first maze line.
+		 */
+		public int mazeStart;
+
+		/**
+		 * Offset after the last maze line (line break excluded).
+		 */
+		public int mazeEnd;
+
+		/**
+		 * Offset after the last comment line; equals {@link #mazeEnd} if there are no comments.
+		 */
+		public int commentsEnd;
+
+		public int width;
+
+		public int height;
+
+		/**
+		 * "Title:" comment; null if not present.
+		 */
+		public String title;
+
+		/**
+		 * "Moves:" comment; -1 if not present.
+		 */
+		public int moves = -1;
+
+	}
+
+	/**
+	 * Levels found within the text.
+	 */
+	public static class Index {
+
+		public final List<LevelEntry> levels;
+
+		private final long fileLength;
+
+		private final long fileLastModified;
+
+		private Index(List<LevelEntry> levels, long fileLength, long fileLastModified) {
+			this.levels = Collections.unmodifiableList(levels);
+			this.fileLength = fileLength;
+			this.fileLastModified = fileLastModified;
+		}
+
+		public int getLevelCount() {
+			return levels.size();
+		}
+
+		/**
+		 * @param levelNumber 1-based
+		 * @return
+		 */
+		public LevelEntry getLevel(int levelNumber) {
+			return levels.get(levelNumber - 1);
+		}
+
+	}
+
+	private final String name;
+
+	private CharBuffer text;
+
+	private final Index index;
+
 	/**
 	 * 1-based.
 	 */
 	private int nextLevelNumber = 1;
-	
-	private List<String> lines = new ArrayList<String>();
-	
+
 	public SokReader(File sokFile) {
-		if (sokFile == null) throw new RuntimeException("sokFile is null");
-		if (!sokFile.exists()) throw new RuntimeException("Source file does not exist: " + sokFile.getAbsolutePath());
-		if (!sokFile.isFile()) throw new RuntimeException("Source file is not a file: " + sokFile.getAbsolutePath());
-		this.name = sokFile.getName();
-		try {
-			initReader(new FileReader(sokFile));			
-		} catch (FileNotFoundException e) {
-			close();
-			throw new RuntimeException("Failed to open SOK file: " + sokFile.getAbsolutePath(), e);
-		}
+		this.name = sokFile == null ? null : sokFile.getName();
+		this.text = readText(sokFile);
+		this.index = getIndex(sokFile, text);
 	}
-	
+
 	public SokReader(String name, Reader reader) {
 		this.name = name;
-		initReader(reader);
+		try {
+			StringBuilder result = new StringBuilder();
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) >= 0) {
+				result.append(buffer, 0, read);
+			}
+			this.text = CharBuffer.wrap(result);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read SOK level " + name, e);
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+			}
+		}
+		this.index = buildIndex(text, -1, -1);
 	}
 
 	/**
@@ -52,152 +147,237 @@ public class SokReader {
 		return nextLevelNumber;
 	}
 
-	private void initReader(Reader reader) {
-		try {
-			this.reader = new BufferedReader(reader);
-			findStart();
-		} catch (Exception e) {
-			close();
-			throw new RuntimeException("Failed to initialize reader.", e);
-		}
+	public int getLevelCount() {
+		return index.getLevelCount();
 	}
-	
-	private void findStart() throws IOException {
-		// FIND START
-		if (reader == null || !reader.ready()) throw new RuntimeException("Failed to find first level within the SOK.");
-		String line = reader.readLine();
-		while (reader.ready()) {
-			if (line.length() != 0) {
-				try {
-					Integer.parseInt(line);
-					break;
-				} catch (Exception e) {					
-				}
-			}
-			line = reader.readLine();
-		}
-		if (line == null || line.length() <= 0 || NUMBERS.indexOf(line.substring(0, 1)) < 0) {
-			throw new RuntimeException("Failed to find first level within the SOK.");
-		}
-	}
-	
+
 	/**
-	 * Parses next level within the reader.
+	 * Parses next level.
 	 * Once there are no levels, it returns NULL.
 	 */
 	public TextLevelS4JL readNext() {
-        String line = null;
-
-        lines.clear();
-        
-        while (true) {
-            try {
-                line = reader.readLine();
-            } catch (IOException e) { throw new RuntimeException(e); }
-
-            if (line == null || !line.isEmpty() && Character.isDigit(line.charAt(0)))
-                break;
-
-            lines.add(line);
-        }
-
-        if (lines.isEmpty())
-            return null;
-        else {
-            TextLevelS4JL result = transform(lines);
-            ++nextLevelNumber;
-            return result;			
-        }
-	}
-	
-	private TextLevelS4JL transform(List<String> lines) {		
-		// FIND MAZE
-		int mazeStart = 0;
-		int mazeEnd = 0;
-		
-		int maxLength = 0;
-		
-		while (mazeEnd < lines.size() && isMazeLine(lines.get(mazeEnd))) {			
-			String line = lines.get(mazeEnd);
-			int length = line.length()-1;
-			while (length > 0 && line.substring(length, length+1).equals(" ")) --length;
-			if (length+1 > maxLength) maxLength = length+1;
-			++mazeEnd;
+		if (text == null || nextLevelNumber > index.getLevelCount()) return null;
+		return readLevel(nextLevelNumber);
+	}
+
+	/**
+	 * Parses 'levelNumber'-th level (1-based) directly; {@link #readNext()} continues after it.
+	 * @param levelNumber
+	 * @return
+	 */
+	public TextLevelS4JL readLevel(int levelNumber) {
+		if (text == null) throw new RuntimeException("Reader of " + name + " is closed.");
+		if (levelNumber < 1 || levelNumber > index.getLevelCount()) {
+			throw new RuntimeException("Level " + levelNumber + " out of range [1;" + index.getLevelCount() + "] in " + name);
 		}
-		
-		int width = maxLength;
-		int height = mazeEnd - mazeStart;
-		
-		if (width <= 4 || height < 4) {
-			throw new RuntimeException("Level of invalid dimensions (w x h): " + width + " x " + height);
+		LevelEntry level = index.getLevel(levelNumber);
+
+		if (level.width < 3 || level.height < 3) {
+			throw new RuntimeException("Level of invalid dimensions (w x h): " + level.width + " x " + level.height);
 		}
-		
-		List<String> maze = new ArrayList<String>();
+
+		List<String> maze = new ArrayList<String>(level.height);
 		List<String> comments = new ArrayList<String>();
-			
-		// COMMENTS
-		for (int i = mazeEnd; i < lines.size(); ++i) {
-			if (lines.get(i).trim().length() > 0) {
-				comments.add(lines.get(i).trim());
-			}
-		}
-			
-		// MAZE
-		for (int i = mazeStart; i < mazeEnd; ++i) {
-			maze.add(adjustMazeLine(lines.get(i), width));
-		}
-		
-		return new TextLevelS4JL(name + " / " + nextLevelNumber, width, height, maze, comments);
-	}
-	
-	private String adjustMazeLine(String line, int width) {
-		String result = "";
-		
-		int i = 0;
-		
-		while (i < line.length() && line.substring(i, i+1).equals(" ")) {
-			result += "#";
-			++i;
+
+		char[] line = new char[level.width];
+		int pos = level.mazeStart;
+		while (pos < level.mazeEnd) {
+			int end = lineEnd(text, pos);
+			maze.add(adjustMazeLine(pos, end, line));
+			pos = nextLine(text, end);
 		}
-		result += line.substring(i);
-		i = result.length()-1;
-		while (result.substring(i, i+1).equals(" ")) {
-			result = result.substring(0, i) + "#" + result.substring(i+1);
-			++i;
+		while (pos < level.commentsEnd) {
+			int end = lineEnd(text, pos);
+			String comment = text.subSequence(pos, end).toString().trim();
+			if (comment.length() > 0) comments.add(comment);
+			pos = nextLine(text, end);
 		}
-		while (result.length() < width) result += "#";
-		result = result.substring(0, width);
 
-		return result;			
+		nextLevelNumber = levelNumber + 1;
+
+		return new TextLevelS4JL(name + " / " + levelNumber, level.width, level.height, maze, comments);
 	}
 
-	private boolean isMazeLine(String line) {
-		for (int i = 0; i < line.length(); ++i) {
-			if (MAZE_SYMBOLS.indexOf(line.substring(i, i+1)) < 0) return false;
+	/**
+	 * Leading and trailing spaces (outside of the maze) turn into walls, the line is padded with walls to 'line.length'.
+	 */
+	private String adjustMazeLine(int start, int end, char[] line) {
+		for (int x = 0; x < line.length; ++x) {
+			line[x] = '#';
+		}
+		int from = start;
+		while (from < end && text.get(from) == ' ') ++from;
+		while (end > from && text.get(end - 1) == ' ') --end;
+		for (int i = from; i < end && i - start < line.length; ++i) {
+			line[i - start] = text.get(i);
 		}
-		return true;
+		return new String(line);
 	}
-	
+
 	public void close() {
-		try {
-			if (reader != null) {
-				reader.close();
-				reader = null;
-			}
-		} catch (Exception e) {			
-		}
+		text = null;
 	}
-	
+
+	// ========
+	// INDEXING
+	// ========
+
 	/**
 	 * Returns how many levels are within 'file'
 	 * @param sokFile
 	 */
 	public static int getLevelNumber(File sokFile) {
-		SokReader reader = new SokReader(sokFile);
-		int count = 0;
-		while (reader.readNext() != null) ++count;
-		reader.close();
-		return count;
+		return getIndex(sokFile).getLevelCount();
+	}
+
+	/**
+	 * Returns (cached) {@link Index} of 'sokFile'.
+	 * @param sokFile
+	 * @return
+	 */
+	public static Index getIndex(File sokFile) {
+		return getIndex(sokFile, null);
+	}
+
+	private static Index getIndex(File sokFile, CharBuffer text) {
+		checkFile(sokFile);
+		String key = sokFile.getAbsolutePath();
+		long length = sokFile.length();
+		long lastModified = sokFile.lastModified();
+		Index index = INDEX_CACHE.get(key);
+		if (index != null && index.fileLength == length && index.fileLastModified == lastModified) return index;
+		if (text == null) text = readText(sokFile);
+		index = buildIndex(text, length, lastModified);
+		INDEX_CACHE.put(key, index);
+		return index;
+	}
+
+	private static Index buildIndex(CharBuffer text, long fileLength, long fileLastModified) {
+		List<LevelEntry> levels = new ArrayList<LevelEntry>();
+
+		LevelEntry level = null;      // level whose maze or comments are being read
+		boolean inMaze = false;
+		boolean inComments = false;
+		int pendingStart = -1;        // comment line that might turn out to be the header of the next level
+		int pendingEnd = -1;
+
+		int length = text.limit();
+		int pos = 0;
+		while (pos < length) {
+			int end = lineEnd(text, pos);
+
+			// CLASSIFY LINE IN ONE PASS
+			boolean blank = true;
+			boolean maze = true;
+			boolean wall = false;
+			boolean number = true;
+			int contentEnd = pos;
+			for (int i = pos; i < end; ++i) {
+				char c = text.get(i);
+				if (c == '#') wall = true;
+				if (MAZE_SYMBOLS.indexOf(c) < 0) maze = false;
+				if (c < '0' || c > '9') number = false;
+				if (!Character.isWhitespace(c)) {
+					blank = false;
+					contentEnd = i + 1;
+				}
+			}
+			maze = maze && wall;
+			number = number && !blank;
+
+			if (maze) {
+				if (!inMaze) {
+					// pending line is the header of the new level
+					pendingStart = -1;
+					level = new LevelEntry();
+					level.mazeStart = pos;
+					levels.add(level);
+					inMaze = true;
+					inComments = false;
+				}
+				++level.height;
+				if (contentEnd - pos > level.width) level.width = contentEnd - pos;
+				level.mazeEnd = end;
+				level.commentsEnd = end;
+			} else {
+				if (inMaze) {
+					inMaze = false;
+					inComments = true;
+				}
+				if (inComments) {
+					if (pendingStart >= 0) {
+						addComment(text, level, pendingStart, pendingEnd);
+						pendingStart = -1;
+					}
+					if (number) {
+						inComments = false;
+					} else
+					if (!blank) {
+						pendingStart = pos;
+						pendingEnd = end;
+					}
+				}
+			}
+
+			pos = nextLine(text, end);
+		}
+		if (pendingStart >= 0) addComment(text, level, pendingStart, pendingEnd);
+
+		return new Index(levels, fileLength, fileLastModified);
 	}
-	
+
+	private static void addComment(CharBuffer text, LevelEntry level, int start, int end) {
+		level.commentsEnd = end;
+		int colon = start;
+		while (colon < end && text.get(colon) != ':') ++colon;
+		if (colon == end) return;
+		String key = text.subSequence(start, colon).toString().trim();
+		if (key.equals("Title")) {
+			level.title = text.subSequence(colon + 1, end).toString().trim();
+		} else
+		if (key.equals("Moves")) {
+			try {
+				level.moves = Integer.parseInt(text.subSequence(colon + 1, end).toString().trim());
+			} catch (NumberFormatException e) {
+			}
+		}
+	}
+
+	// =====
+	// LINES
+	// =====
+
+	private static int lineEnd(CharBuffer text, int pos) {
+		int length = text.limit();
+		while (pos < length) {
+			char c = text.get(pos);
+			if (c == '\n' || c == '\r') break;
+			++pos;
+		}
+		return pos;
+	}
+
+	private static int nextLine(CharBuffer text, int lineEnd) {
+		int length = text.limit();
+		if (lineEnd < length && text.get(lineEnd) == '\r') ++lineEnd;
+		if (lineEnd < length && text.get(lineEnd) == '\n') ++lineEnd;
+		return lineEnd;
+	}
+
+	private static void checkFile(File sokFile) {
+		if (sokFile == null) throw new RuntimeException("sokFile is null");
+		if (!sokFile.exists()) throw new RuntimeException("Source file does not exist: " + sokFile.getAbsolutePath());
+		if (!sokFile.isFile()) throw new RuntimeException("Source file is not a file: " + sokFile.getAbsolutePath());
+	}
+
+	private static CharBuffer readText(File sokFile) {
+		checkFile(sokFile);
+		try {
+			// same decoding as FileReader, malformed input is replaced
+			return Charset.defaultCharset().decode(ByteBuffer.wrap(Files.readAllBytes(sokFile.toPath())));
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read SOK file: " + sokFile.getAbsolutePath(), e);
+		}
+	}
+
 }
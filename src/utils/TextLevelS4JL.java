@@ -67,6 +67,20 @@ public class TextLevelS4JL {
 		this.comments = comments;
 	}
 
+	/**
+	 * Length of the optimal solution given by "Moves:" comment; 0 if not known.
+	 * @return
+	 */
+	public int getMinMoves() {
+		int result = 0;
+		for (String comment : comments) {
+			String[] a = comment.split(":");
+			if (a[0].trim().equals("Moves") && a.length > 1)
+				result = Integer.parseInt(a[1].trim());
+		}
+		return result;
+	}
+	
 	public void validate() {
         if (getWidth() < 4 || getWidth() < 4)
             throw new RuntimeException(
@@ -0,0 +1,90 @@
+package agents.heuristics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import agents.analysis.LevelAnalysis;
+import game.board.compact.BoardCompact;
+import game.board.compact.CTile;
+import game.board.oop.Board;
+
+public class HungarianHeuristicTest {
+
+	private LevelAnalysis analysis;
+
+	private long best;
+
+	//@Test
+	public void testAgainstBruteForce() {
+		System.out.println("=== TESTING HUNGARIAN HEURISTIC ===");
+
+		Random random = new Random(1);
+		int checks = 0;
+
+		for (int level = 1; level <= 10; ++level) {
+			BoardCompact board = Board.fromFileSok(new File("levels/Aymeric_Hard.sok"), level).makeBoardCompact();
+			analysis = LevelAnalysis.get(board);
+
+			List<Integer> free = new ArrayList<Integer>();
+			for (int cell = 0; cell < board.width() * board.height(); ++cell) {
+				if (!CTile.isWall(board.tile(cell % board.width(), cell / board.width()))) free.add(cell);
+			}
+			Collections.shuffle(free, random);
+
+			int[] cells = new int[board.boxCount];
+			for (int i = 0; i < cells.length; ++i) {
+				cells[i] = free.get(i);
+			}
+
+			HungarianHeuristic incremental = new HungarianHeuristic(analysis, cells.length);
+			HungarianHeuristic full = new HungarianHeuristic(analysis, cells.length);
+			incremental.init(cells);
+
+			for (int step = 0; step < 100; ++step) {
+				int box = random.nextInt(cells.length);
+				int cell = free.get(cells.length + random.nextInt(free.size() - cells.length));
+				free.set(free.indexOf(cell), cells[box]);
+				cells[box] = cell;
+
+				int expected = bruteForce(cells);
+				if (full.init(cells) != expected) throw new RuntimeException("FULL MATCHING NOT OPTIMAL: level " + level + ", step " + step);
+				if (incremental.moveBox(box, cell) != expected) throw new RuntimeException("INCREMENTAL MATCHING NOT OPTIMAL: level " + level + ", step " + step);
+				++checks;
+			}
+		}
+
+		System.out.println("Checks: " + checks);
+		System.out.println("---// TEST OK //---");
+	}
+
+	private int bruteForce(int[] cells) {
+		best = Long.MAX_VALUE;
+		bruteForce(cells, 0, new boolean[analysis.goalCells.length], 0);
+		return best == Long.MAX_VALUE ? HungarianHeuristic.DEADLOCK : (int)best;
+	}
+
+	private void bruteForce(int[] cells, int box, boolean[] usedGoals, long sum) {
+		if (sum >= best) return;
+		if (box == cells.length) {
+			best = sum;
+			return;
+		}
+		for (int goal = 0; goal < usedGoals.length; ++goal) {
+			if (usedGoals[goal]) continue;
+			int distance = analysis.getPushDistance(goal, cells[box]);
+			if (distance == LevelAnalysis.UNREACHABLE) continue;
+			usedGoals[goal] = true;
+			bruteForce(cells, box + 1, usedGoals, sum + distance);
+			usedGoals[goal] = false;
+		}
+	}
+
+	public static void main(String[] args) {
+		HungarianHeuristicTest test = new HungarianHeuristicTest();
+		test.testAgainstBruteForce();
+	}
+
+}
@@ -0,0 +1,64 @@
+package agents.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchMetricsTest {
+
+	//@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		System.out.println("=== TESTING SEARCH METRICS ===");
+
+		final SearchMetrics metrics = new SearchMetrics();
+		final int threadCount = 4;
+		final int perThread = 250000;
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < threadCount; ++t) {
+			final int id = t;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					metrics.beginThread();
+					long start = metrics.startPhase();
+					List<int[]> garbage = new ArrayList<int[]>();
+					for (int i = 0; i < perThread; ++i) {
+						metrics.inc(ECounter.EXPANDED);
+						metrics.add(ECounter.GENERATED, 3);
+						metrics.set(EGauge.OPEN_SIZE, id * perThread + i);
+						if (i % 100 == 0) garbage.add(new int[64]);
+					}
+					metrics.endPhase("work", start);
+					metrics.endThread();
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) thread.join();
+
+		MetricsSnapshot snapshot = metrics.snapshot();
+		if (snapshot.get(ECounter.EXPANDED) != threadCount * perThread) throw new RuntimeException("EXPANDED: " + snapshot.get(ECounter.EXPANDED));
+		if (snapshot.get(ECounter.GENERATED) != 3L * threadCount * perThread) throw new RuntimeException("GENERATED: " + snapshot.get(ECounter.GENERATED));
+		if (snapshot.get(ECounter.DUPLICATES) != 0) throw new RuntimeException("DUPLICATES: " + snapshot.get(ECounter.DUPLICATES));
+		if (snapshot.getMax(EGauge.OPEN_SIZE) != threadCount * perThread - 1) throw new RuntimeException("OPEN max: " + snapshot.getMax(EGauge.OPEN_SIZE));
+		if (!snapshot.phaseNanos.containsKey("work")) throw new RuntimeException("Phase not timed.");
+		// 4 threads x 2500 arrays x 64 ints, if the JVM can tell
+		if (snapshot.allocatedBytes != 0 && snapshot.allocatedBytes < threadCount * 2500L * 64 * 4) throw new RuntimeException("Allocations not measured: " + snapshot.allocatedBytes);
+
+		metrics.reset();
+		MetricsSnapshot empty = metrics.snapshot();
+		if (empty.get(ECounter.EXPANDED) != 0 || empty.getMax(EGauge.OPEN_SIZE) != 0 || empty.allocatedBytes != 0 || empty.phaseNanos.size() != 0) {
+			throw new RuntimeException("Reset failed: " + empty);
+		}
+
+		System.out.println(snapshot);
+		System.out.println("---// TEST OK //---");
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		SearchMetricsTest test = new SearchMetricsTest();
+		test.testConcurrentUpdates();
+	}
+
+}
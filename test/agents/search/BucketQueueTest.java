@@ -0,0 +1,46 @@
+package agents.search;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+public class BucketQueueTest {
+
+	//@Test
+	public void testAgainstPriorityQueue() {
+		System.out.println("=== TESTING BUCKET QUEUE ===");
+
+		BucketQueue queue = new BucketQueue();
+		PriorityQueue<long[]> expected = new PriorityQueue<long[]>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+		Random random = new Random(1);
+
+		int base = 0;
+		for (int i = 0; i < 200000; ++i) {
+			if (random.nextInt(3) != 0 || queue.isEmpty()) {
+				// f grows slowly as in A*
+				int f = base + random.nextInt(20);
+				int h = random.nextInt(300);
+				queue.add(i, f, h);
+				expected.add(new long[]{ f, h });
+			} else {
+				queue.poll();
+				long[] next = expected.poll();
+				if (queue.getPolledF() != next[0] || queue.getPolledH() != next[1]) {
+					throw new RuntimeException("WRONG ORDER: expected f=" + next[0] + ",h=" + next[1] + ", got f=" + queue.getPolledF() + ",h=" + queue.getPolledH());
+				}
+				base = queue.getPolledF();
+			}
+			if (queue.size() != expected.size()) throw new RuntimeException("SIZE DIFFERS");
+		}
+
+		queue.clear();
+		if (!queue.isEmpty() || queue.poll() != -1) throw new RuntimeException("CLEAR FAILED");
+
+		System.out.println("---// TEST OK //---");
+	}
+
+	public static void main(String[] args) {
+		BucketQueueTest test = new BucketQueueTest();
+		test.testAgainstPriorityQueue();
+	}
+
+}
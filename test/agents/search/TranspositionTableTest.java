@@ -0,0 +1,62 @@
+package agents.search;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class TranspositionTableTest {
+	
+	//@Test
+	public void testAgainstHashMap() {
+		System.out.println("=== TESTING TRANSPOSITION TABLE ===");
+		
+		TranspositionTable table = new TranspositionTable(2, 1024 * 1024);
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		Random random = new Random(1);
+		long[] key = new long[2];
+		
+		while (!table.isFull()) {
+			key[0] = random.nextInt(1 << 16);
+			key[1] = random.nextInt(1 << 4);
+			String k = key[0] + "," + key[1];
+			int entry = table.add(key, entry(k), table.size() - 1);
+			if (expected.containsKey(k)) {
+				if (entry != -(expected.get(k) + 1)) throw new RuntimeException("DUPLICATE NOT DETECTED: " + k);
+			} else {
+				if (entry < 0) throw new RuntimeException("FALSE DUPLICATE: " + k);
+				expected.put(k, entry);
+			}
+		}
+		
+		for (Map.Entry<String, Integer> e : expected.entrySet()) {
+			String[] parts = e.getKey().split(",");
+			key[0] = Long.parseLong(parts[0]);
+			key[1] = Long.parseLong(parts[1]);
+			int entry = table.find(key);
+			if (entry != e.getValue()) throw new RuntimeException("LOOKUP FAILED: " + e.getKey());
+			if (table.getG(entry) != entry(e.getKey())) throw new RuntimeException("G-COST CORRUPTED: " + e.getKey());
+			if (table.getKey(entry, 0) != key[0] || table.getKey(entry, 1) != key[1]) throw new RuntimeException("KEY CORRUPTED: " + e.getKey());
+		}
+		
+		if (table.getMemoryBytes() > 1024 * 1024) throw new RuntimeException("MEMORY BUDGET EXCEEDED: " + table.getMemoryBytes());
+		
+		TranspositionTable large = new TranspositionTable(2, 1L << 30);
+		if (large.getMemoryBytes() > 1024 * 1024) throw new RuntimeException("LARGE BUDGET ALLOCATED UP-FRONT: " + large.getMemoryBytes());
+		
+		table.clear();
+		if (table.size() != 0 || table.find(key) != TranspositionTable.NOT_FOUND) throw new RuntimeException("CLEAR FAILED");
+		
+		System.out.println("Entries: " + expected.size() + ", memory: " + table.getMemoryBytes() + " B");
+		System.out.println("---// TEST OK //---");
+	}
+	
+	private static int entry(String key) {
+		return key.hashCode() & 0xFFFF;
+	}
+	
+	public static void main(String[] args) {
+		TranspositionTableTest test = new TranspositionTableTest();
+		test.testAgainstHashMap();
+	}
+
+}
@@ -0,0 +1,69 @@
+package game;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import agents.analysis.LevelAnalysis;
+import agents.search.PushAStar;
+import game.actions.EDirection;
+import game.board.compact.BoardCompact;
+import game.board.oop.Board;
+
+public class SolutionVerifierTest {
+
+	//@Test
+	public void testSolutions() {
+		System.out.println("=== TESTING SOLUTION VERIFIER ===");
+
+		for (int level = 1; level <= 10; ++level) {
+			BoardCompact board = Board.fromFileSok(new File("levels/easy.sok"), level).makeBoardCompact();
+			List<EDirection> moves = new PushAStar(board, LevelAnalysis.get(board), 64 * 1024 * 1024).search();
+
+			// DIRECTIONS
+			StringBuilder lurd = new StringBuilder();
+			SolutionVerifier.Verification verification = SolutionVerifier.verify(board, moves, false, lurd);
+			if (!verification.isValid() || verification.steps != moves.size() || verification.pushes == 0) {
+				throw new RuntimeException("Level " + level + ": solution not verified: " + verification);
+			}
+
+			// LURD
+			SolutionVerifier.Verification lurdVerification = SolutionVerifier.verify(board, lurd.toString());
+			if (!lurdVerification.isValid() || lurdVerification.steps != verification.steps || lurdVerification.pushes != verification.pushes) {
+				throw new RuntimeException("Level " + level + ": LURD " + lurd + " not verified: " + lurdVerification);
+			}
+
+			// WRONG CASE
+			int firstPush = 0;
+			while (!Character.isUpperCase(lurd.charAt(firstPush))) ++firstPush;
+			StringBuilder wrongCase = new StringBuilder(lurd);
+			wrongCase.setCharAt(firstPush, Character.toLowerCase(lurd.charAt(firstPush)));
+			if (SolutionVerifier.verify(board, wrongCase.toString()).illegalStep != firstPush) {
+				throw new RuntimeException("Level " + level + ": push as move not detected at " + firstPush);
+			}
+
+			// UNFINISHED
+			SolutionVerifier.Verification unfinished = SolutionVerifier.verify(board, moves.subList(0, moves.size() - 1));
+			if (!unfinished.isLegal() || unfinished.solved) {
+				throw new RuntimeException("Level " + level + ": unfinished solution verified: " + unfinished);
+			}
+
+			// GIVING UP
+			List<EDirection> givenUp = new ArrayList<EDirection>(moves);
+			givenUp.add(3, EDirection.NONE);
+			if (SolutionVerifier.verify(board, givenUp).illegalStep != 3) {
+				throw new RuntimeException("Level " + level + ": NONE not detected");
+			}
+
+			System.out.println("Level " + level + ": " + verification);
+		}
+
+		System.out.println("---// TEST OK //---");
+	}
+
+	public static void main(String[] args) {
+		SolutionVerifierTest test = new SolutionVerifierTest();
+		test.testSolutions();
+	}
+
+}
@@ -30,6 +30,30 @@ public class SokobanActionsTest {
 		System.out.println("---// TEST OK //---");
 	}
 	
+	//@Test
+	public void testBoardCompactFlat() {
+		System.out.println("=== TESTING ACTIONS ON BOARD - COMPACT FLAT ===");
+		List<Board> boards = SokobanBoards.loadBoards();
+		for (Board board : boards) {
+			ValidatingAgent agent = new ValidatingAgent(board);
+			System.out.println("Testing: " + board.level);
+			agent.validateBoardCompactFlat();
+		}
+		System.out.println("---// TEST OK //---");
+	}
+	
+	//@Test
+	public void testBoardBitboard() {
+		System.out.println("=== TESTING BOARD - BITBOARD ===");
+		List<Board> boards = SokobanBoards.loadBoards();
+		for (Board board : boards) {
+			ValidatingAgent agent = new ValidatingAgent(board);
+			System.out.println("Testing: " + board.level);
+			agent.validateBoardBitboard();
+		}
+		System.out.println("---// TEST OK //---");
+	}
+	
 	//@Test
 	public void testBoardCompressed() {
 		System.out.println("=== TESTING ACTIONS ON BOARD - COMPRESSED ===");
@@ -59,6 +83,8 @@ public class SokobanActionsTest {
 		
 		//test.testBoardOOP();
 		//test.testBoardCompact();
+		//test.testBoardCompactFlat();
+		//test.testBoardBitboard();
 		//test.testBoardSlim();
 		test.testBoardCompressed();
 	}
@@ -1,5 +1,6 @@
 package game.board;
 
+import agents.actions.ActionsBFS;
 import game.actions.EDirection;
 import game.actions.compact.CAction;
 import game.actions.compact.CMove;
@@ -11,7 +12,9 @@ import game.actions.oop.*;
 import game.actions.slim.SAction;
 import game.actions.slim.SMove;
 import game.actions.slim.SPush;
+import game.board.bitboard.BoardBitboard;
 import game.board.compact.BoardCompact;
+import game.board.compact.BoardCompactFlat;
 import game.board.compact.CTile;
 import game.board.compressed.BoardCompressed;
 import game.board.compressed.MTile;
@@ -105,7 +108,92 @@ public class ValidatingAgent {
 		}		
 	}
 	
+	// ====================
+	// BOARD - COMPACT FLAT
+	// ====================
+
+	public void validateBoardCompactFlat() {
+		BoardCompact compact = board.makeBoardCompact();
+		BoardCompactFlat flat = compact.makeBoardCompactFlat();
+		checkEqual(compact, flat, "FLATTENING");
+				
+		BoardCompact clone = flat.clone();
+		checkEqual(flat, clone, "CLONING");
+				
+		for (int x = 0; x < flat.width(); ++x) {
+			for (int y = 0; y < flat.height(); ++y) {
+				clone = flat.clone();
+				
+				if (CTile.isFree(clone.tile(x, y))) {
+					clone.movePlayer(clone.playerX, clone.playerY, x, y);
+				}
+				
+				// CHECK CLONING				
+				BoardCompact clone2 = clone.clone();
+				checkEqual(clone, clone2, "CLONING");
+				
+				// TEST ACTIONS
+				testPlayerActions(clone);
+			}
+		}		
+	}
+	
+	// ================
+	// BOARD - BITBOARD
+	// ================
+
+	public void validateBoardBitboard() {
+		BoardCompact compact = board.makeBoardCompact();
+		
+		for (int x = 0; x < compact.width(); ++x) {
+			for (int y = 0; y < compact.height(); ++y) {
+				BoardCompact clone = compact.clone();
+				
+				if (CTile.isFree(clone.tile(x, y))) {
+					clone.movePlayer(clone.playerX, clone.playerY, x, y);
+				}
+				
+				BoardBitboard bitboard = clone.makeBoardBitboard();
+				
+				// CHECK CONVERSION
+				BoardCompact back = bitboard.makeBoardCompact();
+				for (int tx = 0; tx < clone.width(); ++tx) {
+					for (int ty = 0; ty < clone.height(); ++ty) {
+						int t1 = clone.tile(tx, ty);
+						int t2 = back.tile(tx, ty);
+						if (CTile.isWall(t1) != CTile.isWall(t2) || CTile.isSomeBox(t1) != CTile.isSomeBox(t2) 
+						    || CTile.forSomeBox(t1) != CTile.forSomeBox(t2) || CTile.isPlayer(t1) != CTile.isPlayer(t2)) {
+							throw new RuntimeException("CONVERSION FAILED: [" + tx + "," + ty + "]");
+						}
+					}
+				}
+				if (bitboard.isVictory() != clone.isVictory()) {
+					throw new RuntimeException("VICTORY DIFFERS");
+				}
+				if (bitboard.getZobristKey() != bitboard.clone().computeZobristKey()) {
+					throw new RuntimeException("ZOBRIST KEY OUT OF SYNC: BITBOARD");
+				}
+				
+				// CHECK REACHABILITY
+				ActionsBFS bfs = new ActionsBFS();
+				if (bfs.findReachable(clone) != bitboard.getNormalizedPlayerCell()) {
+					throw new RuntimeException("NORMALIZED PLAYER CELL DIFFERS");
+				}
+				for (int tx = 0; tx < clone.width(); ++tx) {
+					for (int ty = 0; ty < clone.height(); ++ty) {
+						if (bfs.isReachable(tx, ty) != bitboard.isReachable(tx, ty)) {
+							throw new RuntimeException("REACHABILITY DIFFERS: [" + tx + "," + ty + "]");
+						}
+					}
+				}
+			}
+		}
+	}
+	
 	private void checkEqual(BoardCompact b1, BoardCompact b2, String msg) {
+		if (b1.getZobristKey() != b1.computeZobristKey() || b2.getZobristKey() != b2.computeZobristKey()) {
+			throw new RuntimeException("ZOBRIST KEY OUT OF SYNC: " + msg);
+		}
 		if (!b1.equalsState(b2)) {
 			throw new RuntimeException("NOT STATE EQUAL: " + msg);
 		}
@@ -169,6 +257,9 @@ public class ValidatingAgent {
 	}
 	
 	private void checkEqual(BoardCompressed b1, BoardCompressed b2, String msg) {
+		if (b1.getZobristKey() != b1.computeZobristKey() || b2.getZobristKey() != b2.computeZobristKey()) {
+			throw new RuntimeException("ZOBRIST KEY OUT OF SYNC: " + msg);
+		}
 		if (b1.hashCode() != b2.hashCode()) {
 			System.out.println("HASH CODE DIFFERS: " + msg);
 			System.out.println("-- BOARD B1 ---");
@@ -237,6 +328,9 @@ public class ValidatingAgent {
 	}
 	
 	private void checkEqual(BoardSlim b1, BoardSlim b2, String msg) {
+		if (b1.getZobristKey() != b1.computeZobristKey() || b2.getZobristKey() != b2.computeZobristKey()) {
+			throw new RuntimeException("ZOBRIST KEY OUT OF SYNC: " + msg);
+		}
 		if (b1.hashCode() != b2.hashCode()) {
 			System.out.println("HASH CODE DIFFERS: " + msg);
 			System.out.println("-- BOARD B1 ---");
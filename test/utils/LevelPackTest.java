@@ -0,0 +1,62 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import game.ELevelFormat;
+import game.board.compact.BoardCompact;
+import game.board.oop.Board;
+
+public class LevelPackTest {
+
+	//@Test
+	public void testRoundTrip() throws IOException {
+		System.out.println("=== TESTING LEVEL PACK ===");
+
+		String[] sources = { "levels/easy.sok", "levels/Aymeric_Medium.sok", "levels/multibox_level0001.s4jl" };
+
+		for (String source : sources) {
+			File sourceFile = new File(source);
+			ELevelFormat format = ELevelFormat.getExpectedLevelFormat(sourceFile);
+			File packFile = File.createTempFile("LevelPackTest", ELevelFormat.S4JP.getExtension());
+			packFile.deleteOnExit();
+
+			LevelPack.compile(sourceFile, packFile);
+			LevelPack pack = new LevelPack(packFile);
+
+			int levelCount = format == ELevelFormat.SOK ? SokReader.getLevelNumber(sourceFile) : S4JLReader.getLevelNumber(sourceFile);
+			if (pack.getLevelCount() != levelCount) {
+				throw new RuntimeException(source + ": expected " + levelCount + " levels, pack has " + pack.getLevelCount());
+			}
+
+			// CHECK FROM THE LAST LEVEL, LOOKUP DOES NOT DEPEND ON ORDER
+			for (int level = levelCount; level >= 1; --level) {
+				Board expected = Board.fromFile(sourceFile, format, level);
+				BoardCompact expectedCompact = expected.makeBoardCompact();
+				BoardCompact compact = pack.getBoardCompact(level);
+
+				if (!Arrays.deepEquals(expectedCompact.tiles, compact.tiles)
+					|| expectedCompact.playerX != compact.playerX || expectedCompact.playerY != compact.playerY
+					|| expectedCompact.boxCount != compact.boxCount || expectedCompact.boxInPlaceCount != compact.boxInPlaceCount) {
+					throw new RuntimeException(source + " #" + level + ": compact board differs");
+				}
+
+				Board board = Board.fromFileS4JP(packFile, level);
+				if (!expected.equalsState(board) || !expected.level.equals(board.level) || expected.minMoves != board.minMoves) {
+					throw new RuntimeException(source + " #" + level + ": board differs");
+				}
+			}
+
+			System.out.println(source + ": " + levelCount + " levels, " + packFile.length() + " bytes");
+		}
+
+		System.out.println("---// TEST OK //---");
+	}
+
+	public static void main(String[] args) throws IOException {
+		LevelPackTest test = new LevelPackTest();
+		test.testRoundTrip();
+	}
+
+}